@@ -0,0 +1,71 @@
+package twitter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two runs written by BenchmarkRunner.writeJson and reports each
+ * benchmark and size whose time or allocation per operation grew by more
+ * than a threshold. A time change only counts if it is also larger than the
+ * sum of both runs' errors.
+ *
+ * Usage: BenchmarkComparison baseline.json current.json [threshold]
+ *   threshold is a fraction, default 0.10. Exits with status 1 if any
+ *   benchmark regressed, so it can gate a build.
+ */
+public class BenchmarkComparison {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BenchmarkComparison baseline.json current.json [threshold]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        Map<String, BenchmarkRunner.Result> baseline = new HashMap<>();
+        for (BenchmarkRunner.Result r : read(args[0])) {
+            baseline.put(key(r), r);
+        }
+
+        int regressions = 0;
+        for (BenchmarkRunner.Result current : read(args[1])) {
+            BenchmarkRunner.Result base = baseline.get(key(current));
+            if (base == null) {
+                System.out.printf("%-26s %,11d  new%n", current.benchmark, current.size);
+                continue;
+            }
+            double time = current.nanosPerOp / base.nanosPerOp - 1;
+            double allocation = base.bytesPerOp == 0
+                    ? (current.bytesPerOp == 0 ? 0 : Double.POSITIVE_INFINITY)
+                    : current.bytesPerOp / base.bytesPerOp - 1;
+            boolean slower = time > threshold
+                    && current.nanosPerOp - base.nanosPerOp > current.errorNanos + base.errorNanos;
+            boolean heavier = allocation > threshold && current.bytesPerOp - base.bytesPerOp > 64;
+            if (slower || heavier) {
+                regressions++;
+            }
+            System.out.printf("%-26s %,11d  time %+7.1f%%  alloc %+7.1f%%%s%n",
+                    current.benchmark, current.size, 100 * time, 100 * allocation,
+                    slower || heavier ? "  REGRESSION" : "");
+        }
+        System.out.println(regressions + " regression(s)");
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static List<BenchmarkRunner.Result> read(String file) throws IOException {
+        try (Reader in = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            return BenchmarkRunner.readJson(in);
+        }
+    }
+
+    private static String key(BenchmarkRunner.Result r) {
+        return r.benchmark + "/" + r.size;
+    }
+}
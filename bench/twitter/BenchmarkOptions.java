@@ -0,0 +1,61 @@
+package twitter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command-line options of the form "--name value" for benchmark programs.
+ */
+public class BenchmarkOptions {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    /**
+     * Parse options.
+     *
+     * @param args pairs of "--name" and value
+     * @throws IllegalArgumentException if args are not such pairs
+     */
+    public BenchmarkOptions(String[] args) {
+        if (args.length % 2 != 0) {
+            throw new IllegalArgumentException("option without a value: " + args[args.length - 1]);
+        }
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("expected --option, found " + args[i]);
+            }
+            values.put(args[i].substring(2), args[i + 1]);
+        }
+    }
+
+    /**
+     * @param name option name, without "--"
+     * @param otherwise default value, may be null
+     * @return the option's value, or otherwise if it was not given
+     */
+    public String get(String name, String otherwise) {
+        return values.getOrDefault(name, otherwise);
+    }
+
+    /**
+     * @param name option name, without "--"
+     * @param otherwise default value
+     * @return the option's value, or otherwise if it was not given
+     * @throws NumberFormatException if the value is not an int
+     */
+    public int getInt(String name, int otherwise) {
+        String value = values.get(name);
+        return value == null ? otherwise : Integer.parseInt(value.replace("_", ""));
+    }
+
+    /**
+     * @param name option name, without "--"
+     * @param otherwise default value
+     * @return the option's value, or otherwise if it was not given
+     * @throws NumberFormatException if the value is not a long
+     */
+    public long getLong(String name, long otherwise) {
+        String value = values.get(name);
+        return value == null ? otherwise : Long.parseLong(value.replace("_", ""));
+    }
+}
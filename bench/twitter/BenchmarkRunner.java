@@ -0,0 +1,222 @@
+package twitter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.stream.JsonGenerator;
+
+/**
+ * Minimal benchmark harness: warms a workload up, then times it over several
+ * measurement iterations on the calling thread, and reports time and bytes
+ * allocated per operation.
+ *
+ * Each iteration repeats the workload until at least iterationMillis have
+ * passed (and at least once). The result of every operation is stored in a
+ * volatile field, so the JIT cannot discard the work. Allocation is read
+ * from the thread's allocation counter, so it only covers work done on the
+ * calling thread.
+ *
+ * Results can be written and read back as JSON, to compare runs with
+ * BenchmarkComparison.
+ */
+public class BenchmarkRunner {
+
+    /** A unit of work to time; its result is consumed by the runner. */
+    public interface Workload {
+        Object run() throws Exception;
+    }
+
+    /**
+     * Measurements of one workload at one input size. Times are per
+     * operation, and error is the standard deviation of the per-iteration
+     * means.
+     */
+    public static final class Result {
+        public final String benchmark;
+        public final long size;
+        public final long operations;
+        public final double nanosPerOp;
+        public final double errorNanos;
+        public final double bytesPerOp;
+
+        public Result(String benchmark, long size, long operations,
+                      double nanosPerOp, double errorNanos, double bytesPerOp) {
+            this.benchmark = benchmark;
+            this.size = size;
+            this.operations = operations;
+            this.nanosPerOp = nanosPerOp;
+            this.errorNanos = errorNanos;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        /**
+         * @return operations per second
+         */
+        public double opsPerSecond() {
+            return 1e9 / nanosPerOp;
+        }
+
+        /**
+         * @return input elements (tweets) processed per second
+         */
+        public double elementsPerSecond() {
+            return size * opsPerSecond();
+        }
+
+        @Override public String toString() {
+            return String.format("%-26s %,11d %14.1f +- %5.1f%% us/op %14.0f tweets/s %14.0f B/op",
+                    benchmark, size, nanosPerOp / 1e3, 100 * errorNanos / nanosPerOp,
+                    elementsPerSecond(), bytesPerOp);
+        }
+    }
+
+    private static volatile Object sink;
+
+    private final int warmupIterations;
+    private final int iterations;
+    private final long iterationMillis;
+    private final List<Result> results = new ArrayList<>();
+
+    /**
+     * Make a runner.
+     *
+     * @param warmupIterations iterations to run and discard first, >= 0
+     * @param iterations measured iterations, > 0
+     * @param iterationMillis minimum length of each iteration, >= 0
+     */
+    public BenchmarkRunner(int warmupIterations, int iterations, long iterationMillis) {
+        if (warmupIterations < 0 || iterations < 1 || iterationMillis < 0) {
+            throw new IllegalArgumentException("warmup " + warmupIterations + ", iterations " + iterations
+                    + ", iteration " + iterationMillis + " ms");
+        }
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+        this.iterationMillis = iterationMillis;
+    }
+
+    /**
+     * Measure a workload, print the result and keep it for writeJson.
+     *
+     * @param benchmark name of the workload
+     * @param size number of input elements each operation processes
+     * @param workload work to time
+     * @return the result
+     * @throws Exception if the workload throws
+     */
+    public Result measure(String benchmark, long size, Workload workload) throws Exception {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(workload);
+        }
+        double[] means = new double[iterations];
+        long operations = 0;
+        long nanos = 0;
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            long ops = iteration(workload);
+            long elapsed = System.nanoTime() - start;
+            means[i] = (double) elapsed / ops;
+            operations += ops;
+            nanos += elapsed;
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+        double mean = (double) nanos / operations;
+        double variance = 0;
+        for (double m : means) {
+            variance += (m - mean) * (m - mean);
+        }
+        double error = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+        Result result = new Result(benchmark, size, operations, mean, error, (double) allocated / operations);
+        results.add(result);
+        System.out.println(result);
+        return result;
+    }
+
+    private long iteration(Workload workload) throws Exception {
+        long deadline = System.nanoTime() + iterationMillis * 1_000_000;
+        long ops = 0;
+        do {
+            sink = workload.run();
+            ops++;
+        } while (System.nanoTime() < deadline);
+        return ops;
+    }
+
+    /**
+     * @return the results measured so far, in order
+     */
+    public List<Result> results() {
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Write results as a JSON object with the JVM version, the time of the
+     * run, and an array of results.
+     *
+     * @param results results to write
+     * @param out destination, not closed by this method
+     */
+    public static void writeJson(List<Result> results, Writer out) {
+        Map<String, Object> config = Collections.singletonMap(JsonGenerator.PRETTY_PRINTING, true);
+        JsonGenerator json = Json.createGeneratorFactory(config).createGenerator(out);
+        json.writeStartObject()
+            .write("jvm", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"))
+            .write("processors", Runtime.getRuntime().availableProcessors())
+            .write("time", Instant.now().toString())
+            .writeStartArray("results");
+        for (Result r : results) {
+            json.writeStartObject()
+                .write("benchmark", r.benchmark)
+                .write("size", r.size)
+                .write("operations", r.operations)
+                .write("nanosPerOp", r.nanosPerOp)
+                .write("errorNanos", r.errorNanos)
+                .write("opsPerSecond", r.opsPerSecond())
+                .write("elementsPerSecond", r.elementsPerSecond())
+                .write("bytesPerOp", r.bytesPerOp)
+                .writeEnd();
+        }
+        json.writeEnd().writeEnd();
+        json.flush();
+    }
+
+    /**
+     * Read results written by writeJson.
+     *
+     * @param in JSON written by writeJson
+     * @return the results, in order
+     * @throws IOException if in cannot be read
+     * @throws javax.json.JsonException if in is not valid JSON
+     */
+    public static List<Result> readJson(Reader in) throws IOException {
+        JsonArray array;
+        try (JsonReader reader = Json.createReader(in)) {
+            array = reader.readObject().getJsonArray("results");
+        }
+        List<Result> results = new ArrayList<>();
+        for (JsonObject r : array.getValuesAs(JsonObject.class)) {
+            results.add(new Result(r.getString("benchmark"),
+                    r.getJsonNumber("size").longValue(),
+                    r.getJsonNumber("operations").longValue(),
+                    r.getJsonNumber("nanosPerOp").doubleValue(),
+                    r.getJsonNumber("errorNanos").doubleValue(),
+                    r.getJsonNumber("bytesPerOp").doubleValue()));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,161 @@
+package twitter;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Throughput and allocation of the Extract, Filter, TweetQuery, WordIndex,
+ * TrigramIndex, SocialNetwork and JSON reading hot paths, over lists of tweets
+ * whose size grows tenfold from the smallest to the largest size. Tweets come
+ * from a seeded TweetGenerator with Zipf-distributed authors, mentions and
+ * hashtags, so every run sees the same input.
+ *
+ * Usage: HotPathBenchmark [option value]...
+ *   --min N          smallest size (default 1000)
+ *   --max N          largest size (default 1000000; 10000000 needs about
+ *                    4 GB of heap)
+ *   --filter REGEX   only run benchmarks whose name matches (default all)
+ *   --warmup N       warmup iterations (default 3)
+ *   --iterations N   measured iterations (default 5)
+ *   --time MS        minimum length of an iteration (default 500)
+ *   --out FILE       also write the results as JSON, for BenchmarkComparison
+ *   --tree-max N     largest size for TweetReader, which holds the whole JSON
+ *                    tree in memory (default 100000)
+ */
+public class HotPathBenchmark {
+
+    private static final long SEED = 6005;
+    private static final int AUTHORS = 100_000;
+    private static final int HASHTAGS = 5_000;
+    private static final double SKEW = 1.0;
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options = new BenchmarkOptions(args);
+        int min = options.getInt("min", 1000);
+        int max = options.getInt("max", 1_000_000);
+        int treeMax = options.getInt("tree-max", 100_000);
+        Pattern filter = Pattern.compile(options.get("filter", ".*"));
+        BenchmarkRunner runner = new BenchmarkRunner(options.getInt("warmup", 3), options.getInt("iterations", 5),
+                                                     options.getLong("time", 500));
+
+        TweetGenerator generator = new TweetGenerator(SEED, AUTHORS, HASHTAGS, SKEW);
+        List<Tweet> tweets = new ArrayList<>();
+        for (long size = min; size <= max; size *= 10) {
+            while (tweets.size() < size) {
+                tweets.add(generator.next(tweets.size()));
+            }
+            List<Tweet> sample = tweets.subList(0, (int) size);
+            run(runner, filter, sample, size <= treeMax);
+        }
+
+        String out = options.get("out", null);
+        if (out != null) {
+            try (Writer writer = Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8)) {
+                BenchmarkRunner.writeJson(runner.results(), writer);
+            }
+            System.err.println("wrote " + runner.results().size() + " results to " + out);
+        }
+    }
+
+    private static void run(BenchmarkRunner runner, Pattern filter, List<Tweet> tweets, boolean tree)
+            throws Exception {
+        long size = tweets.size();
+        Timespan all = Extract.getTimespan(tweets);
+        long seconds = all.getEnd().getEpochSecond() - all.getStart().getEpochSecond();
+        Timespan middle = new Timespan(all.getStart().plusSeconds(seconds / 4),
+                                       all.getStart().plusSeconds(3 * seconds / 4));
+        String author = TweetGenerator.username(0);
+        List<String> words = Arrays.asList("rivest", "java");
+        List<String> rare = Arrays.asList(TweetGenerator.username(4321));
+
+        if (selected(filter, "getTimespan")) {
+            runner.measure("getTimespan", size, () -> Extract.getTimespan(tweets));
+        }
+        if (selected(filter, "getMentionedUsers")) {
+            runner.measure("getMentionedUsers", size, () -> Extract.getMentionedUsers(tweets));
+        }
+        if (selected(filter, "writtenBy")) {
+            runner.measure("writtenBy", size, () -> Filter.writtenBy(tweets, author));
+        }
+        if (selected(filter, "inTimespan")) {
+            runner.measure("inTimespan", size, () -> Filter.inTimespan(tweets, middle));
+        }
+        if (selected(filter, "containing")) {
+            runner.measure("containing", size, () -> Filter.containing(tweets, words));
+        }
+        if (selected(filter, "WordIndex.containingAny") || selected(filter, "WordIndex.containingAll")) {
+            WordIndex index = new WordIndex(tweets);
+            if (selected(filter, "WordIndex.containingAny")) {
+                runner.measure("WordIndex.containingAny", size, () -> index.containingAny(words));
+            }
+            if (selected(filter, "WordIndex.containingAll")) {
+                runner.measure("WordIndex.containingAll", size, () -> index.containingAll(words));
+            }
+        }
+        if (selected(filter, "containingRare")) {
+            runner.measure("containingRare", size, () -> Filter.containing(tweets, rare));
+        }
+        if (selected(filter, "TrigramIndex.containing") || selected(filter, "TrigramIndex.containingRare")) {
+            TrigramIndex index = new TrigramIndex(tweets);
+            if (selected(filter, "TrigramIndex.containing")) {
+                runner.measure("TrigramIndex.containing", size, () -> index.containing(words));
+            }
+            if (selected(filter, "TrigramIndex.containingRare")) {
+                runner.measure("TrigramIndex.containingRare", size, () -> index.containing(rare));
+            }
+        }
+        if (selected(filter, "streamInTimespan")) {
+            runner.measure("streamInTimespan", size, () -> Filter.streamInTimespan(tweets, middle).count());
+        }
+        if (selected(filter, "selectInTimespan")) {
+            runner.measure("selectInTimespan", size, () -> Filter.selectInTimespan(tweets, middle));
+        }
+        if (selected(filter, "chainedFilters")) {
+            runner.measure("chainedFilters", size,
+                    () -> Filter.containing(Filter.inTimespan(Filter.writtenBy(tweets, author), middle), words));
+        }
+        if (selected(filter, "TweetQuery")) {
+            TweetQuery query = TweetQuery.writtenBy(author).and(TweetQuery.inTimespan(middle))
+                    .and(TweetQuery.containing(words));
+            runner.measure("TweetQuery", size, () -> query.filter(tweets));
+        }
+        if (selected(filter, "guessFollowsGraph")) {
+            runner.measure("guessFollowsGraph", size, () -> SocialNetwork.guessFollowsGraph(tweets));
+        }
+        if (selected(filter, "influencers")) {
+            Map<String, Set<String>> followsGraph = SocialNetwork.guessFollowsGraph(tweets);
+            runner.measure("influencers", size, () -> SocialNetwork.influencers(followsGraph));
+        }
+        if (selected(filter, "StreamingTweetReader") || tree && selected(filter, "TweetReader")) {
+            Path json = Files.createTempFile("tweets", ".json");
+            try {
+                try (Writer out = Files.newBufferedWriter(json, StandardCharsets.UTF_8)) {
+                    new TweetGenerator(SEED, AUTHORS, HASHTAGS, SKEW).writeJson(out, (int) size);
+                }
+                if (selected(filter, "StreamingTweetReader")) {
+                    runner.measure("StreamingTweetReader", size,
+                            () -> StreamingTweetReader.read(json, tweet -> { }));
+                }
+                if (tree && selected(filter, "TweetReader")) {
+                    runner.measure("TweetReader", size,
+                            () -> TweetReader.readTweetsFromWeb(json.toUri().toURL()));
+                }
+            } finally {
+                Files.delete(json);
+            }
+        }
+    }
+
+    private static boolean selected(Pattern filter, String benchmark) {
+        return filter.matcher(benchmark).matches();
+    }
+}
@@ -0,0 +1,46 @@
+package twitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Times PageRank on a follows graph built from generated tweets, cold and
+ * warm-started from the converged ranking of a slightly smaller corpus.
+ *
+ * Usage: InfluenceRankBenchmark [tweets]
+ */
+public class InfluenceRankBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        System.out.println("parallelism " + ForkJoinPool.commonPool().getParallelism());
+        TweetGenerator generator = new TweetGenerator(42, 50_000, 2_000);
+        List<Tweet> tweets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tweets.add(generator.next(i));
+        }
+
+        int earlier = size - size / 100;
+        CompactFollowsGraph before = CompactFollowsGraph.fromTweets(tweets.subList(0, earlier));
+        long start = System.nanoTime();
+        CompactFollowsGraph graph = CompactFollowsGraph.fromTweets(tweets);
+        System.out.printf("%,d users, %,d edges, built in %d ms%n",
+                graph.vertexCount(), graph.edgeCount(), (System.nanoTime() - start) / 1_000_000);
+
+        double[] previous = new InfluenceRank(before).rank();
+        InfluenceRank engine = new InfluenceRank(graph);
+        for (int round = 0; round < 3; round++) {
+            start = System.nanoTime();
+            engine.rank();
+            long cold = System.nanoTime() - start;
+            int coldIterations = engine.iterations();
+            start = System.nanoTime();
+            double[] ranks = engine.rank(InfluenceRank.carryOver(before, previous, graph));
+            long warm = System.nanoTime() - start;
+            System.out.printf("cold %d ms (%d iterations), warm %d ms (%d iterations), top %s%n",
+                    cold / 1_000_000, coldIterations, warm / 1_000_000, engine.iterations(),
+                    engine.top(ranks, 3));
+        }
+    }
+}
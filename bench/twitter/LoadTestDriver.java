@@ -0,0 +1,176 @@
+package twitter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end load test of the pipeline Main runs: fetch a sample of tweets,
+ * extract its timespan and mentioned users, guess the follows graph, and
+ * rank the top influencers. Runs the pipeline repeatedly from concurrent
+ * clients against a StandInTweetServer (or any server given by --url), and
+ * reports per-stage latency percentiles, overall throughput and peak heap.
+ *
+ * Peak heap is the sum of the peak usage of each heap memory pool since the
+ * test started, which bounds the true peak from above.
+ *
+ * Usage: LoadTestDriver [option value]...
+ *   --url URL        server to load; default starts a StandInTweetServer
+ *                    with the server options below
+ *   --tweets N       tweets per response (default 10000)
+ *   --latency MS     server delay before the first byte (default 0)
+ *   --bandwidth B    server bytes per second per response (default unlimited)
+ *   --reader NAME    "streaming" for StreamingTweetReader (default), or
+ *                    "tree" for TweetReader
+ *   --clients N      concurrent pipelines (default 1)
+ *   --runs N         pipelines per client (default 20)
+ *   --warmup N       pipelines per client run first and not reported (default 5)
+ */
+public class LoadTestDriver {
+
+    private static final String[] STAGES = { "fetch", "extract", "graph", "influencers", "total" };
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options = new BenchmarkOptions(args);
+        int clients = options.getInt("clients", 1);
+        int runs = options.getInt("runs", 20);
+        int warmup = options.getInt("warmup", 5);
+        boolean tree = options.get("reader", "streaming").equals("tree");
+
+        StandInTweetServer server = null;
+        URL url;
+        if (options.get("url", null) != null) {
+            url = new URL(options.get("url", null));
+        } else {
+            server = new StandInTweetServer(0, options.getInt("tweets", 10_000), 0, options.getLong("latency", 0),
+                                            options.getLong("bandwidth", 0), Math.max(8, clients));
+            url = server.url();
+        }
+        System.out.println("loading " + url + " with " + clients + " client(s), "
+                + (tree ? "TweetReader" : "StreamingTweetReader"));
+
+        try {
+            ExecutorService pool = Executors.newFixedThreadPool(clients);
+            try {
+                runClients(pool, clients, warmup, url, tree);
+
+                List<MemoryPoolMXBean> heap = new ArrayList<>();
+                for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+                    if (memoryPool.getType() == MemoryType.HEAP) {
+                        memoryPool.resetPeakUsage();
+                        heap.add(memoryPool);
+                    }
+                }
+                AtomicLong tweets = new AtomicLong();
+                long start = System.nanoTime();
+                long[][] nanos = runClients(pool, clients, runs, url, tree, tweets);
+                long elapsed = System.nanoTime() - start;
+                long peak = 0;
+                for (MemoryPoolMXBean memoryPool : heap) {
+                    peak += memoryPool.getPeakUsage().getUsed();
+                }
+                report(nanos, clients * runs, tweets.get(), elapsed, peak);
+            } finally {
+                pool.shutdownNow();
+            }
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private static void runClients(ExecutorService pool, int clients, int runs, URL url, boolean tree)
+            throws Exception {
+        runClients(pool, clients, runs, url, tree, new AtomicLong());
+    }
+
+    /*
+     * Run runs pipelines on each of clients threads.
+     * Returns nanos[stage][pipeline].
+     */
+    private static long[][] runClients(ExecutorService pool, int clients, int runs, URL url, boolean tree,
+                                       AtomicLong tweets) throws Exception {
+        long[][] nanos = new long[STAGES.length][clients * runs];
+        List<Future<?>> futures = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            int first = c * runs;
+            futures.add(pool.submit(() -> {
+                for (int r = 0; r < runs; r++) {
+                    tweets.addAndGet(pipeline(url, tree, nanos, first + r));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return nanos;
+    }
+
+    /*
+     * Run the pipeline once, recording each stage's time in nanos[stage][i].
+     * Returns the number of tweets fetched.
+     */
+    private static int pipeline(URL url, boolean tree, long[][] nanos, int i) throws IOException {
+        long t0 = System.nanoTime();
+        List<Tweet> tweets;
+        if (tree) {
+            tweets = TweetReader.readTweetsFromWeb(url);
+        } else {
+            try (Stream<Tweet> stream = StreamingTweetReader.stream(url)) {
+                tweets = stream.collect(Collectors.toList());
+            }
+        }
+        long t1 = System.nanoTime();
+        Extract.getTimespan(tweets);
+        Extract.getMentionedUsers(tweets);
+        long t2 = System.nanoTime();
+        Map<String, Set<String>> followsGraph = SocialNetwork.guessFollowsGraph(tweets);
+        long t3 = System.nanoTime();
+        SocialNetwork.influencers(followsGraph, 10);
+        long t4 = System.nanoTime();
+        nanos[0][i] = t1 - t0;
+        nanos[1][i] = t2 - t1;
+        nanos[2][i] = t3 - t2;
+        nanos[3][i] = t4 - t3;
+        nanos[4][i] = t4 - t0;
+        return tweets.size();
+    }
+
+    private static void report(long[][] nanos, int pipelines, long tweets, long elapsed, long peakHeap) {
+        System.out.printf("%-12s %10s %10s %10s %10s %10s  (ms)%n", "stage", "p50", "p90", "p99", "max", "mean");
+        for (int s = 0; s < STAGES.length; s++) {
+            long[] sorted = nanos[s].clone();
+            Arrays.sort(sorted);
+            System.out.printf("%-12s %10.2f %10.2f %10.2f %10.2f %10.2f%n", STAGES[s],
+                    percentile(sorted, 50) / 1e6, percentile(sorted, 90) / 1e6, percentile(sorted, 99) / 1e6,
+                    sorted[sorted.length - 1] / 1e6, Arrays.stream(sorted).average().orElse(0) / 1e6);
+        }
+        double seconds = elapsed / 1e9;
+        System.out.printf("%d pipelines, %d tweets in %.2f s: %.1f pipelines/s, %.0f tweets/s%n",
+                pipelines, tweets, seconds, pipelines / seconds, tweets / seconds);
+        System.out.printf("peak heap %.1f MB%n", peakHeap / (1024.0 * 1024.0));
+    }
+
+    /*
+     * Nearest-rank percentile of a nonempty sorted array.
+     */
+    private static long percentile(long[] sorted, int p) {
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
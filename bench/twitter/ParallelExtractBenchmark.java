@@ -0,0 +1,59 @@
+package twitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares the sequential and parallel versions of Extract.getTimespan and
+ * Extract.getMentionedUsers as the list of tweets grows.
+ *
+ * Usage: ParallelExtractBenchmark [largest size]
+ */
+public class ParallelExtractBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int largest = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.println("parallelism " + ForkJoinPool.commonPool().getParallelism());
+        TweetGenerator generator = new TweetGenerator(42, 100_000, 1_000);
+        List<Tweet> tweets = new ArrayList<>();
+        for (int size = 1_000; size <= largest; size *= 10) {
+            while (tweets.size() < size) {
+                tweets.add(generator.next(tweets.size()));
+            }
+            List<Tweet> sample = tweets.subList(0, size);
+
+            Timespan sequentialSpan = null;
+            Timespan parallelSpan = null;
+            Set<String> sequentialMentions = null;
+            Set<String> parallelMentions = null;
+            long sequentialSpanNanos = Long.MAX_VALUE;
+            long parallelSpanNanos = Long.MAX_VALUE;
+            long sequentialMentionNanos = Long.MAX_VALUE;
+            long parallelMentionNanos = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                sequentialSpan = Extract.getTimespan(sample);
+                sequentialSpanNanos = Math.min(sequentialSpanNanos, System.nanoTime() - start);
+                start = System.nanoTime();
+                parallelSpan = Extract.getTimespanParallel(sample);
+                parallelSpanNanos = Math.min(parallelSpanNanos, System.nanoTime() - start);
+                start = System.nanoTime();
+                sequentialMentions = Extract.getMentionedUsers(sample);
+                sequentialMentionNanos = Math.min(sequentialMentionNanos, System.nanoTime() - start);
+                start = System.nanoTime();
+                parallelMentions = Extract.getMentionedUsersParallel(sample);
+                parallelMentionNanos = Math.min(parallelMentionNanos, System.nanoTime() - start);
+            }
+            if (!sequentialSpan.equals(parallelSpan) || !sequentialMentions.equals(parallelMentions)) {
+                throw new AssertionError("parallel result differs at size " + size);
+            }
+            System.out.printf("%,10d tweets  getTimespan x%.2f  getMentionedUsers x%.2f%n", size,
+                    (double) sequentialSpanNanos / parallelSpanNanos,
+                    (double) sequentialMentionNanos / parallelMentionNanos);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package twitter;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for Main.SAMPLE_SERVER, built on the JDK's HTTP server.
+ *
+ * Every GET returns a JSON array of tweets from TweetGenerator, streamed
+ * with chunked encoding as it is generated. Response i holds the tweets
+ * with ids i * (tweets - overlap) onward, so consecutive responses overlap
+ * like samples of a live stream. Each response waits for a fixed latency
+ * before its first byte, and is then throttled to a bandwidth limit.
+ *
+ * Usage: StandInTweetServer [option value]...
+ *   --port N         port to listen on (default 8005; 0 for any free port)
+ *   --tweets N       tweets per response (default 1000)
+ *   --overlap N      tweets shared by consecutive responses (default 0)
+ *   --latency MS     delay before the first byte (default 0)
+ *   --bandwidth B    bytes per second per response, 0 for unlimited (default 0)
+ *   --threads N      requests served at once (default 8)
+ */
+public class StandInTweetServer implements AutoCloseable {
+
+    private static final long SEED = 6005;
+    private static final int AUTHORS = 10_000;
+    private static final int HASHTAGS = 1_000;
+    private static final double SKEW = 1.0;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final int tweets;
+    private final int overlap;
+    private final long latencyMillis;
+    private final long bytesPerSecond;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    /**
+     * Start a server on localhost.
+     *
+     * @param port port to listen on, or 0 for any free port
+     * @param tweets tweets per response, >= 0
+     * @param overlap tweets shared by consecutive responses, 0 <= overlap < tweets
+     *                (or 0 if tweets is 0)
+     * @param latencyMillis delay before the first byte of each response, >= 0
+     * @param bytesPerSecond bandwidth of each response, or 0 for unlimited
+     * @param threads number of requests served at once, > 0
+     * @throws IOException if the server cannot be started
+     */
+    public StandInTweetServer(int port, int tweets, int overlap, long latencyMillis, long bytesPerSecond,
+                              int threads) throws IOException {
+        if (tweets < 0 || overlap < 0 || (overlap >= tweets && overlap > 0)
+                || latencyMillis < 0 || bytesPerSecond < 0 || threads < 1) {
+            throw new IllegalArgumentException("tweets " + tweets + ", overlap " + overlap + ", latency "
+                    + latencyMillis + ", bandwidth " + bytesPerSecond + ", threads " + threads);
+        }
+        this.tweets = tweets;
+        this.overlap = overlap;
+        this.latencyMillis = latencyMillis;
+        this.bytesPerSecond = bytesPerSecond;
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @return URL that serves tweets
+     */
+    public URL url() {
+        try {
+            return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/tweets");
+        } catch (MalformedURLException murle) {
+            throw new AssertionError(murle);
+        }
+    }
+
+    /**
+     * @return number of requests received
+     */
+    public long requestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return number of response body bytes sent
+     */
+    public long byteCount() {
+        return bytes.get();
+    }
+
+    /**
+     * Stop the server, abandoning responses in progress.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long request = requests.getAndIncrement();
+        try {
+            Thread.sleep(latencyMillis);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream body = new Throttled(exchange.getResponseBody(), bytesPerSecond);
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8))) {
+                new TweetGenerator(SEED + request, AUTHORS, HASHTAGS, SKEW)
+                        .writeJson(out, request * (tweets - overlap), tweets);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /*
+     * Counts the bytes written and paces them to a bandwidth (if nonzero), in
+     * slices of about 1/20 of a second.
+     */
+    private final class Throttled extends FilterOutputStream {
+        private final long bytesPerSecond;
+        private final int slice;
+        private final long start = System.nanoTime();
+        private long written = 0;
+
+        private Throttled(OutputStream out, long bytesPerSecond) {
+            super(out);
+            this.bytesPerSecond = bytesPerSecond;
+            this.slice = bytesPerSecond == 0 ? 1 << 16
+                                             : (int) Math.max(1, Math.min(1 << 16, bytesPerSecond / 20));
+        }
+
+        @Override public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, slice);
+                pace(n);
+                out.write(b, off, n);
+                bytes.addAndGet(n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void pace(int n) throws IOException {
+            if (bytesPerSecond == 0) {
+                return;
+            }
+            written += n;
+            long due = start + written * 1_000_000_000L / bytesPerSecond;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        BenchmarkOptions options = new BenchmarkOptions(args);
+        StandInTweetServer server = new StandInTweetServer(
+                options.getInt("port", 8005), options.getInt("tweets", 1000), options.getInt("overlap", 0),
+                options.getLong("latency", 0), options.getLong("bandwidth", 0), options.getInt("threads", 8));
+        System.out.println("serving tweets at " + server.url());
+    }
+}
@@ -0,0 +1,73 @@
+package twitter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares a cold start from JSON with StreamingTweetReader against opening
+ * a TweetArchive converted from the same JSON, and scanning or loading it.
+ *
+ * Usage: TweetArchiveBenchmark [tweets] [rounds]
+ */
+public class TweetArchiveBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        Path json = Files.createTempFile("tweets", ".json");
+        Path archive = Files.createTempFile("tweets", ".archive");
+        try {
+            try (Writer out = Files.newBufferedWriter(json, StandardCharsets.UTF_8)) {
+                new TweetGenerator(42, 10_000, 500).writeJson(out, count);
+            }
+            long start = System.nanoTime();
+            try (Reader in = Files.newBufferedReader(json, StandardCharsets.UTF_8)) {
+                TweetArchive.convert(in, archive);
+            }
+            System.out.printf("convert: %d tweets, %d JSON bytes to %d archive bytes in %.0f ms%n",
+                    count, Files.size(json), Files.size(archive), (System.nanoTime() - start) / 1e6);
+
+            for (int round = 0; round < rounds; round++) {
+                measure("JSON read", () -> StreamingTweetReader.read(json, tweet -> { }));
+                measure("archive open", () -> {
+                    try (TweetArchive tweets = TweetArchive.open(archive)) {
+                        return tweets.longSize();
+                    }
+                });
+                measure("archive id/time scan", () -> {
+                    try (TweetArchive tweets = TweetArchive.open(archive)) {
+                        long sum = 0;
+                        for (long i = 0; i < tweets.longSize(); i++) {
+                            sum += tweets.id(i) ^ tweets.epochSecond(i) ^ tweets.authorId(i);
+                        }
+                        return sum == 42 ? 0 : tweets.longSize();
+                    }
+                });
+                measure("archive toList", () -> {
+                    try (TweetArchive tweets = TweetArchive.open(archive)) {
+                        return tweets.toList().size();
+                    }
+                });
+            }
+        } finally {
+            Files.delete(json);
+            Files.delete(archive);
+        }
+    }
+
+    private interface Run {
+        long run() throws IOException;
+    }
+
+    private static void measure(String name, Run run) throws IOException {
+        long start = System.nanoTime();
+        long tweets = run.run();
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%-22s %10.1f ms %12.0f tweets/s%n", name, nanos / 1e6, tweets * 1e9 / nanos);
+    }
+}
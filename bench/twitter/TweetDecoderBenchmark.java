@@ -0,0 +1,57 @@
+package twitter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Compares TweetReader, which builds the whole JSON tree and flattens every
+ * tweet into maps, with StreamingTweetReader and its key-path TweetDecoder.
+ *
+ * Usage: TweetDecoderBenchmark [tweets] [rounds]
+ */
+public class TweetDecoderBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Path file = Files.createTempFile("tweets", ".json");
+        try {
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                new TweetGenerator(42, 10_000, 500).writeJson(out, count);
+            }
+            System.err.println(count + " tweets, " + Files.size(file) + " bytes");
+            for (int round = 0; round < rounds; round++) {
+                measure("TweetReader", () -> {
+                    List<Tweet> tweets = TweetReader.readTweetsFromWeb(file.toUri().toURL());
+                    return tweets.size();
+                });
+                measure("StreamingTweetReader", () -> StreamingTweetReader.read(file, tweet -> { }));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private interface Run {
+        long run() throws IOException;
+    }
+
+    private static void measure(String name, Run run) throws IOException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        long tweets = run.run();
+        long nanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+        System.out.printf("%-22s %10.0f tweets/s %8d bytes allocated/tweet%n",
+                name, tweets * 1e9 / nanos, allocated / Math.max(1, tweets));
+    }
+}
@@ -0,0 +1,170 @@
+package twitter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Seeded generator of synthetic tweets for benchmarks.
+ *
+ * The JSON form mimics a Twitter API payload: besides the fields a Tweet needs
+ * it carries a user object, entities and sometimes a retweeted_status, so that
+ * decoders pay for the data they skip as well as the data they keep.
+ *
+ * Authors, mentioned users and hashtags are drawn uniformly, or with a skew
+ * from a Zipf distribution, where the name of rank r (from 1) is drawn with
+ * probability proportional to 1 / r^skew: a few users write and are
+ * mentioned in most tweets, and a few hashtags dominate, as in real samples.
+ */
+public class TweetGenerator {
+
+    private static final DateTimeFormatter CREATED_AT_FORMAT = TwitterDate.FORMAT.withZone(ZoneOffset.UTC);
+    private static final Instant EPOCH = Instant.parse("2016-02-17T00:00:00Z");
+    private static final String[] WORDS = {
+        "rivest", "talk", "in", "30", "minutes", "is", "it", "reasonable", "to", "about", "so",
+        "much", "the", "java", "love", "programming", "today", "great", "new", "see", "you", "at",
+    };
+
+    private final Random random;
+    private final int authors;
+    private final int hashtags;
+    private final double[] authorCdf;
+    private final double[] hashtagCdf;
+
+    /**
+     * Make a generator that draws names uniformly.
+     *
+     * @param seed random seed; equal seeds produce equal output
+     * @param authors number of distinct usernames to draw from, > 0
+     * @param hashtags number of distinct hashtags to draw from, > 0
+     */
+    public TweetGenerator(long seed, int authors, int hashtags) {
+        this(seed, authors, hashtags, 0);
+    }
+
+    /**
+     * Make a generator.
+     *
+     * @param seed random seed; equal seeds produce equal output
+     * @param authors number of distinct usernames to draw from, > 0
+     * @param hashtags number of distinct hashtags to draw from, > 0
+     * @param skew Zipf exponent of the author, mention and hashtag
+     *             distributions, >= 0; 0 draws uniformly, and around 1 is
+     *             typical of social media
+     */
+    public TweetGenerator(long seed, int authors, int hashtags, double skew) {
+        this.random = new Random(seed);
+        this.authors = authors;
+        this.hashtags = hashtags;
+        this.authorCdf = skew == 0 ? null : zipfCdf(authors, skew);
+        this.hashtagCdf = skew == 0 ? null : zipfCdf(hashtags, skew);
+    }
+
+    /**
+     * @param i index of the tweet, used as its id and to spread timestamps
+     * @return the next synthetic tweet
+     */
+    public Tweet next(long i) {
+        String author = username(draw(authorCdf, authors));
+        StringBuilder text = new StringBuilder();
+        int words = 4 + random.nextInt(12);
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                text.append(' ');
+            }
+            int kind = random.nextInt(20);
+            if (kind == 0) {
+                text.append('@').append(username(draw(authorCdf, authors)));
+            } else if (kind == 1) {
+                text.append('#').append(hashtag(draw(hashtagCdf, hashtags)));
+            } else {
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+        }
+        return new Tweet(i, author, text.toString(), EPOCH.plusSeconds(i + random.nextInt(600)));
+    }
+
+    /**
+     * Write count tweets as a JSON array.
+     *
+     * @param out destination, not closed by this method
+     * @param count number of tweets to write
+     * @throws IOException if out cannot be written
+     */
+    public void writeJson(Writer out, int count) throws IOException {
+        writeJson(out, 0, count);
+    }
+
+    /**
+     * Write count tweets with ids first..first+count-1 as a JSON array.
+     *
+     * @param out destination, not closed by this method
+     * @param first id of the first tweet
+     * @param count number of tweets to write
+     * @throws IOException if out cannot be written
+     */
+    public void writeJson(Writer out, long first, int count) throws IOException {
+        out.write('[');
+        for (long i = first; i < first + count; i++) {
+            if (i > first) {
+                out.write(",\n");
+            }
+            Tweet tweet = next(i);
+            out.write("{\"created_at\":\"" + CREATED_AT_FORMAT.format(tweet.getTimestamp()) + "\"");
+            out.write(",\"id\":" + tweet.getId() + ",\"id_str\":\"" + tweet.getId() + "\"");
+            out.write(",\"text\":\"" + tweet.getText() + "\",\"truncated\":false");
+            out.write(",\"entities\":{\"hashtags\":[{\"text\":\"" + hashtag(random.nextInt(hashtags))
+                    + "\",\"indices\":[3,9]}],\"user_mentions\":[],\"urls\":[]}");
+            out.write(",\"user\":{\"id\":" + random.nextInt(authors) + ",\"name\":\"Some Body\",\"screen_name\":\""
+                    + tweet.getAuthor() + "\",\"location\":null,\"followers_count\":" + random.nextInt(100000)
+                    + ",\"verified\":false}");
+            out.write(",\"user.screen_name\":\"" + tweet.getAuthor() + "\"");
+            if (random.nextInt(4) == 0) {
+                out.write(",\"retweeted_status\":{\"id\":" + random.nextInt() + ",\"text\":\"original text here\""
+                        + ",\"user\":{\"screen_name\":\"" + username(random.nextInt(authors)) + "\"}}");
+            }
+            out.write(",\"retweet_count\":" + random.nextInt(1000) + ",\"lang\":\"en\"}");
+        }
+        out.write(']');
+    }
+
+    /**
+     * @param n index of a generated user, >= 0
+     * @return username of that user; with skew, user 0 is the most active
+     */
+    public static String username(int n) {
+        return "user_" + n;
+    }
+
+    private static String hashtag(int n) {
+        return "topic" + n;
+    }
+
+    private int draw(double[] cdf, int n) {
+        if (cdf == null) {
+            return random.nextInt(n);
+        }
+        int i = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(i >= 0 ? i + 1 : -i - 1, n - 1);
+    }
+
+    /*
+     * cdf[r] = P(rank <= r) for ranks 0..n-1 with P(r) ~ 1 / (r + 1)^skew.
+     */
+    private static double[] zipfCdf(int n, double skew) {
+        double[] cdf = new double[n];
+        double total = 0;
+        for (int r = 0; r < n; r++) {
+            total += 1 / Math.pow(r + 1, skew);
+            cdf[r] = total;
+        }
+        for (int r = 0; r < n; r++) {
+            cdf[r] /= total;
+        }
+        return cdf;
+    }
+}
@@ -0,0 +1,129 @@
+package twitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A growable list of tweets indexed by author.
+ *
+ * Each case-folded username maps to the positions of its tweets in input
+ * order, so the tweets of one author are found in time proportional to their
+ * number rather than to the size of the whole list.
+ *
+ * Not safe for concurrent modification.
+ */
+public class AuthorIndex {
+
+    private final List<Tweet> tweets = new ArrayList<>();
+    private final Map<String, IntList> positionsByAuthor = new HashMap<>();
+
+    /*
+     * Abstraction function:
+     *    represents the sequence of tweets in tweets, in input order
+     * Rep invariant:
+     *    for every author a, positionsByAuthor.get(a.toLowerCase(Locale.ROOT)) is
+     *      the increasing list of positions of the tweets by a, and no list is empty
+     * Safety from rep exposure:
+     *    all fields are private; tweets is only returned as an unmodifiable
+     *    view, and position lists are copied before they are returned
+     */
+
+    /**
+     * Make an empty index.
+     */
+    public AuthorIndex() {
+    }
+
+    /**
+     * Make an index of the given tweets.
+     *
+     * @param tweets tweets in input order, not modified by this constructor
+     */
+    public AuthorIndex(List<Tweet> tweets) {
+        addAll(tweets);
+    }
+
+    /**
+     * Append a tweet.
+     *
+     * @param tweet tweet to add after all the tweets already in the index
+     */
+    public void add(Tweet tweet) {
+        String author = tweet.getAuthor().toLowerCase(Locale.ROOT);
+        positionsByAuthor.computeIfAbsent(author, a -> new IntList()).add(tweets.size());
+        tweets.add(tweet);
+    }
+
+    /**
+     * Append tweets in order.
+     *
+     * @param tweets tweets to add
+     */
+    public void addAll(Iterable<? extends Tweet> tweets) {
+        for (Tweet tweet : tweets) {
+            add(tweet);
+        }
+    }
+
+    /**
+     * @return number of tweets in the index
+     */
+    public int size() {
+        return tweets.size();
+    }
+
+    /**
+     * @return unmodifiable view of the indexed tweets, in input order
+     */
+    public List<Tweet> tweets() {
+        return Collections.unmodifiableList(tweets);
+    }
+
+    /**
+     * @return unmodifiable view of the lower-case usernames of all authors in the index
+     */
+    public Set<String> authors() {
+        return Collections.unmodifiableSet(positionsByAuthor.keySet());
+    }
+
+    /**
+     * Find tweets written by a particular user.
+     *
+     * @param username Twitter username, compared case-insensitively
+     * @return all and only the indexed tweets whose author is username, in input order
+     */
+    public List<Tweet> writtenBy(String username) {
+        IntList positions = positionsByAuthor.get(username.toLowerCase(Locale.ROOT));
+        if (positions == null) {
+            return new ArrayList<>();
+        }
+        List<Tweet> result = new ArrayList<>(positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            result.add(tweets.get(positions.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * @param username Twitter username, compared case-insensitively
+     * @return number of indexed tweets written by username
+     */
+    public int count(String username) {
+        IntList positions = positionsByAuthor.get(username.toLowerCase(Locale.ROOT));
+        return positions == null ? 0 : positions.size();
+    }
+
+    /**
+     * @param username Twitter username, compared case-insensitively
+     * @return input positions of the tweets written by username, in increasing order
+     */
+    int[] positionsWrittenBy(String username) {
+        IntList positions = positionsByAuthor.get(username.toLowerCase(Locale.ROOT));
+        return positions == null ? new int[0] : positions.toArray();
+    }
+}
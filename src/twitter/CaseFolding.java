@@ -0,0 +1,130 @@
+package twitter;
+
+import java.util.Locale;
+
+/**
+ * Case-insensitive comparison of text without lower-cased copies.
+ *
+ * Two strings are equal ignoring case iff their toLowerCase(Locale.ROOT)
+ * forms are equal, and a text contains a word iff the lower-cased text
+ * contains the lower-cased word: the semantics of Filter.containing and of
+ * the author indexes. Characters are folded one at a time as they are
+ * compared, with a fast path for ASCII. Only the rare texts with a character
+ * whose lower case depends on its context or is not a single char (dotted
+ * capital I, capital sigma, and surrogate pairs) are lower-cased as a whole,
+ * so comparing ordinary tweet texts and usernames allocates nothing.
+ */
+public class CaseFolding {
+
+    private static final char DOTTED_CAPITAL_I = '\u0130';
+    private static final char CAPITAL_SIGMA = '\u03A3';
+
+    private CaseFolding() {
+    }
+
+    /**
+     * @param c a char that is not part of a surrogate pair, dotted capital
+     *          I or capital sigma
+     * @return the lower case of c, as in String.toLowerCase(Locale.ROOT)
+     */
+    public static char fold(char c) {
+        if (c < 0x80) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    /**
+     * @param a a string
+     * @param b another string
+     * @return true iff a.toString().toLowerCase(Locale.ROOT) equals
+     *         b.toString().toLowerCase(Locale.ROOT)
+     */
+    public static boolean equalsIgnoreCase(CharSequence a, CharSequence b) {
+        int n = a.length();
+        if (n == b.length()) {
+            int i = 0;
+            for (; i < n; i++) {
+                char x = a.charAt(i);
+                char y = b.charAt(i);
+                if (x == y && x < 0x80) {
+                    continue;
+                }
+                if (needsWholeFolding(x) || needsWholeFolding(y)) {
+                    break;
+                }
+                if (fold(x) != fold(y)) {
+                    return false;
+                }
+            }
+            if (i == n) {
+                return true;
+            }
+        } else if (isSimple(a) && isSimple(b)) {
+            // folding chars one at a time keeps lengths
+            return false;
+        }
+        return lower(a).equals(lower(b));
+    }
+
+    /**
+     * @param text text to search
+     * @param word word to search for
+     * @return true iff text.toString().toLowerCase(Locale.ROOT) contains
+     *         word.toString().toLowerCase(Locale.ROOT)
+     */
+    public static boolean containsIgnoreCase(CharSequence text, CharSequence word) {
+        if (!isSimple(text) || !isSimple(word)) {
+            return lower(text).contains(lower(word));
+        }
+        int m = word.length();
+        if (m == 0) {
+            return true;
+        }
+        char first = fold(word.charAt(0));
+        for (int start = 0, last = text.length() - m; start <= last; start++) {
+            if (fold(text.charAt(start)) != first) {
+                continue;
+            }
+            int k = 1;
+            while (k < m && fold(text.charAt(start + k)) == fold(word.charAt(k))) {
+                k++;
+            }
+            if (k == m) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param c a char
+     * @return true iff c is dotted capital I or capital sigma, whose lower
+     *         case in String.toLowerCase(Locale.ROOT) depends on the chars
+     *         around it, so a text containing c must be lower-cased as a whole
+     */
+    static boolean foldsInContext(char c) {
+        return c == DOTTED_CAPITAL_I || c == CAPITAL_SIGMA;
+    }
+
+    /*
+     * True iff every char of s folds on its own.
+     */
+    private static boolean isSimple(CharSequence s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80 && needsWholeFolding(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean needsWholeFolding(char c) {
+        return foldsInContext(c) || Character.isSurrogate(c);
+    }
+
+    private static String lower(CharSequence s) {
+        return s.toString().toLowerCase(Locale.ROOT);
+    }
+}
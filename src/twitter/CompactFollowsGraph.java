@@ -0,0 +1,348 @@
+package twitter;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable follows graph in compressed sparse row (CSR) form.
+ *
+ * Usernames are interned, case-insensitively, as int vertex ids 0..n-1 in
+ * order of first appearance. The users followed by vertex v are
+ * targets[offsets[v]..offsets[v+1]), sorted by id, and a second CSR holds
+ * the followers of each vertex the same way. An edge costs two ints, one in
+ * each direction, instead of the HashMap entry, HashSet node and boxed
+ * references it costs in the Map<String, Set<String>> form, and graph
+ * algorithms can walk it with primitive loops.
+ */
+public class CompactFollowsGraph {
+
+    private final SymbolTable users;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] reverseOffsets;
+    private final int[] sources;
+    private final BitSet keyed;
+
+    /*
+     * Abstraction function:
+     *    represents the graph on vertices users.name(0..n-1), n = users.size(),
+     *    with an edge v -> targets[i] for each offsets[v] <= i < offsets[v+1];
+     *    keyed is the set of vertices present as keys in the map form
+     * Rep invariant:
+     *    offsets.length == reverseOffsets.length == n + 1, both nondecreasing
+     *      from 0 to targets.length == sources.length
+     *    each row of targets and of sources is strictly increasing, in 0..n-1
+     *    u is in row v of sources iff v is in row u of targets
+     *    every vertex with an outgoing edge is in keyed
+     * Safety from rep exposure:
+     *    all fields are private and final and never modified after
+     *    construction; public observers return copies, and the arrays given
+     *    to package-private graph algorithms must not be modified by them
+     */
+
+    private CompactFollowsGraph(SymbolTable users, int[] offsets, int[] targets, BitSet keyed) {
+        this.users = users;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.keyed = keyed;
+
+        int n = users.size();
+        this.reverseOffsets = new int[n + 1];
+        for (int target : targets) {
+            reverseOffsets[target + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            reverseOffsets[v + 1] += reverseOffsets[v];
+        }
+        this.sources = new int[targets.length];
+        int[] next = Arrays.copyOf(reverseOffsets, n);
+        for (int v = 0; v < n; v++) {
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                sources[next[targets[i]]++] = v;
+            }
+        }
+    }
+
+    /**
+     * Build the graph of SocialNetwork.guessFollowsGraph from evidence found
+     * in tweets, without going through the map form.
+     *
+     * @param tweets list of tweets, not modified by this method
+     * @return the follows graph of those tweets
+     */
+    public static CompactFollowsGraph fromTweets(List<Tweet> tweets) {
+        Evidence evidence = new Evidence();
+        for (Tweet t : tweets) {
+            evidence.author = evidence.users.intern(t.getAuthor());
+            TweetLexer.scan(t.getText(), evidence);
+        }
+        int[][] members = group(evidence.hashtags.size(), evidence.tagOf, evidence.userOf);
+        return build(evidence.users, evidence.mentioner, evidence.mentioned, members, null);
+    }
+
+    /**
+     * Convert a follows graph from map form.
+     *
+     * @param followsGraph map from each user to the set of users they follow;
+     *                     usernames are case-insensitive. Not modified by this method.
+     * @return the same graph, with the keys of followsGraph as its keyed users
+     */
+    public static CompactFollowsGraph fromMap(Map<String, Set<String>> followsGraph) {
+        SymbolTable users = new SymbolTable();
+        IntList from = new IntList();
+        IntList to = new IntList();
+        BitSet keyed = new BitSet();
+        for (Map.Entry<String, Set<String>> entry : followsGraph.entrySet()) {
+            int source = users.intern(entry.getKey());
+            keyed.set(source);
+            for (String followed : entry.getValue()) {
+                from.add(source);
+                to.add(users.intern(followed));
+            }
+        }
+        return build(users, from, to, new int[0][], keyed);
+    }
+
+    /**
+     * Convert to map form. For a graph made by fromTweets, this is equal to
+     * SocialNetwork.guessFollowsGraph of the same tweets.
+     *
+     * @return map from each keyed user to the set of users they follow, all
+     *         in lower case; for fromTweets, the keyed users are those who
+     *         follow someone, and for fromMap, the keys of the original map
+     */
+    public Map<String, Set<String>> toMap() {
+        Map<String, Set<String>> followsGraph = new HashMap<>();
+        for (int v = keyed.nextSetBit(0); v >= 0; v = keyed.nextSetBit(v + 1)) {
+            Set<String> followed = new HashSet<>();
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                followed.add(users.name(targets[i]));
+            }
+            followsGraph.put(users.name(v), followed);
+        }
+        return followsGraph;
+    }
+
+    /**
+     * @return number of vertices (users)
+     */
+    public int vertexCount() {
+        return users.size();
+    }
+
+    /**
+     * @return number of follows edges
+     */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @param username username, case-insensitive
+     * @return id of the user, or -1 if the user is not in the graph
+     */
+    public int id(String username) {
+        return users.find(username);
+    }
+
+    /**
+     * @param v vertex id, 0 <= v < vertexCount()
+     * @return the user's name, in lower case
+     */
+    public String name(int v) {
+        return users.name(v);
+    }
+
+    /**
+     * @param v vertex id, 0 <= v < vertexCount()
+     * @return number of users v follows
+     */
+    public int outDegree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    /**
+     * @param v vertex id, 0 <= v < vertexCount()
+     * @return number of users who follow v
+     */
+    public int inDegree(int v) {
+        return reverseOffsets[v + 1] - reverseOffsets[v];
+    }
+
+    /**
+     * @param v vertex id, 0 <= v < vertexCount()
+     * @return ids of the users v follows, in increasing order
+     */
+    public int[] follows(int v) {
+        return Arrays.copyOfRange(targets, offsets[v], offsets[v + 1]);
+    }
+
+    /**
+     * @param v vertex id, 0 <= v < vertexCount()
+     * @return ids of the users who follow v, in increasing order
+     */
+    public int[] followers(int v) {
+        return Arrays.copyOfRange(sources, reverseOffsets[v], reverseOffsets[v + 1]);
+    }
+
+    /**
+     * @param a vertex id, 0 <= a < vertexCount()
+     * @param b vertex id, 0 <= b < vertexCount()
+     * @return true iff a follows b, by binary search in O(log outDegree(a))
+     */
+    public boolean isFollowing(int a, int b) {
+        return Arrays.binarySearch(targets, offsets[a], offsets[a + 1], b) >= 0;
+    }
+
+    /*
+     * Raw CSR arrays for graph algorithms in this package; callers must not
+     * modify them.
+     */
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] targets() {
+        return targets;
+    }
+
+    int[] reverseOffsets() {
+        return reverseOffsets;
+    }
+
+    int[] sources() {
+        return sources;
+    }
+
+    /*
+     * Make the graph with edges from.get(i) -> to.get(i), plus u -> v for
+     * every u != v in a common row of members. keyed null means the vertices
+     * with an outgoing edge.
+     */
+    private static CompactFollowsGraph build(SymbolTable users, IntList from, IntList to,
+                                             int[][] members, BitSet keyed) {
+        int n = users.size();
+        long[] degree = new long[n];
+        for (int i = 0; i < from.size(); i++) {
+            degree[from.get(i)]++;
+        }
+        for (int[] group : members) {
+            for (int user : group) {
+                degree[user] += group.length - 1;
+            }
+        }
+        int[] offsets = new int[n + 1];
+        long total = 0;
+        for (int v = 0; v < n; v++) {
+            total += degree[v];
+            if (total > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("follows graph has more than 2^31 edges");
+            }
+            offsets[v + 1] = (int) total;
+        }
+
+        // fill rows, then sort and deduplicate each one
+        int[] edges = new int[(int) total];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < from.size(); i++) {
+            edges[next[from.get(i)]++] = to.get(i);
+        }
+        for (int[] group : members) {
+            for (int u : group) {
+                for (int v : group) {
+                    if (u != v) {
+                        edges[next[u]++] = v;
+                    }
+                }
+            }
+        }
+        int[] compactOffsets = new int[n + 1];
+        int size = 0;
+        for (int v = 0; v < n; v++) {
+            int start = offsets[v];
+            int end = offsets[v + 1];
+            Arrays.sort(edges, start, end);
+            for (int i = start; i < end; i++) {
+                if (i == start || edges[i] != edges[i - 1]) {
+                    edges[size++] = edges[i];
+                }
+            }
+            compactOffsets[v + 1] = size;
+        }
+        int[] targets = Arrays.copyOf(edges, size);
+
+        if (keyed == null) {
+            keyed = new BitSet(n);
+            for (int v = 0; v < n; v++) {
+                if (compactOffsets[v + 1] > compactOffsets[v]) {
+                    keyed.set(v);
+                }
+            }
+        }
+        return new CompactFollowsGraph(users, compactOffsets, targets, keyed);
+    }
+
+    /*
+     * @return for each group g in 0..groups-1, the distinct members m with
+     *         (g, m) a pair of (groupOf.get(i), memberOf.get(i)), in increasing order
+     */
+    private static int[][] group(int groups, IntList groupOf, IntList memberOf) {
+        int[] counts = new int[groups];
+        for (int i = 0; i < groupOf.size(); i++) {
+            counts[groupOf.get(i)]++;
+        }
+        int[][] result = new int[groups][];
+        for (int g = 0; g < groups; g++) {
+            result[g] = new int[counts[g]];
+        }
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < groupOf.size(); i++) {
+            int g = groupOf.get(i);
+            result[g][counts[g]++] = memberOf.get(i);
+        }
+        for (int g = 0; g < groups; g++) {
+            int[] group = result[g];
+            Arrays.sort(group);
+            int size = 0;
+            for (int i = 0; i < group.length; i++) {
+                if (i == 0 || group[i] != group[i - 1]) {
+                    group[size++] = group[i];
+                }
+            }
+            result[g] = Arrays.copyOf(group, size);
+        }
+        return result;
+    }
+
+    /*
+     * Collects mention edges and hashtag uses as pairs of ids.
+     */
+    private static class Evidence implements TweetLexer.Handler {
+        private final SymbolTable users = new SymbolTable();
+        private final SymbolTable hashtags = new SymbolTable();
+        private final IntList mentioner = new IntList();
+        private final IntList mentioned = new IntList();
+        private final IntList tagOf = new IntList();
+        private final IntList userOf = new IntList();
+        private int author;
+
+        @Override public void mention(CharSequence text, int start, int end) {
+            int user = users.intern(text, start, end);
+            if (user != author) {
+                mentioner.add(author);
+                mentioned.add(user);
+            }
+        }
+
+        @Override public void hashtag(CharSequence text, int start, int end) {
+            tagOf.add(hashtags.intern(text, start, end));
+            userOf.add(author);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package twitter;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+
+/**
+ * Mutable ranking of int ids by count: higher count first, ties broken by
+ * ascending name. Only ids with a positive count are ranked.
+ *
+ * Changing the count of one id costs O(log n), and reading the top k costs
+ * O(k + log n), so a ranking kept up to date as counts change is never
+ * re-sorted as a whole.
+ */
+class CountRanking {
+
+    private final IntFunction<String> name;
+    private final TreeSet<Integer> ranked;
+    private int[] counts = new int[16];
+
+    /*
+     * Abstraction function:
+     *    represents the map from each id to counts[id] (0 beyond counts.length),
+     *    ranked by (count descending, name ascending)
+     * Rep invariant:
+     *    ranked contains exactly the ids with counts[id] > 0; no count is negative
+     *    name maps distinct ids to distinct names and never changes a name
+     */
+
+    /**
+     * @param name name of each id, used to order ties
+     */
+    CountRanking(IntFunction<String> name) {
+        this.name = name;
+        Comparator<Integer> byCount = (a, b) -> Integer.compare(counts[b], counts[a]);
+        this.ranked = new TreeSet<>(byCount.thenComparing(name::apply));
+    }
+
+    /**
+     * Add delta to the count of id.
+     *
+     * @throws IllegalArgumentException if the count would become negative
+     */
+    void adjust(int id, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        if (id >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(id + 1, 2 * counts.length));
+        }
+        int count = counts[id] + delta;
+        if (count < 0) {
+            throw new IllegalArgumentException("count of " + name.apply(id) + " would be " + count);
+        }
+        if (counts[id] > 0) {
+            ranked.remove(id);
+        }
+        counts[id] = count;
+        if (count > 0) {
+            ranked.add(id);
+        }
+    }
+
+    int count(int id) {
+        return id < counts.length ? counts[id] : 0;
+    }
+
+    /**
+     * @return number of ids with a positive count
+     */
+    int size() {
+        return ranked.size();
+    }
+
+    /**
+     * @return the first min(k, size()) ids of the ranking, best first
+     */
+    int[] top(int k) {
+        int[] result = new int[Math.min(k, ranked.size())];
+        Iterator<Integer> ids = ranked.iterator();
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids.next();
+        }
+        return result;
+    }
+}
@@ -4,11 +4,13 @@
 package twitter;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Extract consists of methods that extract information from a list of tweets.
@@ -19,6 +21,12 @@ import java.util.regex.Pattern;
  */
 public class Extract {
 
+    /**
+     * Default size below which the parallel variants of these methods run
+     * sequentially, because splitting would cost more than it saves.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 8192;
+
     /**
      * Get the time period spanned by tweets.
      * 
@@ -33,22 +41,35 @@ public class Extract {
             throw new IllegalArgumentException("tweet list must not be empty");
         }
 
-        // initialize with first tweet’s timestamp
-        Instant start = tweets.get(0).getTimestamp();
-        Instant end = start;
+        Metrics.Span span = Metrics.start(Metrics.Stage.GET_TIMESPAN);
+        Instant[] bounds = bounds(tweets);
+        span.end(tweets.size());
+        return new Timespan(bounds[0], bounds[1]);
+    }
 
-        // find earliest and latest timestamps
-        for (Tweet t : tweets) {
-            Instant time = t.getTimestamp();
-            if (time.isBefore(start)) {
-                start = time;
-            }
-            if (time.isAfter(end)) {
-                end = time;
-            }
-        }
+    /**
+     * Get the time period spanned by the tweets in a store, scanning its
+     * timestamp column without building Tweet objects.
+     * 
+     * @param tweets
+     *            nonempty store of tweets with distinct ids, not modified by this method.
+     * @return a minimum-length time interval that contains the timestamp of
+     *         every tweet in the store.
+     */
+    public static Timespan getTimespan(TweetStore tweets) {
+        return tweets.timespan();
+    }
 
-        return new Timespan(start, end);
+    /**
+     * Get the time period spanned by the tweets in a time index, in O(1).
+     * 
+     * @param tweets
+     *            nonempty index of tweets with distinct ids, not modified by this method.
+     * @return a minimum-length time interval that contains the timestamp of
+     *         every tweet in the index.
+     */
+    public static Timespan getTimespan(TimeIndex tweets) {
+        return tweets.timespan();
     }
 
     /**
@@ -67,24 +88,217 @@ public class Extract {
      *         include a username at most once.
      */
     public static Set<String> getMentionedUsers(List<Tweet> tweets) {
-        Set<String> mentionedUsers = new HashSet<>();
+        Metrics.Span span = Metrics.start(Metrics.Stage.GET_MENTIONED_USERS);
+        Set<String> mentionedUsers = mentions(tweets);
+        span.end(tweets.size());
+        return mentionedUsers;
+    }
 
-        // Regular expression to match valid mentions
-        // (?<![A-Za-z0-9_]) ensures the '@' is not part of a longer word
-        // ([A-Za-z0-9_]+) captures the username itself
-        // (?![A-Za-z0-9_]) ensures it is not followed by another valid username char
-        Pattern mentionPattern = Pattern.compile("(?<![A-Za-z0-9_])@([A-Za-z0-9_]+)(?![A-Za-z0-9_])");
+    /**
+     * Get the time period spanned by tweets, splitting large lists across the
+     * common fork-join pool.
+     * 
+     * @param tweets
+     *            nonempty list of tweets with distinct ids, not modified by this method.
+     * @return the same result as getTimespan(tweets)
+     */
+    public static Timespan getTimespanParallel(List<Tweet> tweets) {
+        return getTimespanParallel(tweets, DEFAULT_PARALLEL_THRESHOLD);
+    }
 
+    /**
+     * Get the time period spanned by tweets, splitting large lists across the
+     * common fork-join pool.
+     * 
+     * @param tweets
+     *            nonempty list of tweets with distinct ids, not modified by this method.
+     * @param threshold
+     *            lists or sublists with at most this many tweets are scanned
+     *            sequentially; requires threshold > 0.
+     * @return the same result as getTimespan(tweets)
+     */
+    public static Timespan getTimespanParallel(List<Tweet> tweets, int threshold) {
+        if (tweets.isEmpty()) {
+            throw new IllegalArgumentException("tweet list must not be empty");
+        }
+
+        Metrics.Span span = Metrics.start(Metrics.Stage.GET_TIMESPAN);
+        Instant[] bounds;
+        if (tweets.size() <= threshold) {
+            bounds = bounds(tweets);
+        } else {
+            List<Tweet> indexable = indexable(tweets);
+            bounds = ForkJoinPool.commonPool().invoke(
+                    new TimespanTask(indexable, 0, indexable.size(), leafSize(indexable.size(), threshold)));
+        }
+        span.end(tweets.size());
+        return new Timespan(bounds[0], bounds[1]);
+    }
+
+    /**
+     * Get usernames mentioned in a list of tweets, splitting large lists
+     * across the common fork-join pool.
+     * 
+     * @param tweets
+     *            list of tweets with distinct ids, not modified by this method.
+     * @return the same result as getMentionedUsers(tweets)
+     */
+    public static Set<String> getMentionedUsersParallel(List<Tweet> tweets) {
+        return getMentionedUsersParallel(tweets, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Get usernames mentioned in a list of tweets, splitting large lists
+     * across the common fork-join pool.
+     * 
+     * @param tweets
+     *            list of tweets with distinct ids, not modified by this method.
+     * @param threshold
+     *            lists or sublists with at most this many tweets are scanned
+     *            sequentially; requires threshold > 0.
+     * @return the same result as getMentionedUsers(tweets)
+     */
+    public static Set<String> getMentionedUsersParallel(List<Tweet> tweets, int threshold) {
+        Metrics.Span span = Metrics.start(Metrics.Stage.GET_MENTIONED_USERS);
+        Set<String> mentionedUsers;
+        if (tweets.size() <= threshold) {
+            mentionedUsers = mentions(tweets);
+        } else {
+            List<Tweet> indexable = indexable(tweets);
+            mentionedUsers = ForkJoinPool.commonPool().invoke(
+                    new MentionsTask(indexable, 0, indexable.size(), leafSize(indexable.size(), threshold)));
+        }
+        span.end(tweets.size());
+        return mentionedUsers;
+    }
+
+    /*
+     * Earliest and latest timestamps of a nonempty list of tweets, as a
+     * two-element array. Not instrumented, so parallel leaves can share it.
+     */
+    private static Instant[] bounds(List<Tweet> tweets) {
+        // initialize with first tweet’s timestamp
+        Instant start = tweets.get(0).getTimestamp();
+        Instant end = start;
+
+        // find earliest and latest timestamps
         for (Tweet t : tweets) {
-            String text = t.getText();
-            Matcher matcher = mentionPattern.matcher(text);
-            while (matcher.find()) {
-                // usernames are case-insensitive → store lowercase
-                String username = matcher.group(1).toLowerCase();
-                mentionedUsers.add(username);
+            Instant time = t.getTimestamp();
+            if (time.isBefore(start)) {
+                start = time;
+            }
+            if (time.isAfter(end)) {
+                end = time;
             }
         }
+        return new Instant[] { start, end };
+    }
 
+    /*
+     * Usernames mentioned in tweets, in lower case. Not instrumented, so
+     * parallel leaves can share it.
+     */
+    private static Set<String> mentions(List<Tweet> tweets) {
+        // intern each mention in place; a username seen before allocates nothing
+        SymbolTable mentioned = new SymbolTable();
+        TweetLexer.Handler handler = new TweetLexer.Handler() {
+            @Override public void mention(CharSequence text, int start, int end) {
+                mentioned.intern(text, start, end);
+            }
+        };
+        for (Tweet t : tweets) {
+            TweetLexer.scan(t.getText(), handler);
+        }
+
+        Set<String> mentionedUsers = new HashSet<>();
+        for (int id = 0; id < mentioned.size(); id++) {
+            mentionedUsers.add(mentioned.name(id));
+        }
         return mentionedUsers;
     }
+
+    /*
+     * Split finely enough to balance load across the pool, but never below threshold.
+     */
+    private static int leafSize(int size, int threshold) {
+        int chunks = ForkJoinPool.commonPool().getParallelism() * 4;
+        return Math.max(threshold, (size + chunks - 1) / chunks);
+    }
+
+    private static List<Tweet> indexable(List<Tweet> tweets) {
+        return tweets instanceof RandomAccess ? tweets : new ArrayList<>(tweets);
+    }
+
+    /*
+     * Earliest and latest timestamps of tweets[from..to), as a two-element array.
+     */
+    private static class TimespanTask extends RecursiveTask<Instant[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Tweet> tweets;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+        TimespanTask(List<Tweet> tweets, int from, int to, int leafSize) {
+            this.tweets = tweets;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override protected Instant[] compute() {
+            if (to - from <= leafSize) {
+                return bounds(tweets.subList(from, to));
+            }
+            int mid = (from + to) >>> 1;
+            TimespanTask left = new TimespanTask(tweets, from, mid, leafSize);
+            left.fork();
+            Instant[] right = new TimespanTask(tweets, mid, to, leafSize).compute();
+            Instant[] span = left.join();
+            if (right[0].isBefore(span[0])) {
+                span[0] = right[0];
+            }
+            if (right[1].isAfter(span[1])) {
+                span[1] = right[1];
+            }
+            return span;
+        }
+    }
+
+    /*
+     * Usernames mentioned in tweets[from..to), merged from per-chunk sets.
+     */
+    private static class MentionsTask extends RecursiveTask<Set<String>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Tweet> tweets;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+        MentionsTask(List<Tweet> tweets, int from, int to, int leafSize) {
+            this.tweets = tweets;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override protected Set<String> compute() {
+            if (to - from <= leafSize) {
+                return mentions(tweets.subList(from, to));
+            }
+            int mid = (from + to) >>> 1;
+            MentionsTask left = new MentionsTask(tweets, from, mid, leafSize);
+            left.fork();
+            Set<String> right = new MentionsTask(tweets, mid, to, leafSize).compute();
+            Set<String> mentioned = left.join();
+            if (mentioned.size() < right.size()) {
+                right.addAll(mentioned);
+                return right;
+            }
+            mentioned.addAll(right);
+            return mentioned;
+        }
+    }
 }
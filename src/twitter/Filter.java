@@ -4,7 +4,15 @@
 package twitter;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 public class Filter {
 
@@ -20,13 +28,90 @@ public class Filter {
     public static List<Tweet> writtenBy(List<Tweet> tweets, String username) {
         List<Tweet> result = new ArrayList<>();
         for (Tweet tweet : tweets) {
-            if (tweet.getAuthor().equalsIgnoreCase(username)) {
+            if (CaseFolding.equalsIgnoreCase(tweet.getAuthor(), username)) {
                 result.add(tweet);
             }
         }
         return result;
     }
 
+    /**
+     * Find tweets written by each of several users, in one pass over the list.
+     * 
+     * @param tweets list of tweets with distinct ids, not modified by this method.
+     * @param usernames Twitter usernames, each required to be a valid Twitter
+     *                  username (but not necessarily appearing in the list of tweets).
+     * @return a map from each username in usernames to all and only the tweets
+     *         in the list whose author is that username, in the same order as in
+     *         the input list. Each list in the map is a distinct object.
+     */
+    public static Map<String, List<Tweet>> writtenByAll(List<Tweet> tweets, Set<String> usernames) {
+        // look authors up in place rather than lower-casing each one
+        SymbolTable requested = new SymbolTable();
+        List<List<Tweet>> writtenById = new ArrayList<>();
+        Map<String, List<Tweet>> byAuthor = new HashMap<>();
+        for (String username : usernames) {
+            int id = requested.intern(username);
+            if (id == writtenById.size()) {
+                writtenById.add(new ArrayList<>());
+            }
+            byAuthor.put(username.toLowerCase(Locale.ROOT), writtenById.get(id));
+        }
+        for (Tweet tweet : tweets) {
+            int id = requested.find(tweet.getAuthor());
+            if (id >= 0 && CaseFolding.equalsIgnoreCase(tweet.getAuthor(), requested.name(id))) {
+                writtenById.get(id).add(tweet);
+            }
+        }
+        return byRequestedName(byAuthor, usernames);
+    }
+
+    /**
+     * Find tweets written by a particular user, using an author index.
+     * 
+     * @param tweets index of tweets with distinct ids, not modified by this method.
+     * @param username Twitter username, required to be a valid Twitter username (but
+     *                 not necessarily appearing in the index).
+     * @return all and only the indexed tweets whose author is username,
+     *         in the same order as they were added to the index.
+     */
+    public static List<Tweet> writtenBy(AuthorIndex tweets, String username) {
+        return tweets.writtenBy(username);
+    }
+
+    /**
+     * Find tweets written by each of several users, using an author index.
+     * 
+     * @param tweets index of tweets with distinct ids, not modified by this method.
+     * @param usernames Twitter usernames, each required to be a valid Twitter
+     *                  username (but not necessarily appearing in the index).
+     * @return a map from each username in usernames to all and only the indexed
+     *         tweets whose author is that username, in the same order as they were
+     *         added to the index. Each list in the map is a distinct object.
+     */
+    public static Map<String, List<Tweet>> writtenByAll(AuthorIndex tweets, Set<String> usernames) {
+        Map<String, List<Tweet>> byAuthor = new HashMap<>();
+        for (String username : usernames) {
+            byAuthor.computeIfAbsent(username.toLowerCase(Locale.ROOT), tweets::writtenBy);
+        }
+        return byRequestedName(byAuthor, usernames);
+    }
+
+    /*
+     * Key results by the usernames as requested, copying the list of any
+     * author requested under more than one spelling.
+     */
+    private static Map<String, List<Tweet>> byRequestedName(Map<String, List<Tweet>> byAuthor,
+                                                            Set<String> usernames) {
+        Map<String, List<Tweet>> result = new HashMap<>();
+        Set<List<Tweet>> used = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (String username : usernames) {
+            List<Tweet> written = byAuthor.get(username.toLowerCase(Locale.ROOT));
+            result.put(username, used.add(written) ? written : new ArrayList<>(written));
+        }
+        return result;
+    }
+
     /**
      * Find tweets that were sent during a particular timespan.
      * 
@@ -55,16 +140,193 @@ public class Filter {
      *         words (in any case), in the same order as in the input list.
      */
     public static List<Tweet> containing(List<Tweet> tweets, List<String> words) {
+        return containing(tweets, KeywordMatcher.compile(words));
+    }
+
+    /**
+     * Find tweets that contain at least one of the words of a compiled matcher,
+     * looking for all of them in a single pass over each text.
+     * 
+     * @param tweets list of tweets with distinct ids, not modified by this method.
+     * @param words matcher for the words to search for, case-insensitive.
+     * @return all and only the tweets in the list that contain at least one of the
+     *         words (in any case), in the same order as in the input list.
+     */
+    public static List<Tweet> containing(List<Tweet> tweets, KeywordMatcher words) {
         List<Tweet> result = new ArrayList<>();
         for (Tweet tweet : tweets) {
-            String text = tweet.getText().toLowerCase();
-            for (String word : words) {
-                if (text.contains(word.toLowerCase())) {
-                    result.add(tweet);
-                    break; // move to next tweet
-                }
+            if (words.matchesAny(tweet.getText())) {
+                result.add(tweet);
             }
         }
         return result;
     }
+
+    /**
+     * Find tweets written by a particular user, scanning the author column of
+     * a store.
+     * 
+     * @param tweets store of tweets with distinct ids, not modified by this method.
+     * @param username Twitter username, required to be a valid Twitter username (but
+     *                 not necessarily appearing in the store).
+     * @return all and only the tweets in the store whose author is username,
+     *         in the same order as in the store.
+     */
+    public static List<Tweet> writtenBy(TweetStore tweets, String username) {
+        return tweets.tweetsAt(tweets.positionsWrittenBy(username));
+    }
+
+    /**
+     * Find tweets that were sent during a particular timespan, scanning the
+     * timestamp column of a store.
+     * 
+     * @param tweets store of tweets with distinct ids, not modified by this method.
+     * @param timespan timespan
+     * @return all and only the tweets in the store that were sent during the timespan,
+     *         in the same order as in the store.
+     */
+    public static List<Tweet> inTimespan(TweetStore tweets, Timespan timespan) {
+        return tweets.tweetsAt(tweets.positionsInTimespan(timespan));
+    }
+
+    /**
+     * Find tweets that were sent during a particular timespan, by binary
+     * search in a time index.
+     * 
+     * @param tweets index of tweets with distinct ids, not modified by this method.
+     * @param timespan timespan
+     * @return all and only the indexed tweets that were sent during the timespan,
+     *         in the same order as they were added to the index.
+     */
+    public static List<Tweet> inTimespan(TimeIndex tweets, Timespan timespan) {
+        return tweets.inTimespan(timespan);
+    }
+
+    /**
+     * Find tweets that contain at least one of the specified words, searching
+     * the packed texts of a store in place where they are ASCII.
+     * 
+     * @param tweets store of tweets with distinct ids, not modified by this method.
+     * @param words list of words to search for, case-insensitive.
+     * @return all and only the tweets in the store that contain at least one of the
+     *         words (in any case), in the same order as in the store.
+     */
+    public static List<Tweet> containing(TweetStore tweets, List<String> words) {
+        return tweets.tweetsAt(tweets.positionsContaining(words));
+    }
+
+    /**
+     * Find tweets that contain at least one of the specified words, checking
+     * only the tweets that contain every trigram of one of the words.
+     * 
+     * @param tweets index of tweets with distinct ids, not modified by this method.
+     * @param words list of words to search for, case-insensitive.
+     * @return all and only the indexed tweets that contain at least one of the
+     *         words (in any case), in the same order as they were added to the index.
+     */
+    public static List<Tweet> containing(TrigramIndex tweets, List<String> words) {
+        return tweets.containing(words);
+    }
+
+    /*
+     * Lazy variants. The methods above each fill a new list with every
+     * match; these instead return a Stream that tests tweets only as they
+     * are pulled, so count(), findFirst() or anyMatch() visit as few tweets
+     * as needed and keep no matches, or a TweetSelection that records the
+     * matches as one bit per input tweet.
+     */
+
+    /**
+     * Lazily find tweets written by a particular user.
+     * 
+     * @param tweets list of tweets with distinct ids, not modified while the
+     *               stream is in use.
+     * @param username Twitter username, required to be a valid Twitter username (but
+     *                 not necessarily appearing in the list of tweets).
+     * @return sequential stream of all and only the tweets in the list whose
+     *         author is username, in the same order as in the input list.
+     */
+    public static Stream<Tweet> streamWrittenBy(List<Tweet> tweets, String username) {
+        return tweets.stream().filter(isWrittenBy(username));
+    }
+
+    /**
+     * Lazily find tweets that were sent during a particular timespan.
+     * 
+     * @param tweets list of tweets with distinct ids, not modified while the
+     *               stream is in use.
+     * @param timespan timespan
+     * @return sequential stream of all and only the tweets in the list that were
+     *         sent during the timespan, in the same order as in the input list.
+     */
+    public static Stream<Tweet> streamInTimespan(List<Tweet> tweets, Timespan timespan) {
+        return tweets.stream().filter(isInTimespan(timespan));
+    }
+
+    /**
+     * Lazily find tweets that contain at least one of the specified words.
+     * 
+     * @param tweets list of tweets with distinct ids, not modified while the
+     *               stream is in use.
+     * @param words list of words to search for, case-insensitive.
+     * @return sequential stream of all and only the tweets in the list that
+     *         contain at least one of the words (in any case), in the same
+     *         order as in the input list.
+     */
+    public static Stream<Tweet> streamContaining(List<Tweet> tweets, List<String> words) {
+        return tweets.stream().filter(isContaining(KeywordMatcher.compile(words)));
+    }
+
+    /**
+     * Select tweets written by a particular user.
+     * 
+     * @param tweets list of tweets with distinct ids, not modified while the
+     *               selection is in use.
+     * @param username Twitter username, required to be a valid Twitter username (but
+     *                 not necessarily appearing in the list of tweets).
+     * @return selection from the list of all and only the tweets whose author
+     *         is username.
+     */
+    public static TweetSelection selectWrittenBy(List<Tweet> tweets, String username) {
+        return TweetSelection.of(tweets, isWrittenBy(username));
+    }
+
+    /**
+     * Select tweets that were sent during a particular timespan.
+     * 
+     * @param tweets list of tweets with distinct ids, not modified while the
+     *               selection is in use.
+     * @param timespan timespan
+     * @return selection from the list of all and only the tweets that were sent
+     *         during the timespan.
+     */
+    public static TweetSelection selectInTimespan(List<Tweet> tweets, Timespan timespan) {
+        return TweetSelection.of(tweets, isInTimespan(timespan));
+    }
+
+    /**
+     * Select tweets that contain at least one of the specified words.
+     * 
+     * @param tweets list of tweets with distinct ids, not modified while the
+     *               selection is in use.
+     * @param words list of words to search for, case-insensitive.
+     * @return selection from the list of all and only the tweets that contain
+     *         at least one of the words (in any case).
+     */
+    public static TweetSelection selectContaining(List<Tweet> tweets, List<String> words) {
+        return TweetSelection.of(tweets, isContaining(KeywordMatcher.compile(words)));
+    }
+
+    private static Predicate<Tweet> isWrittenBy(String username) {
+        return tweet -> CaseFolding.equalsIgnoreCase(tweet.getAuthor(), username);
+    }
+
+    private static Predicate<Tweet> isInTimespan(Timespan timespan) {
+        return tweet -> !tweet.getTimestamp().isBefore(timespan.getStart())
+                && !tweet.getTimestamp().isAfter(timespan.getEnd());
+    }
+
+    private static Predicate<Tweet> isContaining(KeywordMatcher words) {
+        return tweet -> words.matchesAny(tweet.getText());
+    }
 }
@@ -0,0 +1,295 @@
+package twitter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable follows graph that keeps shared-hashtag evidence as hyperedges.
+ *
+ * It denotes the same graph as SocialNetwork.guessFollowsGraph: a follows b
+ * iff a != b and a mentioned b, or a and b used a common hashtag. But where
+ * that map holds every pair of users who share a hashtag (u^2 entries for a
+ * hashtag used by u users), this graph stores each hashtag once, as the set
+ * of its users. Queries are answered from the hyperedges directly.
+ *
+ * Follower counts are exact. The users reached through b's hashtags are
+ * counted in one pass over the ids of their users, stamping each id in an
+ * int array so nobody is counted twice. A user with a single hashtag costs
+ * O(1) however large it is; otherwise counting costs the total size of the
+ * user's hashtags. followerCounts() is therefore linear in the input plus
+ * the sum, over users with two or more hashtags, of the sizes of their
+ * hashtags: quadratic in the worst case, when many users combine a huge
+ * hashtag with another one. Exact counts need the distinct users reached
+ * through overlapping hashtags, and this pass is the cheapest exact method
+ * here; the inclusion-exclusion it replaced was exponential in the number
+ * of hashtags per user.
+ */
+public class FollowsHypergraph {
+
+    private final Map<String, Set<String>> mentions;
+    private final Map<String, Set<String>> mentionedBy;
+    private final Map<String, Set<String>> members;
+    private final Map<String, Set<String>> tagsOf;
+    private final SymbolTable users;
+    private final Map<String, int[]> memberIds;
+
+    /*
+     * Abstraction function:
+     *    represents the follows graph with an edge a -> b iff a != b and
+     *    (b in mentions.get(a), or members.get(t) contains both a and b for some t)
+     * Rep invariant:
+     *    b in mentions.get(a) iff a in mentionedBy.get(b); never a in mentions.get(a)
+     *    u in members.get(t) iff t in tagsOf.get(u)
+     *    all usernames and hashtags are lower case; no set is empty
+     *    every username in mentions, mentionedBy, members and tagsOf is a
+     *      symbol of users
+     *    memberIds.get(t) holds users.find(u) for each u in members.get(t),
+     *      each exactly once
+     * Safety from rep exposure:
+     *    all fields are private and final, and the maps, sets, arrays and
+     *    symbol table are never modified after construction; observers return copies or
+     *    unmodifiable views
+     */
+
+    private FollowsHypergraph(Map<String, Set<String>> mentions, Map<String, Set<String>> mentionedBy,
+                              Map<String, Set<String>> members, Map<String, Set<String>> tagsOf,
+                              SymbolTable users) {
+        this.mentions = mentions;
+        this.mentionedBy = mentionedBy;
+        this.members = members;
+        this.tagsOf = tagsOf;
+        this.users = users;
+        this.memberIds = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : members.entrySet()) {
+            int[] ids = new int[entry.getValue().size()];
+            int i = 0;
+            for (String member : entry.getValue()) {
+                ids[i++] = users.find(member);
+            }
+            memberIds.put(entry.getKey(), ids);
+        }
+    }
+
+    /**
+     * Build the graph from evidence found in tweets, the same evidence used
+     * by SocialNetwork.guessFollowsGraph.
+     *
+     * @param tweets list of tweets, not modified by this method
+     * @return the follows graph of those tweets
+     */
+    public static FollowsHypergraph fromTweets(List<Tweet> tweets) {
+        Evidence evidence = new Evidence();
+        for (Tweet t : tweets) {
+            evidence.author = evidence.users.symbol(t.getAuthor(), 0, t.getAuthor().length());
+            TweetLexer.scan(t.getText(), evidence);
+        }
+        Map<String, Set<String>> mentionedBy = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : evidence.mentions.entrySet()) {
+            for (String mentioned : entry.getValue()) {
+                mentionedBy.computeIfAbsent(mentioned, k -> new HashSet<>()).add(entry.getKey());
+            }
+        }
+        return new FollowsHypergraph(evidence.mentions, mentionedBy, evidence.members, evidence.tagsOf,
+                evidence.users);
+    }
+
+    /**
+     * @return unmodifiable view of all users who have a mention or hashtag edge,
+     *         in lower case
+     */
+    public Set<String> users() {
+        Set<String> users = new HashSet<>(mentions.keySet());
+        users.addAll(mentionedBy.keySet());
+        users.addAll(tagsOf.keySet());
+        return Collections.unmodifiableSet(users);
+    }
+
+    /**
+     * @return unmodifiable view of the hashtags (lower case, without "#") and their users
+     */
+    public Map<String, Set<String>> hashtags() {
+        return Collections.unmodifiableMap(members);
+    }
+
+    /**
+     * @param a username, case-insensitive
+     * @param b username, case-insensitive
+     * @return true iff a follows b
+     */
+    public boolean isFollowing(String a, String b) {
+        String from = a.toLowerCase(Locale.ROOT);
+        String to = b.toLowerCase(Locale.ROOT);
+        if (from.equals(to)) {
+            return false;
+        }
+        return mentions.getOrDefault(from, Collections.emptySet()).contains(to)
+                || sharesHashtag(from, to);
+    }
+
+    /**
+     * @param a username, case-insensitive
+     * @return the users a follows, in lower case
+     */
+    public Set<String> follows(String a) {
+        String user = a.toLowerCase(Locale.ROOT);
+        Set<String> result = new HashSet<>(mentions.getOrDefault(user, Collections.emptySet()));
+        addCoMembers(user, result);
+        return result;
+    }
+
+    /**
+     * @param b username, case-insensitive
+     * @return the users who follow b, in lower case
+     */
+    public Set<String> followers(String b) {
+        String user = b.toLowerCase(Locale.ROOT);
+        Set<String> result = new HashSet<>(mentionedBy.getOrDefault(user, Collections.emptySet()));
+        addCoMembers(user, result);
+        return result;
+    }
+
+    /**
+     * @param b username, case-insensitive
+     * @return number of users who follow b
+     */
+    public int followerCount(String b) {
+        String user = b.toLowerCase(Locale.ROOT);
+        if (users.find(user) < 0) {
+            return 0;
+        }
+        return followerCount(user, new int[users.size()], 1);
+    }
+
+    /**
+     * @return map from each user with at least one follower to the number of
+     *         users who follow them
+     */
+    public Map<String, Integer> followerCounts() {
+        int[] stamps = new int[users.size()];
+        int stamp = 0;
+        Map<String, Integer> counts = new HashMap<>();
+        for (String user : users()) {
+            int count = followerCount(user, stamps, ++stamp);
+            if (count > 0) {
+                counts.put(user, count);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Materialize the graph as SocialNetwork.guessFollowsGraph would return
+     * it. This takes space quadratic in the size of each hashtag.
+     *
+     * @return map from each user who follows someone to the set of users they follow
+     */
+    public Map<String, Set<String>> toFollowsGraph() {
+        Map<String, Set<String>> followsGraph = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : mentions.entrySet()) {
+            followsGraph.computeIfAbsent(entry.getKey(), k -> new HashSet<>()).addAll(entry.getValue());
+        }
+        for (Set<String> users : members.values()) {
+            for (String u1 : users) {
+                for (String u2 : users) {
+                    if (!u1.equals(u2)) {
+                        followsGraph.computeIfAbsent(u1, k -> new HashSet<>()).add(u2);
+                    }
+                }
+            }
+        }
+        return followsGraph;
+    }
+
+    /*
+     * Count followers of user: mentioners, plus users sharing one of user's
+     * hashtags, without counting anyone twice. stamps is indexed by user id,
+     * and stamp is a value no entry of it holds yet.
+     */
+    private int followerCount(String user, int[] stamps, int stamp) {
+        Set<String> tags = tagsOf.get(user);
+        int coMembers = 0;
+        if (tags != null) {
+            coMembers = unionSize(tags, stamps, stamp) - 1;
+        }
+        int mentioners = 0;
+        for (String mentioner : mentionedBy.getOrDefault(user, Collections.emptySet())) {
+            if (!sharesHashtag(mentioner, user)) {
+                mentioners++;
+            }
+        }
+        return coMembers + mentioners;
+    }
+
+    /*
+     * @return number of users in at least one of the hashtags, marking each
+     *         of them with stamp
+     */
+    private int unionSize(Set<String> tags, int[] stamps, int stamp) {
+        if (tags.size() == 1) {
+            return members.get(tags.iterator().next()).size();
+        }
+        int size = 0;
+        for (String tag : tags) {
+            for (int id : memberIds.get(tag)) {
+                if (stamps[id] != stamp) {
+                    stamps[id] = stamp;
+                    size++;
+                }
+            }
+        }
+        return size;
+    }
+
+    private boolean sharesHashtag(String a, String b) {
+        Set<String> tagsA = tagsOf.get(a);
+        Set<String> tagsB = tagsOf.get(b);
+        if (tagsA == null || tagsB == null) {
+            return false;
+        }
+        Set<String> smaller = tagsA.size() <= tagsB.size() ? tagsA : tagsB;
+        Set<String> larger = smaller == tagsA ? tagsB : tagsA;
+        for (String tag : smaller) {
+            if (larger.contains(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addCoMembers(String user, Set<String> result) {
+        for (String tag : tagsOf.getOrDefault(user, Collections.emptySet())) {
+            result.addAll(members.get(tag));
+        }
+        result.remove(user);
+    }
+
+    /*
+     * Collects mention edges and hashtag membership, one tweet at a time.
+     */
+    private static class Evidence implements TweetLexer.Handler {
+        private final SymbolTable users = new SymbolTable();
+        private final SymbolTable hashtags = new SymbolTable();
+        private final Map<String, Set<String>> mentions = new HashMap<>();
+        private final Map<String, Set<String>> members = new HashMap<>();
+        private final Map<String, Set<String>> tagsOf = new HashMap<>();
+        private String author;
+
+        @Override public void mention(CharSequence text, int start, int end) {
+            String mentioned = users.symbol(text, start, end);
+            if (!mentioned.equals(author)) {
+                mentions.computeIfAbsent(author, k -> new HashSet<>()).add(mentioned);
+            }
+        }
+
+        @Override public void hashtag(CharSequence text, int start, int end) {
+            String hashtag = hashtags.symbol(text, start, end);
+            members.computeIfAbsent(hashtag, k -> new HashSet<>()).add(author);
+            tagsOf.computeIfAbsent(author, k -> new HashSet<>()).add(hashtag);
+        }
+    }
+}
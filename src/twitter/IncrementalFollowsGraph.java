@@ -0,0 +1,252 @@
+package twitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mutable follows graph, kept up to date as tweets arrive.
+ *
+ * After addTweets(batch1), addTweets(batch2), ..., the graph is the one
+ * SocialNetwork.guessFollowsGraph would build from all the tweets added so
+ * far, but each batch only costs the evidence it adds.
+ *
+ * Like FollowsHypergraph, the graph keeps each hashtag as the list of its
+ * users rather than as the pairs of users it connects, so it takes space
+ * linear in the mentions and hashtag uses, and hashtag edges are derived
+ * when queried. A new mention costs O(1). A user's first use of a hashtag
+ * must still visit every user of that hashtag, since each of them may gain
+ * the new user as a follower and vice versa: it costs O(users of that
+ * hashtag) membership lookups, times the number of hashtags of the pair
+ * when they share another one. Follower counts are updated with the new
+ * edges, and the influencer ranking is updated once per batch for just the
+ * users who gained followers.
+ *
+ * Not safe for concurrent modification.
+ */
+public class IncrementalFollowsGraph {
+
+    private final SymbolTable users = new SymbolTable();
+    private final SymbolTable hashtags = new SymbolTable();
+    private final LongHashSet mentions = new LongHashSet();
+    private final LongHashSet memberships = new LongHashSet();
+    private final List<IntList> members = new ArrayList<>();
+    private final List<IntList> tagsOf = new ArrayList<>();
+    private int edgeCount;
+    private final CountRanking ranking = new CountRanking(users::name);
+    private final Evidence evidence = new Evidence();
+
+    private int[] gained = new int[16];
+    private final IntList touched = new IntList();
+
+    /*
+     * Abstraction function:
+     *    represents the follows graph on users.name(0..users.size()-1) with an
+     *    edge a -> b iff a != b and (pair(a, b) in mentions, or pair(t, a) and
+     *    pair(t, b) are both in memberships for some hashtag t)
+     * Rep invariant:
+     *    pair(a, b) in mentions iff a != b and a mentioned b
+     *    members.get(t) lists each u with pair(t, u) in memberships exactly once
+     *    tagsOf.get(u), where u < tagsOf.size(), lists each t with
+     *      pair(t, u) in memberships exactly once; users with no hashtag may
+     *      be beyond tagsOf.size()
+     *    edgeCount == number of edges
+     *    ranking.count(b) == number of a with an edge a -> b
+     *    between calls to addTweets, gained is all zeros and touched is empty
+     * Safety from rep exposure:
+     *    all fields are private; observers return new collections of Strings
+     */
+
+    /**
+     * Make an empty graph.
+     */
+    public IncrementalFollowsGraph() {
+    }
+
+    /**
+     * Add the evidence in a batch of tweets.
+     *
+     * @param tweets tweets to add, not modified by this method
+     */
+    public void addTweets(Collection<? extends Tweet> tweets) {
+        for (Tweet t : tweets) {
+            evidence.author = users.intern(t.getAuthor());
+            TweetLexer.scan(t.getText(), evidence);
+        }
+        for (int i = 0; i < touched.size(); i++) {
+            int user = touched.get(i);
+            ranking.adjust(user, gained[user]);
+            gained[user] = 0;
+        }
+        touched.clear();
+    }
+
+    /**
+     * @return number of users seen, as authors or in mentions
+     */
+    public int userCount() {
+        return users.size();
+    }
+
+    /**
+     * @return number of follows edges
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @param a username, case-insensitive
+     * @param b username, case-insensitive
+     * @return true iff a follows b
+     */
+    public boolean isFollowing(String a, String b) {
+        int from = users.find(a);
+        int to = users.find(b);
+        return from >= 0 && to >= 0 && from != to
+                && (mentions.contains(pair(from, to)) || sharesHashtag(from, to));
+    }
+
+    /**
+     * @param username username, case-insensitive
+     * @return number of users who follow username
+     */
+    public int followerCount(String username) {
+        int user = users.find(username);
+        return user < 0 ? 0 : ranking.count(user);
+    }
+
+    /**
+     * @param k maximum number of influencers to return, >= 0
+     * @return the min(k, m) most influential of the m users with at least one
+     *         follower, in descending order of follower count, ties in
+     *         ascending order of username (lower case)
+     */
+    public List<String> influencers(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be nonnegative: " + k);
+        }
+        List<String> influencers = new ArrayList<>();
+        for (int user : ranking.top(k)) {
+            influencers.add(users.name(user));
+        }
+        return influencers;
+    }
+
+    /**
+     * Materialize the graph as SocialNetwork.guessFollowsGraph would return
+     * it for all the tweets added so far. This takes space quadratic in the
+     * size of each hashtag.
+     *
+     * @return map from each user who follows someone to the set of users they follow
+     */
+    public Map<String, Set<String>> toMap() {
+        Map<String, Set<String>> followsGraph = new HashMap<>();
+        mentions.forEach(edge -> followsGraph.computeIfAbsent(users.name(first(edge)), k -> new HashSet<>())
+                                             .add(users.name(second(edge))));
+        for (IntList tagUsers : members) {
+            for (int i = 0; i < tagUsers.size(); i++) {
+                for (int j = 0; j < tagUsers.size(); j++) {
+                    if (i != j) {
+                        followsGraph.computeIfAbsent(users.name(tagUsers.get(i)), k -> new HashSet<>())
+                                    .add(users.name(tagUsers.get(j)));
+                    }
+                }
+            }
+        }
+        return followsGraph;
+    }
+
+    /*
+     * True iff users a and b have used a common hashtag.
+     */
+    private boolean sharesHashtag(int a, int b) {
+        if (a >= tagsOf.size() || b >= tagsOf.size()) {
+            return false;
+        }
+        IntList tagsA = tagsOf.get(a);
+        IntList tagsB = tagsOf.get(b);
+        IntList smaller = tagsA.size() <= tagsB.size() ? tagsA : tagsB;
+        int other = smaller == tagsA ? b : a;
+        for (int i = 0; i < smaller.size(); i++) {
+            if (memberships.contains(pair(smaller.get(i), other))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Record a new edge from -> to, which must not already be in the graph.
+     */
+    private void addEdge(int from, int to) {
+        edgeCount++;
+        if (to >= gained.length) {
+            gained = Arrays.copyOf(gained, Math.max(to + 1, 2 * gained.length));
+        }
+        if (gained[to]++ == 0) {
+            touched.add(to);
+        }
+    }
+
+    private static long pair(int first, int second) {
+        return (long) first << 32 | second;
+    }
+
+    private static int first(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    private static int second(long pair) {
+        return (int) pair;
+    }
+
+    /*
+     * Adds the edges of each mention and hashtag as the lexer finds them.
+     */
+    private class Evidence implements TweetLexer.Handler {
+        private int author;
+
+        @Override public void mention(CharSequence text, int start, int end) {
+            int mentioned = users.intern(text, start, end);
+            if (mentioned != author && mentions.add(pair(author, mentioned))
+                    && !sharesHashtag(author, mentioned)) {
+                addEdge(author, mentioned);
+            }
+        }
+
+        @Override public void hashtag(CharSequence text, int start, int end) {
+            int tag = hashtags.intern(text, start, end);
+            if (memberships.contains(pair(tag, author))) {
+                return;
+            }
+            if (tag == members.size()) {
+                members.add(new IntList());
+            }
+            IntList tagUsers = members.get(tag);
+            for (int i = 0; i < tagUsers.size(); i++) {
+                int user = tagUsers.get(i);
+                // an earlier common hashtag already made both edges
+                if (!sharesHashtag(author, user)) {
+                    if (!mentions.contains(pair(author, user))) {
+                        addEdge(author, user);
+                    }
+                    if (!mentions.contains(pair(user, author))) {
+                        addEdge(user, author);
+                    }
+                }
+            }
+            tagUsers.add(author);
+            memberships.add(pair(tag, author));
+            while (tagsOf.size() <= author) {
+                tagsOf.add(new IntList());
+            }
+            tagsOf.get(author).add(tag);
+        }
+    }
+}
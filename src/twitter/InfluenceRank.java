@@ -0,0 +1,351 @@
+package twitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * PageRank and personalized PageRank over a CompactFollowsGraph.
+ *
+ * If a follows b, a passes influence to b: each iteration, every user keeps
+ * (1 - damping) of the teleport distribution and receives damping times the
+ * rank of each follower divided by the number of users that follower
+ * follows. Users who follow nobody spread their rank by the teleport
+ * distribution. Iteration stops when the L1 change in the rank vector is
+ * at most the tolerance, or after the maximum number of iterations.
+ *
+ * Each iteration pulls ranks along the graph's reverse CSR, so chunks of
+ * vertices are updated in parallel without synchronization. The chunks are
+ * fork-join tasks balanced by edge count, allocated once per engine and
+ * reinitialized each iteration, and the rank vectors are double[]s reused
+ * across iterations, so iterating allocates nothing.
+ *
+ * An engine is not safe for concurrent use; make one per thread.
+ */
+public class InfluenceRank {
+
+    /** Default probability of following an edge rather than teleporting. */
+    public static final double DEFAULT_DAMPING = 0.85;
+
+    /** Default bound on the L1 change of the rank vector at convergence. */
+    public static final double DEFAULT_TOLERANCE = 1e-9;
+
+    /** Default maximum number of iterations. */
+    public static final int DEFAULT_MAX_ITERATIONS = 100;
+
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int MIN_CHUNK_WORK = 1 << 14;
+
+    private final CompactFollowsGraph graph;
+    private final ForkJoinPool pool;
+    private final double damping;
+    private final double tolerance;
+    private final int maxIterations;
+
+    private final int[] offsets;
+    private final int[] reverseOffsets;
+    private final int[] sources;
+    private final Chunk[] chunks;
+
+    private double[] rank;
+    private double[] next;
+    private final double[] contribution;
+    private double[] teleport;
+    private double danglingRank;
+    private int iterations;
+    private double change;
+
+    /*
+     * Abstraction function:
+     *    represents a PageRank engine for graph with the given parameters,
+     *    whose last run took iterations iterations and ended with L1 change
+     *    change
+     * Rep invariant:
+     *    0 <= damping < 1, tolerance >= 0, maxIterations >= 1
+     *    rank, next and contribution have length graph.vertexCount()
+     *    chunks partition 0..graph.vertexCount()-1 into consecutive ranges
+     *    teleport is null (uniform) or of length graph.vertexCount(), summing to 1
+     * Safety from rep exposure:
+     *    all fields are private; graph is immutable and its arrays are only
+     *    read; rank vectors are copied into the results
+     */
+
+    /**
+     * Make an engine with the default parameters, running on the common pool.
+     *
+     * @param graph follows graph to rank
+     */
+    public InfluenceRank(CompactFollowsGraph graph) {
+        this(graph, ForkJoinPool.commonPool(), DEFAULT_DAMPING, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+    }
+
+    /**
+     * Make an engine.
+     *
+     * @param graph follows graph to rank
+     * @param pool pool to run iterations on
+     * @param damping probability of following an edge, 0 <= damping < 1
+     * @param tolerance L1 change in the rank vector at which to stop, >= 0
+     * @param maxIterations maximum number of iterations per run, >= 1
+     * @throws IllegalArgumentException if a parameter is out of range
+     */
+    public InfluenceRank(CompactFollowsGraph graph, ForkJoinPool pool,
+                         double damping, double tolerance, int maxIterations) {
+        if (!(damping >= 0 && damping < 1) || !(tolerance >= 0) || maxIterations < 1) {
+            throw new IllegalArgumentException("damping " + damping + ", tolerance " + tolerance
+                                               + ", maxIterations " + maxIterations);
+        }
+        this.graph = graph;
+        this.pool = pool;
+        this.damping = damping;
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+        this.offsets = graph.offsets();
+        this.reverseOffsets = graph.reverseOffsets();
+        this.sources = graph.sources();
+
+        int n = graph.vertexCount();
+        this.rank = new double[n];
+        this.next = new double[n];
+        this.contribution = new double[n];
+        this.chunks = partition(n, pool.getParallelism() * CHUNKS_PER_THREAD);
+    }
+
+    /**
+     * Compute PageRank, starting from the uniform distribution.
+     *
+     * @return rank of each vertex id of the graph; the ranks sum to 1
+     */
+    public double[] rank() {
+        return personalizedRank(null, null);
+    }
+
+    /**
+     * Compute PageRank, starting from a previous ranking.
+     *
+     * @param start nonnegative starting weight of each vertex id, not all zero,
+     *              e.g. an earlier result, possibly carried over by carryOver()
+     * @return rank of each vertex id of the graph; the ranks sum to 1
+     * @throws IllegalArgumentException if start is not a valid weight vector
+     */
+    public double[] rank(double[] start) {
+        return personalizedRank(null, start);
+    }
+
+    /**
+     * Compute personalized PageRank, where teleporting lands on each vertex
+     * in proportion to its teleport weight.
+     *
+     * @param teleport nonnegative weight of each vertex id, not all zero,
+     *                 or null for uniform
+     * @param start nonnegative starting weight of each vertex id, not all zero,
+     *              or null for the teleport distribution
+     * @return rank of each vertex id of the graph; the ranks sum to 1
+     * @throws IllegalArgumentException if teleport or start is not a valid weight vector
+     */
+    public double[] personalizedRank(double[] teleport, double[] start) {
+        int n = graph.vertexCount();
+        this.teleport = teleport == null ? null : normalized(teleport, "teleport");
+        if (start != null) {
+            System.arraycopy(normalized(start, "start"), 0, rank, 0, n);
+        } else if (this.teleport != null) {
+            System.arraycopy(this.teleport, 0, rank, 0, n);
+        } else {
+            Arrays.fill(rank, 1.0 / n);
+        }
+        iterations = 0;
+        change = n == 0 ? 0 : Double.POSITIVE_INFINITY;
+        if (n > 0) {
+            pool.invoke(new Driver());
+        }
+        return Arrays.copyOf(rank, n);
+    }
+
+    /**
+     * @return number of iterations of the last run
+     */
+    public int iterations() {
+        return iterations;
+    }
+
+    /**
+     * @return true iff the last run stopped because it reached the tolerance
+     */
+    public boolean converged() {
+        return change <= tolerance;
+    }
+
+    /**
+     * @param ranks rank of each vertex id of the graph, as returned by a run
+     * @param k maximum number of users to return, >= 0
+     * @return the min(k, n) users of highest rank, highest first, ties in
+     *         ascending order of username
+     */
+    public List<String> top(double[] ranks, int k) {
+        int[] ids = TopK.select(ranks, graph.vertexCount(), graph::name, k);
+        List<String> users = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            users.add(graph.name(id));
+        }
+        return users;
+    }
+
+    /**
+     * Carry a ranking over to another graph, such as a newer graph of the
+     * same users, to use as a warm start. Users present in both graphs keep
+     * their rank; new users get the average rank of the old ones.
+     *
+     * @param from graph that ranks was computed for
+     * @param ranks rank of each vertex id of from
+     * @param to graph to carry the ranks over to
+     * @return starting weight of each vertex id of to
+     */
+    public static double[] carryOver(CompactFollowsGraph from, double[] ranks, CompactFollowsGraph to) {
+        double[] start = new double[to.vertexCount()];
+        double average = from.vertexCount() == 0 ? 1 : 1.0 / from.vertexCount();
+        for (int v = 0; v < start.length; v++) {
+            int old = from.id(to.name(v));
+            start[v] = old >= 0 ? ranks[old] : average;
+        }
+        return start;
+    }
+
+    private double[] normalized(double[] weights, String what) {
+        int n = graph.vertexCount();
+        if (weights.length != n) {
+            throw new IllegalArgumentException(what + " has length " + weights.length + ", not " + n);
+        }
+        double sum = 0;
+        for (double w : weights) {
+            if (!(w >= 0) || w == Double.POSITIVE_INFINITY) {
+                throw new IllegalArgumentException(what + " has weight " + w);
+            }
+            sum += w;
+        }
+        if (!(sum > 0) && n > 0) {
+            throw new IllegalArgumentException(what + " weights are all zero");
+        }
+        double[] result = new double[n];
+        for (int v = 0; v < n; v++) {
+            result[v] = weights[v] / sum;
+        }
+        return result;
+    }
+
+    /*
+     * Split 0..n into up to maxChunks consecutive ranges of about equal
+     * work, counting each vertex and each of its in-edges.
+     */
+    private Chunk[] partition(int n, int maxChunks) {
+        long work = (long) n + sources.length;
+        int count = (int) Math.max(1, Math.min(maxChunks, work / MIN_CHUNK_WORK));
+        List<Chunk> result = new ArrayList<>(count);
+        int from = 0;
+        for (int c = 1; c <= count && from < n; c++) {
+            long target = work * c / count;
+            int to = from + 1;
+            while (to < n && (long) to + reverseOffsets[to] < target) {
+                to++;
+            }
+            if (c == count) {
+                to = n;
+            }
+            result.add(new Chunk(from, to));
+            from = to;
+        }
+        if (result.isEmpty()) {
+            result.add(new Chunk(0, n));
+        }
+        return result.toArray(new Chunk[0]);
+    }
+
+    /*
+     * Runs iterations until convergence, forking the chunks for each phase.
+     */
+    private final class Driver extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        @Override protected void compute() {
+            while (iterations < maxIterations && !converged()) {
+                runPhase(false);
+                danglingRank = 0;
+                for (Chunk chunk : chunks) {
+                    danglingRank += chunk.sum;
+                }
+                runPhase(true);
+                change = 0;
+                for (Chunk chunk : chunks) {
+                    change += chunk.sum;
+                }
+                double[] swap = rank;
+                rank = next;
+                next = swap;
+                iterations++;
+            }
+        }
+
+        private void runPhase(boolean update) {
+            for (Chunk chunk : chunks) {
+                chunk.reinitialize();
+                chunk.update = update;
+            }
+            ForkJoinTask.invokeAll(chunks);
+        }
+    }
+
+    /*
+     * One range of vertices. The contribution phase computes each vertex's
+     * share per followed user and sums the rank of vertices that follow no
+     * one; the update phase computes the next ranks and sums their change.
+     */
+    private final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private boolean update;
+        private double sum;
+
+        private Chunk(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override protected void compute() {
+            sum = update ? update() : contribute();
+        }
+
+        private double contribute() {
+            double dangling = 0;
+            for (int v = from; v < to; v++) {
+                int outDegree = offsets[v + 1] - offsets[v];
+                if (outDegree == 0) {
+                    contribution[v] = 0;
+                    dangling += rank[v];
+                } else {
+                    contribution[v] = rank[v] / outDegree;
+                }
+            }
+            return dangling;
+        }
+
+        private double update() {
+            double uniform = 1.0 / rank.length;
+            double base = 1 - damping + damping * danglingRank;
+            double delta = 0;
+            for (int v = from; v < to; v++) {
+                double pulled = 0;
+                for (int i = reverseOffsets[v]; i < reverseOffsets[v + 1]; i++) {
+                    pulled += contribution[sources[i]];
+                }
+                double r = base * (teleport == null ? uniform : teleport[v]) + damping * pulled;
+                delta += Math.abs(r - rank[v]);
+                next[v] = r;
+            }
+            return delta;
+        }
+    }
+}
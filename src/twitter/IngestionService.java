@@ -0,0 +1,306 @@
+package twitter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Long-running ingestion of tweets from a server such as Main.SAMPLE_SERVER.
+ *
+ * The server is polled on a fixed delay, and each response goes through
+ * three stages, each on its own thread and connected by bounded queues:
+ *  - fetch: download the response body
+ *  - parse: decode it with StreamingTweetReader, dropping tweets whose id
+ *    was already seen in an earlier (overlapping) sample
+ *  - publish: pass each batch of new tweets to every subscriber, in order
+ * When subscribers fall behind, the queues fill up and the fetch stage
+ * blocks, so polling slows down to the pace of the slowest stage instead of
+ * buffering without bound. Failed fetches and malformed responses are
+ * counted and skipped.
+ *
+ * Threads come from a ThreadFactory, by default daemon platform threads;
+ * on a JVM with virtual threads, pass a virtual-thread factory instead.
+ * Seen ids are kept in a primitive long set for the life of the service.
+ */
+public class IngestionService implements AutoCloseable {
+
+    /** Default capacity of each queue between stages. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 4;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int READ_TIMEOUT_MILLIS = 60_000;
+
+    private final URL source;
+    private final Duration period;
+    private final ThreadFactory threadFactory;
+    private final BlockingQueue<byte[]> responses;
+    private final BlockingQueue<List<Tweet>> batches;
+    private final List<Consumer<? super List<Tweet>>> subscribers = new CopyOnWriteArrayList<>();
+    private final LongHashSet seenIds = new LongHashSet();
+
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong tweets = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile Exception lastError;
+
+    private ScheduledExecutorService fetcher;
+    private Thread parser;
+    private Thread publisher;
+    private boolean closed;
+
+    /*
+     * Abstraction function:
+     *    represents an ingestion service polling source every period, which
+     *    has seen the tweet ids in seenIds and published published batches
+     * Rep invariant:
+     *    fetcher, parser and publisher are all null before start() and all
+     *      non-null after it
+     *    seenIds is only accessed by the parser thread
+     * Safety from rep exposure:
+     *    all fields are private; batches are published as unmodifiable lists
+     *    of immutable Tweets
+     * Thread safety argument:
+     *    each queue is a thread-safe BlockingQueue handing data from one
+     *    stage to the next; subscribers is a CopyOnWriteArrayList; counters
+     *    are atomic and lastError is volatile; start() and close() are
+     *    synchronized
+     */
+
+    /**
+     * Make a service that polls source every period, with default queue
+     * capacity and daemon platform threads.
+     *
+     * @param source URL of a server returning a JSON array of tweets
+     * @param period delay between the end of one fetch and the start of the next
+     */
+    public IngestionService(URL source, Duration period) {
+        this(source, period, DEFAULT_QUEUE_CAPACITY, IngestionService::daemonThread);
+    }
+
+    /**
+     * Make a service.
+     *
+     * @param source URL of a server returning a JSON array of tweets
+     * @param period delay between the end of one fetch and the start of the
+     *               next, positive
+     * @param queueCapacity capacity of each queue between stages, positive
+     * @param threadFactory creates the fetch, parse and publish threads
+     * @throws IllegalArgumentException if period or queueCapacity is out of range
+     */
+    public IngestionService(URL source, Duration period, int queueCapacity, ThreadFactory threadFactory) {
+        if (period.isNegative() || period.isZero() || queueCapacity < 1) {
+            throw new IllegalArgumentException("period " + period + ", queue capacity " + queueCapacity);
+        }
+        this.source = source;
+        this.period = period;
+        this.threadFactory = threadFactory;
+        this.responses = new ArrayBlockingQueue<>(queueCapacity);
+        this.batches = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Register a consumer of new tweets. Each batch holds the tweets of one
+     * response that had not been seen before, in the order the server sent
+     * them; responses with no new tweets are not published. Subscribers are
+     * called one at a time on the publish thread, in order of subscription.
+     *
+     * @param subscriber consumer of batches
+     */
+    public void subscribe(Consumer<? super List<Tweet>> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Start polling. The first fetch starts immediately.
+     *
+     * @throws IllegalStateException if the service was already started or closed
+     */
+    public synchronized void start() {
+        if (fetcher != null || closed) {
+            throw new IllegalStateException("service already started");
+        }
+        fetcher = Executors.newSingleThreadScheduledExecutor(named("fetch"));
+        parser = named("parse").newThread(this::parseLoop);
+        publisher = named("publish").newThread(this::publishLoop);
+        parser.start();
+        publisher.start();
+        fetcher.scheduleWithFixedDelay(this::fetch, 0, period.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stop polling and stop all stages, discarding responses and batches
+     * that have not been published yet. Waits for the stage threads to end.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (fetcher == null) {
+            return;
+        }
+        fetcher.shutdownNow();
+        parser.interrupt();
+        publisher.interrupt();
+        try {
+            fetcher.awaitTermination(READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            parser.join();
+            publisher.join();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return number of completed fetches, successful or not
+     */
+    public long fetchCount() {
+        return fetches.get();
+    }
+
+    /**
+     * @return number of distinct tweets decoded so far
+     */
+    public long tweetCount() {
+        return tweets.get();
+    }
+
+    /**
+     * @return number of tweets dropped because their id had been seen before
+     */
+    public long duplicateCount() {
+        return duplicates.get();
+    }
+
+    /**
+     * @return number of batches passed to the subscribers
+     */
+    public long publishedCount() {
+        return published.get();
+    }
+
+    /**
+     * @return number of failed fetches, malformed responses and subscriber exceptions
+     */
+    public long errorCount() {
+        return errors.get();
+    }
+
+    /**
+     * @return the most recent error counted by errorCount(), or null if none
+     */
+    public Exception lastError() {
+        return lastError;
+    }
+
+    private void fetch() {
+        try {
+            InputStream response;
+            Metrics.Span span = Metrics.start(Metrics.Stage.FETCH);
+            try {
+                URLConnection connection = source.openConnection();
+                connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+                connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+                response = connection.getInputStream();
+            } finally {
+                // failed attempts are timed too
+                span.end(0);
+            }
+            byte[] body;
+            try (InputStream in = Metrics.countBytes(response)) {
+                body = in.readAllBytes();
+            }
+            responses.put(body);
+        } catch (IOException | RuntimeException e) {
+            // an exception escaping this task would cancel all later fetches
+            error(e);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } finally {
+            fetches.incrementAndGet();
+        }
+    }
+
+    private void parseLoop() {
+        try {
+            while (true) {
+                byte[] body = responses.take();
+                List<Tweet> batch = new ArrayList<>();
+                try (Reader reader = new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8)) {
+                    StreamingTweetReader.read(reader, tweet -> {
+                        if (seenIds.add(tweet.getId())) {
+                            batch.add(tweet);
+                        } else {
+                            duplicates.incrementAndGet();
+                        }
+                    });
+                } catch (IOException | RuntimeException e) {
+                    // malformed JSON (JsonException) or a malformed tweet, such as a
+                    // bad created_at, ends the response; tweets decoded before it are kept
+                    error(e);
+                }
+                tweets.addAndGet(batch.size());
+                if (!batch.isEmpty()) {
+                    batches.put(Collections.unmodifiableList(batch));
+                }
+            }
+        } catch (InterruptedException ie) {
+            // closed
+        }
+    }
+
+    private void publishLoop() {
+        try {
+            while (true) {
+                List<Tweet> batch = batches.take();
+                for (Consumer<? super List<Tweet>> subscriber : subscribers) {
+                    try {
+                        subscriber.accept(batch);
+                    } catch (RuntimeException re) {
+                        error(re);
+                    }
+                }
+                published.incrementAndGet();
+            }
+        } catch (InterruptedException ie) {
+            // closed
+        }
+    }
+
+    private void error(Exception e) {
+        lastError = e;
+        errors.incrementAndGet();
+    }
+
+    private ThreadFactory named(String stage) {
+        return runnable -> {
+            Thread thread = threadFactory.newThread(runnable);
+            thread.setName("ingest-" + stage);
+            return thread;
+        };
+    }
+
+    private static Thread daemonThread(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
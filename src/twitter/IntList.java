@@ -0,0 +1,76 @@
+package twitter;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of ints, used for tweet positions without boxing.
+ */
+class IntList {
+
+    private int[] values;
+    private int size;
+
+    /*
+     * Abstraction function:
+     *    represents the sequence values[0..size)
+     * Rep invariant:
+     *    0 <= size <= values.length
+     */
+
+    IntList() {
+        this(8);
+    }
+
+    IntList(int capacity) {
+        values = new int[Math.max(1, capacity)];
+    }
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size + (size >> 1) + 1);
+        }
+        values[size++] = value;
+    }
+
+    int get(int i) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("index " + i + " of " + size);
+        }
+        return values[i];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Remove one occurrence of value, moving the last element into its place.
+     *
+     * @return true iff value was in the list
+     */
+    boolean removeValue(int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                values[i] = values[--size];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int last() {
+        return get(size - 1);
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,274 @@
+package twitter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * A compiled, case-insensitive matcher for a set of words, based on an
+ * Aho-Corasick automaton.
+ *
+ * A text contains a word iff text.toLowerCase() contains word.toLowerCase(),
+ * the same substring semantics as Filter.containing (with locale-independent
+ * lower-casing). All words are looked for at once, in a single pass over the
+ * text that folds one character at a time instead of making a lower-cased
+ * copy. Only texts with a character whose lower case depends on its context
+ * (CaseFolding.foldsInContext) are lower-cased as a whole first.
+ *
+ * Instances are immutable and may be shared between threads.
+ */
+public class KeywordMatcher {
+
+    private final List<String> words;
+    private final char[] alphabet;
+    private final char[] asciiClassOf;
+    private final int classes;
+    private final int[] delta;
+    private final int[][] wordsEndingAt;
+    private final int[] outputLink;
+    private final boolean matchesEmpty;
+
+    /*
+     * Abstraction function:
+     *    represents the matcher for words, where state s of the automaton
+     *    stands for the longest suffix of the folded text read so far that is
+     *    a prefix of some folded word
+     * Rep invariant:
+     *    alphabet is the sorted, distinct chars of the folded words; the
+     *      class of alphabet[i] is i + 1, and of any other char 0
+     *    classes == alphabet.length + 1
+     *    asciiClassOf.length == 128 and asciiClassOf[c] is the class of c
+     *    delta.length == number of states * classes; delta[s * classes + k] is
+     *      the state after reading a char of class k in state s; state 0 is the root
+     *    wordsEndingAt[s] lists the indexes of the words whose fold is exactly
+     *      the prefix of state s (null if none)
+     *    outputLink[s] is the nearest proper suffix state of s with
+     *      wordsEndingAt != null, or -1
+     *    matchesEmpty iff words contains ""
+     * Safety from rep exposure:
+     *    all fields are private and final; words is unmodifiable, and arrays
+     *    are never returned
+     */
+
+    private KeywordMatcher(List<String> words, char[] alphabet, char[] asciiClassOf, int[] delta,
+                           int[][] wordsEndingAt, int[] outputLink, boolean matchesEmpty) {
+        this.words = words;
+        this.alphabet = alphabet;
+        this.asciiClassOf = asciiClassOf;
+        this.classes = alphabet.length + 1;
+        this.delta = delta;
+        this.wordsEndingAt = wordsEndingAt;
+        this.outputLink = outputLink;
+        this.matchesEmpty = matchesEmpty;
+    }
+
+    /**
+     * Compile a matcher.
+     *
+     * @param words words to search for, case-insensitive
+     * @return a matcher for those words
+     */
+    public static KeywordMatcher compile(List<String> words) {
+        List<String> copy = Collections.unmodifiableList(new ArrayList<>(words));
+
+        // alphabet: one class per distinct char of the folded words, found by
+        // binary search, with a table for ASCII; sized to the words, not to all chars
+        String[] folded = new String[copy.size()];
+        StringBuilder chars = new StringBuilder();
+        for (int w = 0; w < folded.length; w++) {
+            folded[w] = copy.get(w).toLowerCase(Locale.ROOT);
+            chars.append(folded[w]);
+        }
+        char[] sorted = chars.toString().toCharArray();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        char[] alphabet = Arrays.copyOf(sorted, distinct);
+        char[] asciiClassOf = new char[0x80];
+        for (int i = 0; i < alphabet.length && alphabet[i] < 0x80; i++) {
+            asciiClassOf[alphabet[i]] = (char) (i + 1);
+        }
+        int classes = alphabet.length + 1;
+
+        // trie
+        List<Map<Integer, Integer>> children = new ArrayList<>();
+        List<List<Integer>> ending = new ArrayList<>();
+        children.add(new HashMap<>());
+        ending.add(null);
+        boolean matchesEmpty = false;
+        for (int w = 0; w < folded.length; w++) {
+            int state = 0;
+            for (int i = 0; i < folded[w].length(); i++) {
+                int k = Arrays.binarySearch(alphabet, folded[w].charAt(i)) + 1;
+                Integer next = children.get(state).get(k);
+                if (next == null) {
+                    next = children.size();
+                    children.get(state).put(k, next);
+                    children.add(new HashMap<>());
+                    ending.add(null);
+                }
+                state = next;
+            }
+            if (state == 0) {
+                matchesEmpty = true;
+            }
+            if (ending.get(state) == null) {
+                ending.set(state, new ArrayList<>());
+            }
+            ending.get(state).add(w);
+        }
+
+        // failure links by breadth-first search, folded into a complete transition table
+        int states = children.size();
+        int[] delta = new int[states * classes];
+        int[] fail = new int[states];
+        int[] outputLink = new int[states];
+        Arrays.fill(outputLink, -1);
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int k = 1; k < classes; k++) {
+            Integer child = children.get(0).get(k);
+            if (child != null) {
+                delta[k] = child;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            for (int k = 1; k < classes; k++) {
+                Integer child = children.get(state).get(k);
+                if (child == null) {
+                    delta[state * classes + k] = delta[fail[state] * classes + k];
+                } else {
+                    delta[state * classes + k] = child;
+                    fail[child] = delta[fail[state] * classes + k];
+                    outputLink[child] = ending.get(fail[child]) != null ? fail[child] : outputLink[fail[child]];
+                    queue.add(child);
+                }
+            }
+        }
+
+        int[][] wordsEndingAt = new int[states][];
+        for (int s = 0; s < states; s++) {
+            List<Integer> ends = ending.get(s);
+            if (ends != null) {
+                wordsEndingAt[s] = ends.stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+        return new KeywordMatcher(copy, alphabet, asciiClassOf, delta, wordsEndingAt, outputLink, matchesEmpty);
+    }
+
+    /**
+     * @return unmodifiable list of the words this matcher was compiled from
+     */
+    public List<String> words() {
+        return words;
+    }
+
+    /**
+     * @param text text to search
+     * @return true iff text contains at least one of the words, ignoring case
+     */
+    public boolean matchesAny(CharSequence text) {
+        if (matchesEmpty) {
+            return true;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (CaseFolding.foldsInContext(c)) {
+                // no match so far, so starting over on the whole folded text is safe
+                return matchesAnyFolded(text.toString().toLowerCase(Locale.ROOT));
+            }
+            if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int lower = Character.toLowerCase(Character.toCodePoint(c, text.charAt(++i)));
+                if (Character.isSupplementaryCodePoint(lower)) {
+                    state = step(state, Character.highSurrogate(lower));
+                    if (isMatch(state)) {
+                        return true;
+                    }
+                    c = Character.lowSurrogate(lower);
+                } else {
+                    c = (char) lower;
+                }
+            } else {
+                c = Character.toLowerCase(c);
+            }
+            state = step(state, c);
+            if (isMatch(state)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param text text to search
+     * @return the words (as given to compile) that text contains, ignoring
+     *         case, in the order they were given
+     */
+    public Set<String> matchingWords(CharSequence text) {
+        boolean[] found = new boolean[words.size()];
+        String folded = text.toString().toLowerCase(Locale.ROOT);
+        int state = 0;
+        collect(state, found);
+        for (int i = 0; i < folded.length(); i++) {
+            state = step(state, folded.charAt(i));
+            collect(state, found);
+        }
+        Set<String> result = new LinkedHashSet<>();
+        for (int w = 0; w < found.length; w++) {
+            if (found[w]) {
+                result.add(words.get(w));
+            }
+        }
+        return result;
+    }
+
+    private boolean matchesAnyFolded(String folded) {
+        int state = 0;
+        for (int i = 0; i < folded.length(); i++) {
+            state = step(state, folded.charAt(i));
+            if (isMatch(state)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void collect(int state, boolean[] found) {
+        for (int s = wordsEndingAt[state] != null ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+            for (int w : wordsEndingAt[s]) {
+                found[w] = true;
+            }
+        }
+    }
+
+    private int step(int state, char foldedChar) {
+        return delta[state * classes + classOf(foldedChar)];
+    }
+
+    private int classOf(char c) {
+        if (c < 0x80) {
+            return asciiClassOf[c];
+        }
+        int i = Arrays.binarySearch(alphabet, c);
+        return i < 0 ? 0 : i + 1;
+    }
+
+    private boolean isMatch(int state) {
+        return wordsEndingAt[state] != null || outputLink[state] >= 0;
+    }
+}
@@ -0,0 +1,116 @@
+package twitter;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Open-addressing hash set of longs, used for packed pairs of ids without
+ * boxing.
+ */
+class LongHashSet {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int size;
+    private boolean containsEmpty;
+
+    /*
+     * Abstraction function:
+     *    represents the set of keys[i] != EMPTY, plus EMPTY iff containsEmpty
+     * Rep invariant:
+     *    keys.length is a power of two > 2 * size, keys distinct apart from EMPTY,
+     *      each reachable from its home slot by linear probing without
+     *      crossing an EMPTY slot
+     *    size counts all elements, including EMPTY if containsEmpty
+     */
+
+    LongHashSet() {
+        this(16);
+    }
+
+    LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(8, expectedSize) * 2 - 1) << 1;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * @return true iff key was not already in the set
+     */
+    boolean add(long key) {
+        if (key == EMPTY) {
+            if (containsEmpty) {
+                return false;
+            }
+            containsEmpty = true;
+            size++;
+            return true;
+        }
+        int mask = keys.length - 1;
+        for (int k = home(key, mask); ; k = (k + 1) & mask) {
+            if (keys[k] == key) {
+                return false;
+            }
+            if (keys[k] == EMPTY) {
+                keys[k] = key;
+                size++;
+                if (size * 2 >= keys.length) {
+                    rehash();
+                }
+                return true;
+            }
+        }
+    }
+
+    boolean contains(long key) {
+        if (key == EMPTY) {
+            return containsEmpty;
+        }
+        int mask = keys.length - 1;
+        for (int k = home(key, mask); ; k = (k + 1) & mask) {
+            if (keys[k] == key) {
+                return true;
+            }
+            if (keys[k] == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(LongConsumer action) {
+        if (containsEmpty) {
+            action.accept(EMPTY);
+        }
+        for (long key : keys) {
+            if (key != EMPTY) {
+                action.accept(key);
+            }
+        }
+    }
+
+    private void rehash() {
+        long[] old = keys;
+        keys = new long[old.length * 2];
+        Arrays.fill(keys, EMPTY);
+        int mask = keys.length - 1;
+        for (long key : old) {
+            if (key != EMPTY) {
+                int k = home(key, mask);
+                while (keys[k] != EMPTY) {
+                    k = (k + 1) & mask;
+                }
+                keys[k] = key;
+            }
+        }
+    }
+
+    private static int home(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
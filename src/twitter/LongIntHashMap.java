@@ -0,0 +1,139 @@
+package twitter;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from long keys to nonzero int counts, used for
+ * counts of packed pairs of ids without boxing. A count that drops to zero
+ * is removed.
+ */
+class LongIntHashMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys = new long[16];
+    private int[] values = new int[16];
+    private int size;
+    private int emptyKeyValue;
+
+    /*
+     * Abstraction function:
+     *    represents the map from keys[i] to values[i] for keys[i] != EMPTY,
+     *    plus EMPTY to emptyKeyValue if emptyKeyValue != 0
+     * Rep invariant:
+     *    keys.length == values.length, a power of two > 2 * size
+     *    keys distinct apart from EMPTY, each reachable from its home slot by
+     *      linear probing without crossing an EMPTY slot; values[i] != 0 for
+     *      each keys[i] != EMPTY
+     *    size counts all entries, including EMPTY if emptyKeyValue != 0
+     */
+
+    LongIntHashMap() {
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * @return the count of key, 0 if absent
+     */
+    int get(long key) {
+        if (key == EMPTY) {
+            return emptyKeyValue;
+        }
+        int mask = keys.length - 1;
+        for (int k = home(key, mask); ; k = (k + 1) & mask) {
+            if (keys[k] == key) {
+                return values[k];
+            }
+            if (keys[k] == EMPTY) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Add delta to the count of key, removing it if the count becomes 0.
+     *
+     * @return the new count
+     */
+    int add(long key, int delta) {
+        if (key == EMPTY) {
+            int old = emptyKeyValue;
+            emptyKeyValue += delta;
+            size += (emptyKeyValue != 0 ? 1 : 0) - (old != 0 ? 1 : 0);
+            return emptyKeyValue;
+        }
+        int mask = keys.length - 1;
+        int k = home(key, mask);
+        while (keys[k] != EMPTY && keys[k] != key) {
+            k = (k + 1) & mask;
+        }
+        if (keys[k] == EMPTY) {
+            if (delta == 0) {
+                return 0;
+            }
+            keys[k] = key;
+            values[k] = delta;
+            size++;
+            if (size * 2 >= keys.length) {
+                rehash();
+            }
+            return delta;
+        }
+        int value = values[k] + delta;
+        if (value != 0) {
+            values[k] = value;
+        } else {
+            remove(k);
+        }
+        return value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /*
+     * Delete slot k by shifting later entries of its probe run back.
+     */
+    private void remove(int k) {
+        int mask = keys.length - 1;
+        size--;
+        int hole = k;
+        for (int i = (k + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            int home = home(keys[i], mask);
+            // move i into the hole unless its home lies cyclically in (hole, i]
+            boolean stays = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+            if (!stays) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = EMPTY;
+        values[hole] = 0;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(keys, EMPTY);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int k = home(oldKeys[i], mask);
+                while (keys[k] != EMPTY) {
+                    k = (k + 1) & mask;
+                }
+                keys[k] = oldKeys[i];
+                values[k] = oldValues[i];
+            }
+        }
+    }
+
+    private static int home(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -9,6 +9,8 @@ import java.net.URL;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * This is the main program.
@@ -36,17 +38,20 @@ public class Main {
      * Main method of the program. Fetches a sample of tweets and prints some
      * facts about it.
      * 
-     * @param args command-line arguments (not used)
+     * @param args command-line arguments: optionally the URL of a server to
+     *             fetch tweets from instead of SAMPLE_SERVER
+     * @throws MalformedURLException if the URL argument is malformed
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws MalformedURLException {
         try {
             assert false;
             throw new Error("Always run main and tests with assertions enabled");
         } catch (AssertionError ae) { }
         
+        final URL server = args.length > 0 ? new URL(args[0]) : SAMPLE_SERVER;
         final List<Tweet> tweets;
-        try {
-            tweets = TweetReader.readTweetsFromWeb(SAMPLE_SERVER);
+        try (Stream<Tweet> stream = StreamingTweetReader.stream(server)) {
+            tweets = stream.collect(Collectors.toList());
         } catch (IOException ioe) {
             throw new RuntimeException(ioe);
         }
@@ -66,10 +71,14 @@ public class Main {
         
         // print the top-N influencers
         final int count = 10;
-        final List<String> influencers = SocialNetwork.influencers(followsGraph);
-        for (String username : influencers.subList(0, Math.min(count, influencers.size()))) {
+        for (String username : SocialNetwork.influencers(followsGraph, count)) {
             System.out.println(username);
         }
+
+        // with -Dtwitter.metrics=true, report where the time went
+        if (Metrics.isEnabled()) {
+            System.err.println(Metrics.snapshot().toJson());
+        }
     }
     
 }
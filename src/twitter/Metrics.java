@@ -0,0 +1,502 @@
+package twitter;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Process-wide metrics of the tweet analysis pipeline: for each Stage, the
+ * number of calls, their latency (total, maximum and a histogram), and the
+ * number of items (usually tweets) they processed; plus Counters and the
+ * Gauges of the last follows graph built.
+ *
+ * Metrics are off unless the system property twitter.metrics is "true" or
+ * setEnabled(true) is called. While off, instrumented code pays one
+ * volatile read per call and allocates nothing. While on, each stage call
+ * also emits a "twitter.Stage" JDK Flight Recorder event if a recording
+ * has that event enabled.
+ *
+ * Instrumented code brackets a stage with start() and Span.end():
+ *
+ *     Metrics.Span span = Metrics.start(Metrics.Stage.GET_TIMESPAN);
+ *     ...
+ *     span.end(tweets.size());
+ *
+ * snapshot() copies the current values, which can be dumped with toJson().
+ * All methods are safe to call from any thread.
+ */
+public final class Metrics {
+
+    /** Instrumented stages of the pipeline. */
+    public enum Stage {
+        /**
+         * Connecting to a server, until the response body can be read or the
+         * attempt fails; reading the body is not part of it.
+         */
+        FETCH,
+        /** Decoding a JSON array of tweets, until its end or until closed. */
+        PARSE,
+        /** Extract.getTimespan. */
+        GET_TIMESPAN,
+        /** Extract.getMentionedUsers. */
+        GET_MENTIONED_USERS,
+        /** SocialNetwork.guessFollowsGraph. */
+        GUESS_FOLLOWS_GRAPH,
+        /** SocialNetwork.influencers on any graph representation; items are its users. */
+        INFLUENCERS;
+
+        private String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** Monotonic counters. */
+    public enum Counter {
+        /**
+         * Bytes of response bodies read from servers by StreamingTweetReader
+         * and IngestionService.
+         */
+        BYTES_READ,
+    }
+
+    /** Values that are replaced, not accumulated. */
+    public enum Gauge {
+        /** Users (keys) in the last follows graph built by guessFollowsGraph. */
+        GRAPH_NODES,
+        /** Follow edges in the last follows graph built by guessFollowsGraph. */
+        GRAPH_EDGES,
+    }
+
+    private static volatile boolean enabled = Boolean.getBoolean("twitter.metrics");
+
+    private static final Recorder[] stages = new Recorder[Stage.values().length];
+    private static final LongAdder[] counters = new LongAdder[Counter.values().length];
+    private static final AtomicLongArray gauges = new AtomicLongArray(Gauge.values().length);
+    static {
+        for (int s = 0; s < stages.length; s++) {
+            stages[s] = new Recorder();
+        }
+        for (int c = 0; c < counters.length; c++) {
+            counters[c] = new LongAdder();
+        }
+    }
+
+    private static final Span DISABLED = new Span(null, 0, null);
+
+    private Metrics() {
+        // static methods only
+    }
+
+    /**
+     * @return true iff metrics are being recorded
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turn recording on or off. Values recorded so far are kept.
+     *
+     * @param enable true to record metrics
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    /**
+     * Zero every stage, counter and gauge.
+     */
+    public static void reset() {
+        for (Recorder recorder : stages) {
+            recorder.reset();
+        }
+        for (LongAdder counter : counters) {
+            counter.reset();
+        }
+        for (int g = 0; g < gauges.length(); g++) {
+            gauges.set(g, 0);
+        }
+    }
+
+    /**
+     * Start timing one call of a stage.
+     *
+     * @param stage stage being entered
+     * @return span to end when the stage is done; if metrics are off, a
+     *         shared span that records nothing
+     */
+    public static Span start(Stage stage) {
+        if (!enabled) {
+            return DISABLED;
+        }
+        StageEvent event = new StageEvent();
+        if (event.isEnabled()) {
+            event.begin();
+        } else {
+            event = null;
+        }
+        return new Span(stage, System.nanoTime(), event);
+    }
+
+    /**
+     * Add to a counter, if metrics are on.
+     *
+     * @param counter counter to increase
+     * @param delta amount to add, >= 0
+     */
+    public static void count(Counter counter, long delta) {
+        if (enabled) {
+            counters[counter.ordinal()].add(delta);
+        }
+    }
+
+    /**
+     * Set a gauge, if metrics are on.
+     *
+     * @param gauge gauge to set
+     * @param value its new value
+     */
+    public static void set(Gauge gauge, long value) {
+        if (enabled) {
+            gauges.set(gauge.ordinal(), value);
+        }
+    }
+
+    /**
+     * @param in stream to read
+     * @return in, or if metrics are on, a stream reading from in that adds
+     *         the bytes read to Counter.BYTES_READ
+     */
+    static InputStream countBytes(InputStream in) {
+        if (!enabled) {
+            return in;
+        }
+        return new FilterInputStream(in) {
+            @Override public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    count(Counter.BYTES_READ, 1);
+                }
+                return b;
+            }
+
+            @Override public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    count(Counter.BYTES_READ, n);
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * @return a copy of the current values of every metric
+     */
+    public static Snapshot snapshot() {
+        return new Snapshot();
+    }
+
+    /**
+     * One call of a stage, from start() until end().
+     */
+    public static final class Span {
+        private final Stage stage;
+        private final long start;
+        private final StageEvent event;
+
+        private Span(Stage stage, long start, StageEvent event) {
+            this.stage = stage;
+            this.start = start;
+            this.event = event;
+        }
+
+        /**
+         * @return true iff this span is recording, so that values only needed
+         *         for metrics are worth computing
+         */
+        public boolean isRecording() {
+            return stage != null;
+        }
+
+        /**
+         * Record the end of the stage call. Must be called at most once.
+         *
+         * @param items number of items the call processed, >= 0
+         */
+        public void end(long items) {
+            if (stage == null) {
+                return;
+            }
+            stages[stage.ordinal()].record(System.nanoTime() - start, items);
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.stage = stage.label();
+                    event.items = items;
+                    event.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Immutable copy of every metric at one time.
+     */
+    public static final class Snapshot {
+        private final Instant time = Instant.now();
+        private final long[] count = new long[stages.length];
+        private final long[] totalNanos = new long[stages.length];
+        private final long[] maxNanos = new long[stages.length];
+        private final long[] items = new long[stages.length];
+        private final long[][] histograms = new long[stages.length][];
+        private final long[] counterValues = new long[counters.length];
+        private final long[] gaugeValues = new long[gauges.length()];
+
+        /*
+         * Abstraction function:
+         *    represents the metrics at time: stage s was called count[s] times,
+         *    taking totalNanos[s] in all and at most maxNanos[s], processing
+         *    items[s] items, with histograms[s][b] calls in latency bucket b
+         * Rep invariant:
+         *    sum of histograms[s] == count[s]
+         * Safety from rep exposure:
+         *    all fields are private and never returned
+         */
+
+        private Snapshot() {
+            for (int s = 0; s < stages.length; s++) {
+                histograms[s] = stages[s].histogram();
+                long calls = 0;
+                for (long bucket : histograms[s]) {
+                    calls += bucket;
+                }
+                // counts taken from the histogram, so they agree even while
+                // other threads record
+                count[s] = calls;
+                totalNanos[s] = stages[s].totalNanos.sum();
+                maxNanos[s] = stages[s].maxNanos.get();
+                items[s] = stages[s].items.sum();
+            }
+            for (int c = 0; c < counters.length; c++) {
+                counterValues[c] = counters[c].sum();
+            }
+            for (int g = 0; g < gaugeValues.length; g++) {
+                gaugeValues[g] = gauges.get(g);
+            }
+        }
+
+        /**
+         * @return when the snapshot was taken
+         */
+        public Instant time() {
+            return time;
+        }
+
+        /**
+         * @param stage a stage
+         * @return number of calls of stage recorded
+         */
+        public long count(Stage stage) {
+            return count[stage.ordinal()];
+        }
+
+        /**
+         * @param stage a stage
+         * @return total time spent in stage, in nanoseconds
+         */
+        public long totalNanos(Stage stage) {
+            return totalNanos[stage.ordinal()];
+        }
+
+        /**
+         * @param stage a stage
+         * @return longest call of stage, in nanoseconds, or 0 if none
+         */
+        public long maxNanos(Stage stage) {
+            return maxNanos[stage.ordinal()];
+        }
+
+        /**
+         * @param stage a stage
+         * @return total number of items processed by stage
+         */
+        public long items(Stage stage) {
+            return items[stage.ordinal()];
+        }
+
+        /**
+         * @param stage a stage
+         * @return items processed by stage per second spent in it, or 0 if
+         *         no time was spent in it
+         */
+        public double itemsPerSecond(Stage stage) {
+            long nanos = totalNanos(stage);
+            return nanos == 0 ? 0 : items(stage) * 1e9 / nanos;
+        }
+
+        /**
+         * @param stage a stage
+         * @param percentile percentile, 0 < percentile <= 100
+         * @return latency of stage at that percentile, in nanoseconds,
+         *         overestimated by less than 25%; 0 if stage has no calls
+         */
+        public long percentileNanos(Stage stage, double percentile) {
+            if (!(percentile > 0 && percentile <= 100)) {
+                throw new IllegalArgumentException("percentile out of range: " + percentile);
+            }
+            long[] histogram = histograms[stage.ordinal()];
+            long rank = (long) Math.ceil(percentile / 100 * count(stage));
+            long seen = 0;
+            for (int b = 0; b < histogram.length; b++) {
+                seen += histogram[b];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(Recorder.upperBound(b), maxNanos(stage));
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @param counter a counter
+         * @return its value
+         */
+        public long counter(Counter counter) {
+            return counterValues[counter.ordinal()];
+        }
+
+        /**
+         * @param gauge a gauge
+         * @return its value
+         */
+        public long gauge(Gauge gauge) {
+            return gaugeValues[gauge.ordinal()];
+        }
+
+        /**
+         * @return this snapshot as a JSON object with keys "time", "stages"
+         *         (an object from stage name in lower case to its count,
+         *         items, itemsPerSecond, and totalNanos, maxNanos, p50Nanos,
+         *         p90Nanos and p99Nanos), "counters" and "gauges"
+         */
+        public String toJson() {
+            StringWriter out = new StringWriter();
+            JsonGenerator json = Json.createGeneratorFactory(
+                    Collections.singletonMap(JsonGenerator.PRETTY_PRINTING, true)).createGenerator(out);
+            json.writeStartObject().write("time", time.toString()).writeStartObject("stages");
+            for (Stage stage : Stage.values()) {
+                json.writeStartObject(stage.label())
+                    .write("count", count(stage))
+                    .write("items", items(stage))
+                    .write("itemsPerSecond", itemsPerSecond(stage))
+                    .write("totalNanos", totalNanos(stage))
+                    .write("maxNanos", maxNanos(stage))
+                    .write("p50Nanos", percentileNanos(stage, 50))
+                    .write("p90Nanos", percentileNanos(stage, 90))
+                    .write("p99Nanos", percentileNanos(stage, 99))
+                    .writeEnd();
+            }
+            json.writeEnd().writeStartObject("counters");
+            for (Counter counter : Counter.values()) {
+                json.write(counter.name().toLowerCase(Locale.ROOT), counter(counter));
+            }
+            json.writeEnd().writeStartObject("gauges");
+            for (Gauge gauge : Gauge.values()) {
+                json.write(gauge.name().toLowerCase(Locale.ROOT), gauge(gauge));
+            }
+            json.writeEnd().writeEnd().close();
+            return out.toString();
+        }
+
+        @Override public String toString() {
+            return toJson();
+        }
+    }
+
+    /*
+     * Latency of one stage. The histogram has 4 buckets per power of two:
+     * bucket b < 4 holds latency b, and bucket 4(e-1) + m, for e >= 2 and
+     * m in 0..3, holds latencies from (4 + m) 2^(e-2) up to the next bucket.
+     */
+    private static final class Recorder {
+        private static final int BUCKETS = 4 * 62 + 4;
+
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder items = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        private void record(long nanos, long processed) {
+            nanos = Math.max(0, nanos);
+            totalNanos.add(nanos);
+            items.add(processed);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            buckets.incrementAndGet(bucket(nanos));
+        }
+
+        private long[] histogram() {
+            long[] histogram = new long[BUCKETS];
+            for (int b = 0; b < BUCKETS; b++) {
+                histogram[b] = buckets.get(b);
+            }
+            return histogram;
+        }
+
+        private void reset() {
+            totalNanos.reset();
+            items.reset();
+            maxNanos.set(0);
+            for (int b = 0; b < BUCKETS; b++) {
+                buckets.set(b, 0);
+            }
+        }
+
+        static int bucket(long nanos) {
+            if (nanos < 4) {
+                return (int) nanos;
+            }
+            int e = 63 - Long.numberOfLeadingZeros(nanos);
+            int m = (int) (nanos >>> (e - 2)) & 3;
+            return 4 * (e - 1) + m;
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket < 4) {
+                return bucket;
+            }
+            int e = bucket / 4 + 1;
+            int m = bucket % 4;
+            long lower = (4L + m) << (e - 2);
+            return lower + (1L << (e - 2)) - 1;
+        }
+    }
+
+    @Name("twitter.Stage")
+    @Label("Pipeline Stage")
+    @Category("Twitter")
+    @Description("One call of an instrumented stage of the tweet analysis pipeline")
+    static final class StageEvent extends Event {
+        @Label("Stage")
+        String stage;
+
+        @Label("Items")
+        @Description("Number of items (usually tweets) processed")
+        long items;
+    }
+}
@@ -0,0 +1,178 @@
+package twitter;
+
+import java.util.Arrays;
+
+/**
+ * Growable, compressed, increasing list of tweet positions: each position
+ * is stored as its difference from the previous one in a variable-length
+ * byte encoding (7 bits per byte, high bit set on all but the last byte), so
+ * the positions of a frequent word take about one byte each.
+ *
+ * Every SKIP_INTERVAL positions a skip entry records the position and the
+ * byte offset just after it, so a Cursor can advance past long runs of
+ * positions without decoding them.
+ *
+ * Not safe for concurrent modification; a Cursor sees the positions added
+ * before it was created, and may see later ones.
+ */
+class PostingList {
+
+    static final int SKIP_INTERVAL = 128;
+
+    private byte[] bytes = new byte[4];
+    private int length;
+    private int count;
+    private int last = -1;
+    private int[] skipPositions = new int[0];
+    private int[] skipOffsets = new int[0];
+    private int skips;
+
+    /*
+     * Abstraction function:
+     *    represents the increasing sequence p_0, ..., p_(count-1) where
+     *    p_i = p_(i-1) + d_i (with p_(-1) == -1) and d_0, d_1, ... are the
+     *    varints in bytes[0..length)
+     * Rep invariant:
+     *    every d_i >= 1; last == p_(count-1), or -1 if count == 0
+     *    skips == count / SKIP_INTERVAL; for each k < skips,
+     *      skipPositions[k] == p_((k+1) * SKIP_INTERVAL - 1) and skipOffsets[k]
+     *      is the offset in bytes just after its varint
+     */
+
+    /**
+     * Append a position.
+     *
+     * @param position position greater than every position in the list
+     */
+    void add(int position) {
+        if (position <= last) {
+            throw new IllegalArgumentException("position " + position + " after " + last);
+        }
+        int delta = position - last;
+        if (length + 5 > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(length + 5, bytes.length * 2));
+        }
+        while (delta >= 0x80) {
+            bytes[length++] = (byte) (delta | 0x80);
+            delta >>>= 7;
+        }
+        bytes[length++] = (byte) delta;
+        last = position;
+        count++;
+        if (count % SKIP_INTERVAL == 0) {
+            if (skips == skipPositions.length) {
+                skipPositions = Arrays.copyOf(skipPositions, skips * 2 + 1);
+                skipOffsets = Arrays.copyOf(skipOffsets, skips * 2 + 1);
+            }
+            skipPositions[skips] = position;
+            skipOffsets[skips] = length;
+            skips++;
+        }
+    }
+
+    /**
+     * @return number of positions
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * @return greatest position, or -1 if the list is empty
+     */
+    int last() {
+        return last;
+    }
+
+    /**
+     * @return bytes used by the encoded positions and skip entries, not
+     *         counting unused capacity or object headers
+     */
+    long encodedBytes() {
+        return length + 8L * skips;
+    }
+
+    /**
+     * @return bytes allocated for the encoded positions and skip entries,
+     *         including unused capacity but not array headers
+     */
+    long capacityBytes() {
+        return bytes.length + 4L * (skipPositions.length + skipOffsets.length);
+    }
+
+    /**
+     * @return a cursor before the first position
+     */
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Forward-only reader of a posting list.
+     */
+    class Cursor {
+        private int offset;
+        private int index;
+        private int position = -1;
+
+        /*
+         * Rep invariant:
+         *    index positions have been read; position == p_(index-1), or -1
+         *    if index == 0; offset is the byte offset just after its varint
+         */
+
+        /**
+         * @return the current position: -1 before the first call to next or
+         *         advance, and the last position read after that
+         */
+        int position() {
+            return position;
+        }
+
+        /**
+         * Move to the next position.
+         *
+         * @return true iff there was a next position
+         */
+        boolean next() {
+            if (index == count) {
+                return false;
+            }
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[offset++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            position += delta;
+            index++;
+            return true;
+        }
+
+        /**
+         * Move forward to the first position at least target, staying put if
+         * the current position already is.
+         *
+         * @param target a position
+         * @return true iff there is such a position
+         */
+        boolean advance(int target) {
+            if (index > 0 && position >= target) {
+                return true;
+            }
+            for (int k = index / SKIP_INTERVAL; k < skips && skipPositions[k] < target; k++) {
+                position = skipPositions[k];
+                offset = skipOffsets[k];
+                index = (k + 1) * SKIP_INTERVAL;
+            }
+            while (index == 0 || position < target) {
+                if (!next()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
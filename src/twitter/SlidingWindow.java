@@ -0,0 +1,381 @@
+package twitter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Aggregates over the tweets of the last window of time in a live stream.
+ *
+ * Tweets are added in arrival order. The window ends at the latest
+ * timestamp seen so far (or a later time given to advanceTo), and holds
+ * the tweets with timestamps after end - window. A tweet that arrives out
+ * of order is accepted if it is no more than the lateness bound behind the
+ * end of the window and still inside it; otherwise it is dropped.
+ *
+ * As tweets enter and leave the window, the aggregates below are updated
+ * incrementally from the tweet's own mentions and hashtags, so queries never
+ * rescan the window:
+ *  - the timespan of the window's tweets, in O(1)
+ *  - per user, the number of tweets mentioning them
+ *  - per hashtag, the number of tweets using it
+ *  - per user, the number of followers in the follows graph that
+ *    SocialNetwork.guessFollowsGraph would build from the window's tweets
+ * Counts are O(1) per name and the top k of each are O(k + log n).
+ *
+ * Mentions are kept as counted pairs of users, but each hashtag is kept as
+ * the list of its users in the window, not as the pairs of users it
+ * connects, so memory is linear in the window's evidence. Follower counts
+ * are still exact: when a user's first tweet with a hashtag enters the
+ * window, or their last one leaves it, every other user of the hashtag
+ * gains or loses that user as a follower and vice versa, so the update
+ * costs O(users of that hashtag) membership lookups.
+ *
+ * Usernames and hashtags are interned for the life of the window, so memory
+ * grows with the number of distinct names seen, not just those in the window.
+ *
+ * Not safe for concurrent modification.
+ */
+public class SlidingWindow {
+
+    private final Duration window;
+    private final Duration lateness;
+
+    private final PriorityQueue<Tweet> tweets =
+            new PriorityQueue<>((a, b) -> a.getTimestamp().compareTo(b.getTimestamp()));
+    private Instant end;
+    private Instant latest;
+
+    private final SymbolTable users = new SymbolTable();
+    private final SymbolTable hashtags = new SymbolTable();
+    private final CountRanking mentionCounts = new CountRanking(users::name);
+    private final CountRanking hashtagCounts = new CountRanking(hashtags::name);
+    private final CountRanking followerCounts = new CountRanking(users::name);
+    private final LongIntHashMap mentionEdges = new LongIntHashMap();
+    private final LongIntHashMap memberships = new LongIntHashMap();
+    private final List<IntList> members = new ArrayList<>();
+    private final List<IntList> tagsOf = new ArrayList<>();
+    private final Evidence evidence = new Evidence();
+
+    /*
+     * Abstraction function:
+     *    represents the tweets in the window ending at end, with their
+     *    aggregates; end == null iff no tweet has been seen
+     * Rep invariant:
+     *    every t in tweets has end - window < t.getTimestamp() <= end
+     *    latest is the latest timestamp of an added tweet; so if tweets is
+     *      nonempty, the tweet with that timestamp is in it, since eviction
+     *      removes tweets in timestamp order
+     *    mentionCounts.count(u) == number of tweets mentioning u
+     *    hashtagCounts.count(h) == number of tweets using h
+     *    mentionEdges.get(pair(a, b)) == number of tweets by a mentioning b != a
+     *    memberships.get(pair(h, u)) == number of tweets by u using h
+     *    members.get(h) lists each u with memberships.get(pair(h, u)) > 0
+     *      exactly once, and tagsOf.get(u) each such h; users and hashtags
+     *      beyond the ends of tagsOf and members have no memberships
+     *    followerCounts.count(b) == number of a != b with
+     *      mentionEdges.get(pair(a, b)) > 0, or with a and b both in
+     *      members.get(h) for some h
+     * Safety from rep exposure:
+     *    all fields are private; Tweets and Instants are immutable, and
+     *    observers return new collections
+     */
+
+    /**
+     * Make an empty window.
+     *
+     * @param window length of the window, positive
+     * @param lateness how far behind the end of the window a tweet may be and
+     *                 still be accepted, nonnegative
+     * @throws IllegalArgumentException if window or lateness is out of range
+     */
+    public SlidingWindow(Duration window, Duration lateness) {
+        if (window.isNegative() || window.isZero() || lateness.isNegative()) {
+            throw new IllegalArgumentException("window " + window + ", lateness " + lateness);
+        }
+        this.window = window;
+        this.lateness = lateness;
+    }
+
+    /**
+     * Add the next tweet of the stream, advancing the window to its
+     * timestamp if it is later than the current end.
+     *
+     * @param tweet tweet that arrived
+     * @return true if the tweet was added, false if it was dropped as too late
+     */
+    public boolean add(Tweet tweet) {
+        Instant timestamp = tweet.getTimestamp();
+        if (end != null && timestamp.isBefore(end)) {
+            if (timestamp.isBefore(end.minus(lateness)) || !timestamp.isAfter(end.minus(window))) {
+                return false;
+            }
+        } else {
+            advanceTo(timestamp);
+        }
+        if (latest == null || timestamp.isAfter(latest)) {
+            latest = timestamp;
+        }
+        tweets.add(tweet);
+        update(tweet, +1);
+        return true;
+    }
+
+    /**
+     * Move the end of the window forward, evicting tweets that fall out of it.
+     *
+     * @param now new end of the window; ignored if before the current end
+     */
+    public void advanceTo(Instant now) {
+        if (end != null && !now.isAfter(end)) {
+            return;
+        }
+        end = now;
+        Instant start = now.minus(window);
+        while (!tweets.isEmpty() && !tweets.peek().getTimestamp().isAfter(start)) {
+            update(tweets.remove(), -1);
+        }
+    }
+
+    /**
+     * @return number of tweets in the window
+     */
+    public int size() {
+        return tweets.size();
+    }
+
+    /**
+     * @return the end of the window, or null if no tweet has been seen
+     */
+    public Instant end() {
+        return end;
+    }
+
+    /**
+     * @return a minimum-length time interval that contains the timestamp of
+     *         every tweet in the window
+     * @throws IllegalArgumentException if the window is empty
+     */
+    public Timespan timespan() {
+        if (tweets.isEmpty()) {
+            throw new IllegalArgumentException("window must not be empty");
+        }
+        return new Timespan(tweets.peek().getTimestamp(), latest);
+    }
+
+    /**
+     * @param username username, case-insensitive
+     * @return number of tweets in the window that mention username
+     */
+    public int mentionCount(String username) {
+        int user = users.find(username);
+        return user < 0 ? 0 : mentionCounts.count(user);
+    }
+
+    /**
+     * @return the users mentioned in the window's tweets, in lower case
+     */
+    public Set<String> mentionedUsers() {
+        Set<String> mentioned = new HashSet<>();
+        for (int user : mentionCounts.top(Integer.MAX_VALUE)) {
+            mentioned.add(users.name(user));
+        }
+        return mentioned;
+    }
+
+    /**
+     * @param k maximum number of users to return, >= 0
+     * @return the min(k, m) most mentioned of the m users mentioned in the
+     *         window, in descending order of mention count, ties in
+     *         ascending order of username (lower case)
+     */
+    public List<String> topMentioned(int k) {
+        return names(mentionCounts, users, k);
+    }
+
+    /**
+     * @param hashtag hashtag without "#", case-insensitive
+     * @return number of tweets in the window that use hashtag
+     */
+    public int hashtagCount(String hashtag) {
+        int tag = hashtags.find(hashtag);
+        return tag < 0 ? 0 : hashtagCounts.count(tag);
+    }
+
+    /**
+     * @param k maximum number of hashtags to return, >= 0
+     * @return the min(k, m) most used of the m hashtags in the window,
+     *         without "#", in descending order of use, ties in ascending
+     *         order of hashtag (lower case)
+     */
+    public List<String> topHashtags(int k) {
+        return names(hashtagCounts, hashtags, k);
+    }
+
+    /**
+     * @param username username, case-insensitive
+     * @return number of followers of username in the follows graph of the
+     *         window's tweets
+     */
+    public int followerCount(String username) {
+        int user = users.find(username);
+        return user < 0 ? 0 : followerCounts.count(user);
+    }
+
+    /**
+     * @param k maximum number of influencers to return, >= 0
+     * @return the min(k, m) most influential of the m users with at least one
+     *         follower in the follows graph of the window's tweets, in
+     *         descending order of follower count, ties in ascending order of
+     *         username (lower case)
+     */
+    public List<String> influencers(int k) {
+        return names(followerCounts, users, k);
+    }
+
+    /**
+     * @return number of entries in the maps keyed by pairs of ids, which
+     *         grows with the window's mentions and hashtag uses
+     */
+    int pairEntries() {
+        return mentionEdges.size() + memberships.size();
+    }
+
+    private static List<String> names(CountRanking ranking, SymbolTable symbols, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be nonnegative: " + k);
+        }
+        List<String> names = new ArrayList<>();
+        for (int id : ranking.top(k)) {
+            names.add(symbols.name(id));
+        }
+        return names;
+    }
+
+    /*
+     * Add (sign +1) or remove (sign -1) the evidence of one tweet.
+     */
+    private void update(Tweet tweet, int sign) {
+        evidence.reset(users.intern(tweet.getAuthor()));
+        TweetLexer.scan(tweet.getText(), evidence);
+        int author = evidence.author;
+        for (int user : evidence.distinct(evidence.mentioned)) {
+            mentionCounts.adjust(user, sign);
+            if (user != author) {
+                int count = mentionEdges.add(pair(author, user), sign);
+                if ((sign > 0 ? count == 1 : count == 0) && !sharesHashtag(author, user, -1)) {
+                    followerCounts.adjust(user, sign);
+                }
+            }
+        }
+        for (int tag : evidence.distinct(evidence.tagged)) {
+            hashtagCounts.adjust(tag, sign);
+            int count = memberships.add(pair(tag, author), sign);
+            if (sign > 0 ? count == 1 : count == 0) {
+                updateMembership(tag, author, sign);
+            }
+        }
+    }
+
+    /*
+     * Add author to (sign +1) or remove author from (sign -1) the users of
+     * tag. Each other user of tag gains or loses author as a follower, and
+     * vice versa, unless a mention or another common hashtag makes that edge.
+     */
+    private void updateMembership(int tag, int author, int sign) {
+        while (members.size() <= tag) {
+            members.add(new IntList());
+        }
+        while (tagsOf.size() <= author) {
+            tagsOf.add(new IntList());
+        }
+        IntList tagUsers = members.get(tag);
+        if (sign < 0) {
+            tagUsers.removeValue(author);
+            tagsOf.get(author).removeValue(tag);
+        }
+        int authorFollowers = 0;
+        for (int i = 0; i < tagUsers.size(); i++) {
+            int user = tagUsers.get(i);
+            if (sharesHashtag(author, user, tag)) {
+                continue;
+            }
+            if (mentionEdges.get(pair(author, user)) == 0) {
+                followerCounts.adjust(user, sign);
+            }
+            if (mentionEdges.get(pair(user, author)) == 0) {
+                authorFollowers += sign;
+            }
+        }
+        followerCounts.adjust(author, authorFollowers);
+        if (sign > 0) {
+            tagUsers.add(author);
+            tagsOf.get(author).add(tag);
+        }
+    }
+
+    /*
+     * True iff users a and b are both users of some hashtag other than except
+     * in the window.
+     */
+    private boolean sharesHashtag(int a, int b, int except) {
+        if (a >= tagsOf.size() || b >= tagsOf.size()) {
+            return false;
+        }
+        IntList tagsA = tagsOf.get(a);
+        IntList tagsB = tagsOf.get(b);
+        IntList smaller = tagsA.size() <= tagsB.size() ? tagsA : tagsB;
+        int other = smaller == tagsA ? b : a;
+        for (int i = 0; i < smaller.size(); i++) {
+            int tag = smaller.get(i);
+            if (tag != except && memberships.get(pair(tag, other)) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long pair(int first, int second) {
+        return (long) first << 32 | second;
+    }
+
+    /*
+     * Collects the ids of one tweet's mentions and hashtags.
+     */
+    private class Evidence implements TweetLexer.Handler {
+        private int author;
+        private final IntList mentioned = new IntList();
+        private final IntList tagged = new IntList();
+
+        private void reset(int author) {
+            this.author = author;
+            mentioned.clear();
+            tagged.clear();
+        }
+
+        @Override public void mention(CharSequence text, int start, int end) {
+            mentioned.add(users.intern(text, start, end));
+        }
+
+        @Override public void hashtag(CharSequence text, int start, int end) {
+            tagged.add(hashtags.intern(text, start, end));
+        }
+
+        private int[] distinct(IntList ids) {
+            int[] sorted = ids.toArray();
+            Arrays.sort(sorted);
+            int size = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[size++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, size);
+        }
+    }
+}
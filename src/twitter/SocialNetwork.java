@@ -1,8 +1,7 @@
 package twitter;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.IntFunction;
 
 public class SocialNetwork {
 
@@ -10,64 +9,42 @@ public class SocialNetwork {
      * Guess who might follow whom, from evidence found in tweets.
      * 
      * Evidence sources:
-     *  - Mentions (@username)
+     *  - Mentions (@username, as recognized by TweetLexer)
      *  - Common hashtags (#topic)
      * 
      * The graph maps each user → set of users they might follow.
      */
     public static Map<String, Set<String>> guessFollowsGraph(List<Tweet> tweets) {
-        Map<String, Set<String>> followsGraph = new HashMap<>();
-        Map<String, Set<String>> hashtagUsers = new HashMap<>();
-
-        Pattern mentionPattern = Pattern.compile("(?<=@)\\w+(-\\w+)*");
-        Pattern hashtagPattern = Pattern.compile("#\\w+");
-
-        for (Tweet t : tweets) {
-            String author = t.getAuthor().toLowerCase();
-            Set<String> follows = new HashSet<>();
-
-            // Extract mentions
-            Matcher mentionMatcher = mentionPattern.matcher(t.getText());
-            while (mentionMatcher.find()) {
-                String mentioned = mentionMatcher.group().toLowerCase();
-                if (!mentioned.equals(author)) {
-                    follows.add(mentioned);
-                }
-            }
-
-            // Extract hashtags
-            Matcher hashtagMatcher = hashtagPattern.matcher(t.getText());
-            while (hashtagMatcher.find()) {
-                String hashtag = hashtagMatcher.group().toLowerCase();
-                hashtagUsers.computeIfAbsent(hashtag, k -> new HashSet<>()).add(author);
-            }
-
-            // Merge follows for this author into the global graph (don't overwrite)
-            if (!follows.isEmpty()) {
-                followsGraph.computeIfAbsent(author, k -> new HashSet<>()).addAll(follows);
-            }
-        }
-
-        // Add follow edges between users who share hashtags (common interest)
-        for (Set<String> users : hashtagUsers.values()) {
-            for (String u1 : users) {
-                for (String u2 : users) {
-                    if (!u1.equals(u2)) {
-                        followsGraph.computeIfAbsent(u1, k -> new HashSet<>()).add(u2);
-                    }
-                }
+        Metrics.Span span = Metrics.start(Metrics.Stage.GUESS_FOLLOWS_GRAPH);
+        Map<String, Set<String>> followsGraph = guessFollowsHypergraph(tweets).toFollowsGraph();
+        if (span.isRecording()) {
+            long edges = 0;
+            for (Set<String> followed : followsGraph.values()) {
+                edges += followed.size();
             }
+            Metrics.set(Metrics.Gauge.GRAPH_NODES, followsGraph.size());
+            Metrics.set(Metrics.Gauge.GRAPH_EDGES, edges);
         }
-
+        span.end(tweets.size());
         return followsGraph;
     }
 
+    /**
+     * Guess who might follow whom, from the same evidence as guessFollowsGraph,
+     * keeping each hashtag as one hyperedge instead of expanding it into
+     * follow edges between every pair of its users.
+     */
+    public static FollowsHypergraph guessFollowsHypergraph(List<Tweet> tweets) {
+        return FollowsHypergraph.fromTweets(tweets);
+    }
+
     /**
      * Find the people in a social network who have the greatest influence.
      * 
      * The influencer list is sorted in descending order of follower count.
      */
     public static List<String> influencers(Map<String, Set<String>> followsGraph) {
+        Metrics.Span span = Metrics.start(Metrics.Stage.INFLUENCERS);
         Map<String, Integer> followerCounts = new HashMap<>();
 
         // Count followers
@@ -81,6 +58,107 @@ public class SocialNetwork {
         List<String> users = new ArrayList<>(followerCounts.keySet());
         users.sort(Comparator.<String>comparingInt(followerCounts::get).reversed());
 
+        span.end(followsGraph.size());
+        return users;
+    }
+
+    /**
+     * Find the people in a hashtag-hyperedge social network who have the
+     * greatest influence, without materializing the follows graph.
+     * 
+     * The influencer list is sorted in descending order of follower count,
+     * ties in ascending order of username, and holds every user with at
+     * least one follower.
+     */
+    public static List<String> influencers(FollowsHypergraph followsGraph) {
+        Metrics.Span span = Metrics.start(Metrics.Stage.INFLUENCERS);
+        Map<String, Integer> followerCounts = followsGraph.followerCounts();
+        List<String> users = new ArrayList<>(followerCounts.keySet());
+        users.sort(Comparator.<String>comparingInt(followerCounts::get).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        span.end(followerCounts.size());
+        return users;
+    }
+
+    /**
+     * Find the people in a compact social network who have the greatest
+     * influence, counting followers from the graph's in-degrees.
+     * 
+     * The influencer list is sorted in descending order of follower count,
+     * ties in ascending order of username, and holds every user with at
+     * least one follower.
+     */
+    public static List<String> influencers(CompactFollowsGraph followsGraph) {
+        return influencers(followsGraph, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Find the k people in a social network who have the greatest influence.
+     * 
+     * Follower counts are kept in an int array indexed by interned username,
+     * and only the top k are ranked, in O(n log k) for n users.
+     * 
+     * Usernames are case-insensitive, so names in followsGraph that differ
+     * only in case count as one user. Each user is returned spelled as in
+     * followsGraph (one of its spellings, if it appears in several), so the
+     * lower-case graphs of guessFollowsGraph give lower-case names.
+     * 
+     * @param followsGraph a social network, as returned by guessFollowsGraph
+     * @param k maximum number of influencers to return, >= 0
+     * @return the min(k, m) most influential of the m users with at least one
+     *         follower, in descending order of follower count, ties in
+     *         ascending order of lower-cased username
+     */
+    public static List<String> influencers(Map<String, Set<String>> followsGraph, int k) {
+        Metrics.Span span = Metrics.start(Metrics.Stage.INFLUENCERS);
+        SymbolTable users = new SymbolTable();
+        int[] followerCounts = new int[16];
+        String[] spellings = new String[16];
+        for (Set<String> followed : followsGraph.values()) {
+            for (String user : followed) {
+                int id = users.intern(user);
+                if (id == followerCounts.length) {
+                    followerCounts = Arrays.copyOf(followerCounts, 2 * id);
+                    spellings = Arrays.copyOf(spellings, 2 * id);
+                }
+                if (followerCounts[id]++ == 0) {
+                    spellings[id] = user;
+                }
+            }
+        }
+        String[] names = spellings;
+        List<String> influencers = names(TopK.select(followerCounts, users.size(), users::name, k), id -> names[id]);
+        span.end(followsGraph.size());
+        return influencers;
+    }
+
+    /**
+     * Find the k people in a compact social network who have the greatest
+     * influence, counting followers from the graph's in-degrees.
+     * 
+     * @param followsGraph a social network
+     * @param k maximum number of influencers to return, >= 0
+     * @return the min(k, m) most influential of the m users with at least one
+     *         follower, in descending order of follower count, ties in
+     *         ascending order of username
+     */
+    public static List<String> influencers(CompactFollowsGraph followsGraph, int k) {
+        Metrics.Span span = Metrics.start(Metrics.Stage.INFLUENCERS);
+        int n = followsGraph.vertexCount();
+        int[] followerCounts = new int[n];
+        for (int v = 0; v < n; v++) {
+            followerCounts[v] = followsGraph.inDegree(v);
+        }
+        List<String> influencers = names(TopK.select(followerCounts, n, followsGraph::name, k), followsGraph::name);
+        span.end(n);
+        return influencers;
+    }
+
+    private static List<String> names(int[] ids, IntFunction<String> name) {
+        List<String> users = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            users.add(name.apply(id));
+        }
         return users;
     }
 }
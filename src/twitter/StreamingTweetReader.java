@@ -0,0 +1,222 @@
+package twitter;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.stream.JsonParser;
+
+/**
+ * Read tweets incrementally from the same JSON input accepted by TweetReader.
+ *
+ * Unlike TweetReader, which builds the whole JSON array in memory before
+ * returning, this reader pulls events from a JsonParser and decodes each tweet
+ * as soon as its array element closes, so memory use is bounded by the size of
+ * one tweet and callers can start working before the input has been fully read.
+ * Each element is decoded by TweetDecoder.DEFAULT.
+ */
+public class StreamingTweetReader {
+
+    private StreamingTweetReader() {
+        // static methods only
+    }
+
+    /**
+     * Get an iterator over the tweets in a JSON array.
+     *
+     * @param reader source of a JSON array of tweets; closed when the iterator
+     *               is closed or exhausted.
+     * @return an iterator that decodes one tweet per call to next(), in the
+     *         order they appear in the input. Malformed input is reported as a
+     *         JsonException from hasNext() or next().
+     */
+    public static TweetIterator iterator(Reader reader) {
+        return new TweetIterator(reader);
+    }
+
+    /**
+     * Get a lazy, sequential stream of the tweets in a JSON array.
+     *
+     * @param reader source of a JSON array of tweets; closed when the stream is closed.
+     * @return a stream of the tweets in input order.
+     */
+    public static Stream<Tweet> stream(Reader reader) {
+        TweetIterator iterator = iterator(reader);
+        Spliterator<Tweet> spliterator = Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+
+    /**
+     * Get a lazy, sequential stream of the tweets in a UTF-8 JSON file.
+     *
+     * @param path file containing a JSON array of tweets
+     * @return a stream of the tweets in input order; must be closed by the caller.
+     * @throws IOException if the file cannot be opened.
+     */
+    public static Stream<Tweet> stream(Path path) throws IOException {
+        return stream(open(path));
+    }
+
+    /**
+     * Get a lazy, sequential stream of the tweets served by a web server.
+     *
+     * @param url URL of server to retrieve tweets from
+     * @return a stream of the tweets in the order the server sends them; must
+     *         be closed by the caller.
+     * @throws IOException if the url is invalid, the server is unreachable,
+     *                     or some other network-related error occurs.
+     */
+    public static Stream<Tweet> stream(URL url) throws IOException {
+        return stream(open(url));
+    }
+
+    /**
+     * Pass every tweet in a JSON array to a callback as soon as it is decoded.
+     *
+     * @param reader source of a JSON array of tweets; closed before returning.
+     * @param consumer called once per tweet, in input order
+     * @return the number of tweets passed to consumer
+     */
+    public static long read(Reader reader, Consumer<? super Tweet> consumer) {
+        long count = 0;
+        try (TweetIterator iterator = iterator(reader)) {
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Pass every tweet in a UTF-8 JSON file to a callback as soon as it is decoded.
+     *
+     * @param path file containing a JSON array of tweets
+     * @param consumer called once per tweet, in input order
+     * @return the number of tweets passed to consumer
+     * @throws IOException if the file cannot be opened.
+     */
+    public static long read(Path path, Consumer<? super Tweet> consumer) throws IOException {
+        return read(open(path), consumer);
+    }
+
+    /**
+     * Pass every tweet served by a web server to a callback as soon as it is decoded.
+     *
+     * @param url URL of server to retrieve tweets from
+     * @param consumer called once per tweet, in the order the server sends them
+     * @return the number of tweets passed to consumer
+     * @throws IOException if the url is invalid, the server is unreachable,
+     *                     or some other network-related error occurs.
+     */
+    public static long read(URL url, Consumer<? super Tweet> consumer) throws IOException {
+        return read(open(url), consumer);
+    }
+
+    private static Reader open(Path path) throws IOException {
+        return Files.newBufferedReader(path, StandardCharsets.UTF_8);
+    }
+
+    private static Reader open(URL url) throws IOException {
+        Metrics.Span fetch = Metrics.start(Metrics.Stage.FETCH);
+        InputStream in;
+        try {
+            in = Metrics.countBytes(url.openStream());
+        } finally {
+            fetch.end(0);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Iterator over the tweets of a JSON array, decoding one element at a time.
+     * Must be closed if it is abandoned before being exhausted.
+     */
+    public static final class TweetIterator implements Iterator<Tweet>, Closeable {
+
+        private final JsonParser parser;
+        private final Metrics.Span parse = Metrics.start(Metrics.Stage.PARSE);
+        private long decoded = 0;
+        private boolean started = false;
+        private boolean finished = false;
+        private Tweet next = null;
+        /* Rep invariant:
+         *    finished implies next == null
+         *    decoded == number of tweets decoded so far
+         */
+
+        private TweetIterator(Reader reader) {
+            this.parser = Json.createParser(reader);
+        }
+
+        @Override public boolean hasNext() {
+            if (next == null && !finished) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override public Tweet next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Tweet result = next;
+            next = null;
+            return result;
+        }
+
+        @Override public void close() {
+            if (!finished) {
+                parse.end(decoded);
+            }
+            finished = true;
+            next = null;
+            parser.close();
+        }
+
+        /*
+         * Read the next array element, or close the parser at the end of the array.
+         *
+         * @return the decoded tweet, or null if the array has ended
+         */
+        private Tweet advance() {
+            if (!started) {
+                started = true;
+                if (!parser.hasNext() || parser.next() != JsonParser.Event.START_ARRAY) {
+                    throw new JsonException("expected a JSON array of tweets");
+                }
+            }
+            if (!parser.hasNext()) {
+                throw new JsonException("unexpected end of input inside tweet array");
+            }
+            JsonParser.Event event = parser.next();
+            switch (event) {
+            case START_OBJECT:
+                decoded++;
+                return TweetDecoder.DEFAULT.decode(parser);
+            case END_ARRAY:
+                close();
+                return null;
+            default:
+                throw new JsonException("expected a tweet object but found " + event);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package twitter;
+
+import java.util.Arrays;
+
+/**
+ * Interns case-insensitive names, such as usernames and hashtags, as dense
+ * int ids with one shared lower-case String per name.
+ *
+ * Looking up a span of characters hashes and compares it in place, folding
+ * case one character at a time, so a name that has been seen before costs no
+ * allocation. Ids are assigned 0, 1, 2, ... in order of first appearance.
+ *
+ * Not safe for concurrent modification.
+ */
+public class SymbolTable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+    private int size;
+
+    /*
+     * Abstraction function:
+     *    represents the mapping from names[id] to id, for 0 <= id < size,
+     *    where a name stands for all strings with the same lower case
+     * Rep invariant:
+     *    names[0..size) are distinct, lower-case and non-null; hashes[id] == hash(names[id])
+     *    slots is an open-addressing table of length a power of two, > 2 * size,
+     *      where slots[k] == id + 1 for each id, reached from hashes[id] by
+     *      linear probing without crossing an empty (0) slot
+     * Safety from rep exposure:
+     *    all fields are private and never returned; Strings are immutable
+     */
+
+    /**
+     * Intern the lower case of a span of characters.
+     *
+     * @param text characters
+     * @param start index of the first character of the name
+     * @param end index just past the last character of the name
+     * @return the id of the name
+     */
+    public int intern(CharSequence text, int start, int end) {
+        int hash = hash(text, start, end);
+        int mask = slots.length - 1;
+        for (int k = hash & mask; ; k = (k + 1) & mask) {
+            int slot = slots[k];
+            if (slot == 0) {
+                return add(text, start, end, hash, k);
+            }
+            int id = slot - 1;
+            if (hashes[id] == hash && matches(names[id], text, start, end)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Intern the lower case of a name.
+     *
+     * @param name a name
+     * @return the id of the name
+     */
+    public int intern(CharSequence name) {
+        return intern(name, 0, name.length());
+    }
+
+    /**
+     * Find the id of a name without interning it.
+     *
+     * @param name a name
+     * @return the id of the lower case of name, or -1 if it has not been interned
+     */
+    public int find(CharSequence name) {
+        int hash = hash(name, 0, name.length());
+        int mask = slots.length - 1;
+        for (int k = hash & mask; ; k = (k + 1) & mask) {
+            int slot = slots[k];
+            if (slot == 0) {
+                return -1;
+            }
+            if (hashes[slot - 1] == hash && matches(names[slot - 1], name, 0, name.length())) {
+                return slot - 1;
+            }
+        }
+    }
+
+    /**
+     * Intern the lower case of a span of characters.
+     *
+     * @param text characters
+     * @param start index of the first character of the name
+     * @param end index just past the last character of the name
+     * @return the shared lower-case String for the name
+     */
+    public String symbol(CharSequence text, int start, int end) {
+        int id = intern(text, start, end); // may grow names
+        return names[id];
+    }
+
+    /**
+     * @param id an id, 0 <= id < size()
+     * @return the lower-case name with that id
+     */
+    public String name(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("symbol " + id + " of " + size);
+        }
+        return names[id];
+    }
+
+    /**
+     * @return number of names interned
+     */
+    public int size() {
+        return size;
+    }
+
+    private int add(CharSequence text, int start, int end, int hash, int slot) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = Character.toLowerCase(text.charAt(i));
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        names[id] = new String(chars);
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        if (size * 2 >= slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int k = hashes[id] & mask;
+            while (slots[k] != 0) {
+                k = (k + 1) & mask;
+            }
+            slots[k] = id + 1;
+        }
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + Character.toLowerCase(text.charAt(i));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String name, CharSequence text, int start, int end) {
+        if (name.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (name.charAt(i - start) != Character.toLowerCase(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,275 @@
+package twitter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A growable list of tweets indexed by timestamp.
+ *
+ * Alongside the tweets in input order, the index keeps their positions sorted
+ * by timestamp, so the earliest and latest timestamps are available in O(1)
+ * and the tweets of a Timespan are found by binary search in O(log n + k),
+ * plus O(k log k) to restore input order when the matches were not added in
+ * time order. Appending a tweet no earlier than every tweet already present
+ * is O(1); a tweet that arrives slightly out of order costs a shift of the
+ * few entries that are later than it.
+ *
+ * Not safe for concurrent modification.
+ */
+public class TimeIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final List<Tweet> tweets = new ArrayList<>();
+    private long[] seconds = new long[INITIAL_CAPACITY];
+    private int[] nanos = new int[INITIAL_CAPACITY];
+    private int[] positions = new int[INITIAL_CAPACITY];
+
+    /*
+     * Abstraction function:
+     *    represents the sequence of tweets in tweets, in input order
+     * Rep invariant:
+     *    seconds.length == nanos.length == positions.length >= tweets.size()
+     *    positions[0..tweets.size()) is a permutation of 0..tweets.size()-1
+     *    for every i < tweets.size(), (seconds[i], nanos[i]) is the timestamp of
+     *      tweets.get(positions[i])
+     *    entries 0..tweets.size() are sorted by (seconds, nanos, positions)
+     * Safety from rep exposure:
+     *    all fields are private; tweets is only returned as an unmodifiable
+     *    view, and results are freshly built lists
+     */
+
+    /**
+     * Make an empty index.
+     */
+    public TimeIndex() {
+    }
+
+    /**
+     * Make an index of the given tweets.
+     *
+     * @param tweets tweets in input order, not modified by this constructor
+     */
+    public TimeIndex(List<Tweet> tweets) {
+        int n = tweets.size();
+        ensureCapacity(n);
+        this.tweets.addAll(tweets);
+        boolean sorted = true;
+        for (int i = 0; i < n; i++) {
+            Instant timestamp = this.tweets.get(i).getTimestamp();
+            seconds[i] = timestamp.getEpochSecond();
+            nanos[i] = timestamp.getNano();
+            positions[i] = i;
+            sorted = sorted && (i == 0 || compare(i - 1, i) <= 0);
+        }
+        if (!sorted) {
+            sortEntries(n);
+        }
+    }
+
+    /**
+     * Append a tweet.
+     *
+     * @param tweet tweet to add after all the tweets already in the index
+     */
+    public void add(Tweet tweet) {
+        int n = tweets.size();
+        ensureCapacity(n + 1);
+        long second = tweet.getTimestamp().getEpochSecond();
+        int nano = tweet.getTimestamp().getNano();
+
+        // find the first entry later than tweet, searching back from the end
+        int insert = n;
+        while (insert > 0 && compare(insert - 1, second, nano) > 0) {
+            insert--;
+        }
+        int shifted = n - insert;
+        System.arraycopy(seconds, insert, seconds, insert + 1, shifted);
+        System.arraycopy(nanos, insert, nanos, insert + 1, shifted);
+        System.arraycopy(positions, insert, positions, insert + 1, shifted);
+        seconds[insert] = second;
+        nanos[insert] = nano;
+        positions[insert] = n;
+        tweets.add(tweet);
+    }
+
+    /**
+     * Append tweets in order.
+     *
+     * @param tweets tweets to add
+     */
+    public void addAll(Iterable<? extends Tweet> tweets) {
+        for (Tweet tweet : tweets) {
+            add(tweet);
+        }
+    }
+
+    /**
+     * @return number of tweets in the index
+     */
+    public int size() {
+        return tweets.size();
+    }
+
+    /**
+     * @return unmodifiable view of the indexed tweets, in input order
+     */
+    public List<Tweet> tweets() {
+        return Collections.unmodifiableList(tweets);
+    }
+
+    /**
+     * @return a minimum-length time interval that contains the timestamp of
+     *         every tweet in the index
+     * @throws IllegalArgumentException if the index is empty
+     */
+    public Timespan timespan() {
+        int n = tweets.size();
+        if (n == 0) {
+            throw new IllegalArgumentException("time index must not be empty");
+        }
+        return new Timespan(Instant.ofEpochSecond(seconds[0], nanos[0]),
+                            Instant.ofEpochSecond(seconds[n - 1], nanos[n - 1]));
+    }
+
+    /**
+     * Find tweets that were sent during a timespan.
+     *
+     * @param timespan timespan
+     * @return all and only the indexed tweets sent during timespan, in input order
+     */
+    public List<Tweet> inTimespan(Timespan timespan) {
+        int[] matches = positionsInTimespan(timespan);
+        List<Tweet> result = new ArrayList<>(matches.length);
+        for (int position : matches) {
+            result.add(tweets.get(position));
+        }
+        return result;
+    }
+
+    /**
+     * Count the tweets sent during a timespan, in O(log n).
+     *
+     * @param timespan timespan
+     * @return number of indexed tweets sent during timespan
+     */
+    public int countInTimespan(Timespan timespan) {
+        return upperBound(timespan.getEnd()) - lowerBound(timespan.getStart());
+    }
+
+    /**
+     * @param timespan timespan
+     * @return input positions of the tweets sent during timespan, in increasing order
+     */
+    int[] positionsInTimespan(Timespan timespan) {
+        int from = lowerBound(timespan.getStart());
+        int to = upperBound(timespan.getEnd());
+        if (from >= to) {
+            return new int[0];
+        }
+        int[] result = Arrays.copyOfRange(positions, from, to);
+        for (int i = 1; i < result.length; i++) {
+            if (result[i - 1] > result[i]) {
+                Arrays.sort(result);
+                break;
+            }
+        }
+        return result;
+    }
+
+    /*
+     * @return index of the first entry not earlier than instant
+     */
+    private int lowerBound(Instant instant) {
+        long second = instant.getEpochSecond();
+        int nano = instant.getNano();
+        int lo = 0;
+        int hi = tweets.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(mid, second, nano) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /*
+     * @return index of the first entry later than instant
+     */
+    private int upperBound(Instant instant) {
+        long second = instant.getEpochSecond();
+        int nano = instant.getNano();
+        int lo = 0;
+        int hi = tweets.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(mid, second, nano) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int compare(int entry, long second, int nano) {
+        int bySecond = Long.compare(seconds[entry], second);
+        return bySecond != 0 ? bySecond : Integer.compare(nanos[entry], nano);
+    }
+
+    private int compare(int entry, int other) {
+        return compare(entry, seconds[other], nanos[other]);
+    }
+
+    /*
+     * Stable merge sort of entries 0..n by timestamp; entries start in
+     * position order, so stability keeps equal timestamps in input order.
+     */
+    private void sortEntries(int n) {
+        int[] order = Arrays.copyOf(positions, n);
+        int[] buffer = new int[n];
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n - width; lo += 2 * width) {
+                int mid = lo + width;
+                int hi = Math.min(lo + 2 * width, n);
+                int i = lo;
+                int j = mid;
+                int k = lo;
+                while (i < mid && j < hi) {
+                    buffer[k++] = compare(order[j], order[i]) < 0 ? order[j++] : order[i++];
+                }
+                while (i < mid) {
+                    buffer[k++] = order[i++];
+                }
+                while (j < hi) {
+                    buffer[k++] = order[j++];
+                }
+                System.arraycopy(buffer, lo, order, lo, hi - lo);
+            }
+        }
+        long[] sortedSeconds = new long[seconds.length];
+        int[] sortedNanos = new int[nanos.length];
+        for (int i = 0; i < n; i++) {
+            sortedSeconds[i] = seconds[order[i]];
+            sortedNanos[i] = nanos[order[i]];
+        }
+        seconds = sortedSeconds;
+        nanos = sortedNanos;
+        System.arraycopy(order, 0, positions, 0, n);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > positions.length) {
+            int grown = Math.max(capacity, positions.length + (positions.length >> 1));
+            seconds = Arrays.copyOf(seconds, grown);
+            nanos = Arrays.copyOf(nanos, grown);
+            positions = Arrays.copyOf(positions, grown);
+        }
+    }
+}
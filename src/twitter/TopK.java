@@ -0,0 +1,129 @@
+package twitter;
+
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * Selects the best k ids under a total order, with a bounded binary heap of
+ * ids: O(n log k) time and O(k) extra space, without boxing scores or
+ * sorting the ids that are not selected.
+ */
+class TopK {
+
+    /**
+     * A strict total order on ids.
+     */
+    interface Order {
+
+        /**
+         * @return true iff id a ranks strictly before id b
+         */
+        boolean better(int a, int b);
+    }
+
+    private TopK() {
+    }
+
+    /**
+     * @param counts counts[id] for each id in 0..n-1
+     * @param n number of ids
+     * @param name name of each id, distinct for distinct ids
+     * @param k maximum number of ids to return, >= 0
+     * @return the min(k, m) best of the m ids with a positive count, best
+     *         first: higher count first, then lower name
+     * @throws IllegalArgumentException if k < 0
+     */
+    static int[] select(int[] counts, int n, IntFunction<String> name, int k) {
+        return select(n, id -> counts[id] > 0, (a, b) -> counts[a] != counts[b]
+                ? counts[a] > counts[b]
+                : name.apply(a).compareTo(name.apply(b)) < 0, k);
+    }
+
+    /**
+     * @param scores scores[id] for each id in 0..n-1, none NaN
+     * @param n number of ids
+     * @param name name of each id, distinct for distinct ids
+     * @param k maximum number of ids to return, >= 0
+     * @return the min(k, n) best ids, best first: higher score first, then lower name
+     * @throws IllegalArgumentException if k < 0
+     */
+    static int[] select(double[] scores, int n, IntFunction<String> name, int k) {
+        return select(n, id -> true, (a, b) -> scores[a] != scores[b]
+                ? scores[a] > scores[b]
+                : name.apply(a).compareTo(name.apply(b)) < 0, k);
+    }
+
+    /**
+     * @param n number of ids
+     * @param include which of the ids 0..n-1 may be selected
+     * @param order ranking of the ids
+     * @param k maximum number of ids to return, >= 0
+     * @return the min(k, m) best of the m included ids, best first
+     * @throws IllegalArgumentException if k < 0
+     */
+    static int[] select(int n, IntPredicate include, Order order, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be nonnegative: " + k);
+        }
+        int capacity = Math.min(k, n);
+        int[] heap = new int[capacity];
+        int size = 0;
+        // heap[0] is the worst id kept so far
+        for (int id = 0; id < n; id++) {
+            if (!include.test(id)) {
+                continue;
+            }
+            if (size < capacity) {
+                heap[size] = id;
+                siftUp(heap, size++, order);
+            } else if (capacity > 0 && order.better(id, heap[0])) {
+                heap[0] = id;
+                siftDown(heap, size, order);
+            }
+        }
+        // heapsort: repeatedly move the worst id to the end
+        int[] result = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = heap[0];
+            heap[0] = heap[i];
+            siftDown(heap, i, order);
+        }
+        return result;
+    }
+
+    private static void siftUp(int[] heap, int i, Order order) {
+        int id = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!order.better(heap[parent], id)) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = id;
+    }
+
+    private static void siftDown(int[] heap, int size, Order order) {
+        if (size == 0) {
+            return;
+        }
+        int id = heap[0];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && order.better(heap[child], heap[child + 1])) {
+                child++;
+            }
+            if (!order.better(id, heap[child])) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = id;
+    }
+}
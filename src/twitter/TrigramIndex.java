@@ -0,0 +1,251 @@
+package twitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A growable list of tweets indexed by the trigrams (three consecutive
+ * chars) of their lower-cased texts, for substring search.
+ *
+ * A text can contain a word only if it contains every trigram of the word,
+ * so the tweets that may contain a word of three or more chars are found by
+ * intersecting the posting lists of its trigrams, and the tweets that may
+ * contain one of several words by uniting those intersections. Each
+ * candidate is then checked against its real text with a KeywordMatcher, so
+ * results are exactly those of Filter.containing: a text contains a word iff
+ * text.toLowerCase(Locale.ROOT) contains word.toLowerCase(Locale.ROOT).
+ * Words shorter than three chars have no trigram to narrow the search, and
+ * make the query check every tweet.
+ *
+ * The index keeps one PostingList per distinct trigram, and no copy of the
+ * texts; footprintBytes() estimates its size.
+ *
+ * Not safe for concurrent modification.
+ */
+public class TrigramIndex {
+
+    private final List<Tweet> tweets = new ArrayList<>();
+    private final LongIntHashMap trigramIds = new LongIntHashMap();
+    private final List<PostingList> postings = new ArrayList<>();
+
+    /*
+     * Abstraction function:
+     *    represents the sequence of tweets in tweets, in input order
+     * Rep invariant:
+     *    trigramIds maps the key of each trigram (see key()) of the lower-cased
+     *      text of some tweet to 1 + its index in postings, and has no other keys
+     *    postings.get(id) is the nonempty, increasing list of positions of the
+     *      tweets whose lower-cased text contains the trigram with that id
+     * Safety from rep exposure:
+     *    all fields are private; tweets is only returned as an unmodifiable
+     *    view, and results are freshly built lists
+     */
+
+    /**
+     * Make an empty index.
+     */
+    public TrigramIndex() {
+    }
+
+    /**
+     * Make an index of the given tweets.
+     *
+     * @param tweets tweets in input order, not modified by this constructor
+     */
+    public TrigramIndex(List<Tweet> tweets) {
+        addAll(tweets);
+    }
+
+    /**
+     * Append a tweet.
+     *
+     * @param tweet tweet to add after all the tweets already in the index
+     */
+    public void add(Tweet tweet) {
+        int position = tweets.size();
+        String folded = tweet.getText().toLowerCase(Locale.ROOT);
+        for (int i = 0; i + 3 <= folded.length(); i++) {
+            long key = key(folded, i);
+            int id = trigramIds.get(key) - 1;
+            if (id < 0) {
+                id = postings.size();
+                postings.add(new PostingList());
+                trigramIds.add(key, id + 1);
+            }
+            PostingList list = postings.get(id);
+            if (list.last() != position) {
+                list.add(position);
+            }
+        }
+        tweets.add(tweet);
+    }
+
+    /**
+     * Append tweets in order.
+     *
+     * @param tweets tweets to add
+     */
+    public void addAll(Iterable<? extends Tweet> tweets) {
+        for (Tweet tweet : tweets) {
+            add(tweet);
+        }
+    }
+
+    /**
+     * @return number of tweets in the index
+     */
+    public int size() {
+        return tweets.size();
+    }
+
+    /**
+     * @return unmodifiable view of the indexed tweets, in input order
+     */
+    public List<Tweet> tweets() {
+        return Collections.unmodifiableList(tweets);
+    }
+
+    /**
+     * @return number of distinct trigrams in the index
+     */
+    public int trigramCount() {
+        return postings.size();
+    }
+
+    /**
+     * Find tweets that contain at least one of the specified words.
+     *
+     * @param words words to search for, case-insensitive
+     * @return all and only the indexed tweets that contain at least one of
+     *         the words (in any case), in input order, as Filter.containing
+     */
+    public List<Tweet> containing(List<String> words) {
+        return containing(KeywordMatcher.compile(words));
+    }
+
+    /**
+     * Find tweets that contain at least one of the words of a compiled
+     * matcher.
+     *
+     * @param words matcher for the words to search for
+     * @return all and only the indexed tweets that contain at least one of
+     *         the words (in any case), in input order, as Filter.containing
+     */
+    public List<Tweet> containing(KeywordMatcher words) {
+        List<Tweet> result = new ArrayList<>();
+        int[] candidates = candidates(words.words());
+        if (candidates == null) {
+            for (Tweet tweet : tweets) {
+                if (words.matchesAny(tweet.getText())) {
+                    result.add(tweet);
+                }
+            }
+        } else {
+            for (int position : candidates) {
+                Tweet tweet = tweets.get(position);
+                if (words.matchesAny(tweet.getText())) {
+                    result.add(tweet);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param words words to search for, case-insensitive
+     * @return number of tweets the index narrows a search for words to,
+     *         before they are checked against their text
+     */
+    public int candidateCount(List<String> words) {
+        int[] candidates = candidates(words);
+        return candidates == null ? tweets.size() : candidates.length;
+    }
+
+    /**
+     * Estimate the memory taken by the index itself, not counting the
+     * tweets: the encoded posting lists and their skip entries, the headers
+     * and spare capacity of their arrays, and the hash table of trigrams.
+     *
+     * @return approximate size of the index in bytes
+     */
+    public long footprintBytes() {
+        // PostingList object, two arrays and their headers, and the reference to it
+        final long perList = 24 + 16 + 16 + 16 + 4;
+        long bytes = 0;
+        for (PostingList list : postings) {
+            bytes += perList + list.capacityBytes();
+        }
+        long slots = Integer.highestOneBit(Math.max(1, trigramIds.size()) * 2) * 2L;
+        return bytes + slots * (8 + 4) + 4L * tweets.size();
+    }
+
+    /*
+     * Positions, in increasing order, of the tweets that contain every
+     * trigram of at least one of words, or null if some word is too short
+     * to have a trigram and every tweet is a candidate.
+     */
+    private int[] candidates(List<String> words) {
+        long[] bits = new long[(tweets.size() + 63) >>> 6];
+        for (String word : words) {
+            String folded = word.toLowerCase(Locale.ROOT);
+            if (folded.length() < 3) {
+                return null;
+            }
+            List<PostingList> lists = new ArrayList<>();
+            boolean possible = true;
+            for (int i = 0; i + 3 <= folded.length() && possible; i++) {
+                int id = trigramIds.get(key(folded, i)) - 1;
+                if (id < 0) {
+                    possible = false;
+                } else {
+                    lists.add(postings.get(id));
+                }
+            }
+            if (possible) {
+                intersect(lists, bits);
+            }
+        }
+        IntList result = new IntList();
+        for (int w = 0; w < bits.length; w++) {
+            for (long word = bits[w]; word != 0; word &= word - 1) {
+                result.add((w << 6) + Long.numberOfTrailingZeros(word));
+            }
+        }
+        return result.toArray();
+    }
+
+    /*
+     * Set in bits the positions that are in every one of lists.
+     */
+    private static void intersect(List<PostingList> lists, long[] bits) {
+        lists.sort(Comparator.comparingInt(PostingList::count));
+        PostingList.Cursor first = lists.get(0).cursor();
+        PostingList.Cursor[] others = new PostingList.Cursor[lists.size() - 1];
+        for (int k = 0; k < others.length; k++) {
+            others[k] = lists.get(k + 1).cursor();
+        }
+        candidates:
+        while (first.next()) {
+            int candidate = first.position();
+            for (PostingList.Cursor other : others) {
+                if (!other.advance(candidate)) {
+                    return;
+                }
+                if (other.position() != candidate) {
+                    continue candidates;
+                }
+            }
+            bits[candidate >>> 6] |= 1L << candidate;
+        }
+    }
+
+    /*
+     * Trigram starting at index i of s, packed in the low 48 bits.
+     */
+    private static long key(String s, int i) {
+        return (long) s.charAt(i) << 32 | (long) s.charAt(i + 1) << 16 | s.charAt(i + 2);
+    }
+}
@@ -0,0 +1,642 @@
+package twitter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Read-only, memory-mapped archive of tweets in a compact binary format.
+ *
+ * An archive file holds, little-endian:
+ *  - a 64-byte header: magic "TWARCH01", tweet count, author count, maximum
+ *    text length, and the offsets of the sections below
+ *  - the text heap: the UTF-8 bytes of every tweet's text, back to back
+ *  - the records: one 40-byte record per tweet, in input order, holding its
+ *    id (8 bytes), epoch second (8), nanosecond (4), author id (4), and the
+ *    offset in the text heap (8) and UTF-8 length (4) of its text, padded
+ *    to 40 bytes
+ *  - the author dictionary: author count + 1 int offsets into the author
+ *    bytes, followed by the UTF-8 bytes of each distinct username
+ *
+ * Opening an archive reads only the header and the author offsets and maps
+ * the rest with FileChannel.map, so it costs the same for any number of
+ * tweets; the operating system pages data in as it is touched. Sections
+ * larger than a MappedByteBuffer can hold are mapped in chunks: record
+ * chunks hold a whole number of records, and text chunks overlap by the
+ * maximum text length, so every value lies wholly inside one chunk. Fields
+ * are read in place, texts are available as read-only views of their UTF-8
+ * bytes, and Tweets are only built on request.
+ *
+ * Archives are written by Writer, or converted from TweetReader's JSON input
+ * by convert(). A Writer builds the archive in a temporary file and only
+ * moves it into place once it is complete, so a failed write never leaves a
+ * truncated archive that open() would accept. An open archive is immutable
+ * and safe to share between threads.
+ */
+public class TweetArchive implements Closeable {
+
+    private static final long MAGIC = 0x3130484352415754L; // "TWARCH01", little-endian
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 40;
+    private static final int RECORD_ID = 0;
+    private static final int RECORD_SECOND = 8;
+    private static final int RECORD_NANO = 16;
+    private static final int RECORD_AUTHOR = 20;
+    private static final int RECORD_TEXT_OFFSET = 24;
+    private static final int RECORD_TEXT_LENGTH = 32;
+    private static final long DEFAULT_CHUNK_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int authorCount;
+    private final Region records;
+    private final Region texts;
+    private final Region authors;
+    private final int[] authorOffsets;
+    private final String[] authorNames;
+
+    /*
+     * Abstraction function:
+     *    represents the sequence of tweets whose i-th tweet has the id,
+     *    timestamp, author and text of the i-th record
+     * Rep invariant:
+     *    records holds size records; authorOffsets.length == authorCount + 1,
+     *      nondecreasing, with authors holding authorOffsets[authorCount] bytes
+     *    each record's author id is in 0..authorCount-1 and its text range
+     *      lies inside texts
+     *    authorNames[a] is null or the decoded name of author a
+     * Safety from rep exposure:
+     *    all fields are private; buffers are only returned as read-only
+     *    views, and Tweets and Strings are immutable
+     * Thread safety argument:
+     *    buffers are only read with absolute gets, through duplicates when a
+     *    view is returned; authorNames is a benign-race cache of immutable
+     *    Strings, each decoded from immutable data
+     */
+
+    private TweetArchive(FileChannel channel, long chunkSize) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("not a tweet archive: file too short");
+            }
+        }
+        header.flip();
+        if (header.getLong(0) != MAGIC) {
+            throw new IOException("not a tweet archive: bad magic number");
+        }
+        this.size = header.getLong(8);
+        this.authorCount = header.getInt(16);
+        int maxTextLength = header.getInt(20);
+        long textOffset = header.getLong(24);
+        long recordsOffset = header.getLong(32);
+        long authorsOffset = header.getLong(40);
+        long end = header.getLong(48);
+        if (size < 0 || authorCount < 0 || maxTextLength < 0
+                || textOffset != HEADER_SIZE || recordsOffset < textOffset
+                || authorsOffset != recordsOffset + size * RECORD_SIZE
+                || end < authorsOffset || end > channel.size()) {
+            throw new IOException("not a tweet archive: inconsistent header");
+        }
+        this.texts = new Region(channel, textOffset, recordsOffset - textOffset, chunkSize, maxTextLength);
+        this.records = new Region(channel, recordsOffset, size * RECORD_SIZE,
+                                  chunkSize - chunkSize % RECORD_SIZE, 0);
+        if (end - authorsOffset > Integer.MAX_VALUE) {
+            throw new IOException("author dictionary too large: " + (end - authorsOffset) + " bytes");
+        }
+        this.authors = new Region(channel, authorsOffset, end - authorsOffset,
+                                  Math.max(1, end - authorsOffset), 0);
+
+        this.authorOffsets = new int[authorCount + 1];
+        long authorBytes = 4L * (authorCount + 1);
+        for (int a = 0; a <= authorCount; a++) {
+            authorOffsets[a] = authors.getInt(4L * a);
+            if (authorOffsets[a] < (a == 0 ? 0 : authorOffsets[a - 1])
+                    || authorBytes + authorOffsets[a] > end - authorsOffset) {
+                throw new IOException("not a tweet archive: bad author dictionary");
+            }
+        }
+        this.authorNames = new String[authorCount];
+    }
+
+    /**
+     * Open an archive.
+     *
+     * @param path archive file written by Writer or convert()
+     * @return the open archive; must be closed
+     * @throws IOException if the file cannot be read or is not a tweet archive
+     */
+    public static TweetArchive open(Path path) throws IOException {
+        return open(path, DEFAULT_CHUNK_SIZE);
+    }
+
+    /*
+     * Open with a given maximum mapping size, so tests can exercise chunking.
+     */
+    static TweetArchive open(Path path, long chunkSize) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new TweetArchive(channel, chunkSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Convert tweets in TweetReader's JSON format to an archive, reading the
+     * JSON one tweet at a time.
+     *
+     * @param json JSON array of tweets
+     * @param archive file to write; replaced if it exists, and left as it
+     *                was if the conversion fails
+     * @return number of tweets written
+     * @throws IOException if reading or writing fails
+     * @throws javax.json.JsonException if the JSON is malformed
+     */
+    public static long convert(Reader json, Path archive) throws IOException {
+        try (Writer writer = new Writer(archive);
+             StreamingTweetReader.TweetIterator tweets = StreamingTweetReader.iterator(json)) {
+            while (tweets.hasNext()) {
+                writer.add(tweets.next());
+            }
+            writer.finish();
+            return writer.count;
+        }
+    }
+
+    /**
+     * Write tweets to an archive.
+     *
+     * @param tweets tweets, in the order to store them
+     * @param archive file to write; replaced if it exists, and left as it
+     *                was if writing fails
+     * @throws IOException if writing fails
+     */
+    public static void write(Iterable<? extends Tweet> tweets, Path archive) throws IOException {
+        try (Writer writer = new Writer(archive)) {
+            for (Tweet tweet : tweets) {
+                writer.add(tweet);
+            }
+            writer.finish();
+        }
+    }
+
+    /**
+     * @return number of tweets in the archive
+     * @throws IllegalStateException if the archive holds more tweets than a List can
+     */
+    public int size() {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("archive holds " + size + " tweets");
+        }
+        return (int) size;
+    }
+
+    /**
+     * @return number of tweets in the archive
+     */
+    public long longSize() {
+        return size;
+    }
+
+    /**
+     * @return number of distinct authors
+     */
+    public int authorCount() {
+        return authorCount;
+    }
+
+    /**
+     * @param i index of a tweet, 0 <= i < longSize()
+     * @return id of tweet i
+     */
+    public long id(long i) {
+        return records.getLong(record(i) + RECORD_ID);
+    }
+
+    /**
+     * @param i index of a tweet, 0 <= i < longSize()
+     * @return timestamp of tweet i, in seconds since the epoch
+     */
+    public long epochSecond(long i) {
+        return records.getLong(record(i) + RECORD_SECOND);
+    }
+
+    /**
+     * @param i index of a tweet, 0 <= i < longSize()
+     * @return timestamp of tweet i
+     */
+    public Instant timestamp(long i) {
+        long record = record(i);
+        return Instant.ofEpochSecond(records.getLong(record + RECORD_SECOND),
+                                     records.getInt(record + RECORD_NANO));
+    }
+
+    /**
+     * @param i index of a tweet, 0 <= i < longSize()
+     * @return author id of tweet i, in 0..authorCount()-1; equal ids mean
+     *         equal usernames, including case
+     */
+    public int authorId(long i) {
+        return records.getInt(record(i) + RECORD_AUTHOR);
+    }
+
+    /**
+     * @param authorId author id, 0 <= authorId < authorCount()
+     * @return the username with that id
+     */
+    public String authorName(int authorId) {
+        String name = authorNames[authorId];
+        if (name == null) {
+            int from = authorOffsets[authorId];
+            int to = authorOffsets[authorId + 1];
+            name = authors.getString(4L * (authorCount + 1) + from, to - from);
+            authorNames[authorId] = name;
+        }
+        return name;
+    }
+
+    /**
+     * @param i index of a tweet, 0 <= i < longSize()
+     * @return author of tweet i
+     */
+    public String author(long i) {
+        return authorName(authorId(i));
+    }
+
+    /**
+     * @param i index of a tweet, 0 <= i < longSize()
+     * @return read-only view of the UTF-8 bytes of the text of tweet i,
+     *         positioned at the start of the text with its length remaining
+     */
+    public ByteBuffer textBytes(long i) {
+        long record = record(i);
+        return texts.slice(records.getLong(record + RECORD_TEXT_OFFSET),
+                           records.getInt(record + RECORD_TEXT_LENGTH));
+    }
+
+    /**
+     * @param i index of a tweet, 0 <= i < longSize()
+     * @return text of tweet i
+     */
+    public String text(long i) {
+        long record = record(i);
+        return texts.getString(records.getLong(record + RECORD_TEXT_OFFSET),
+                               records.getInt(record + RECORD_TEXT_LENGTH));
+    }
+
+    /**
+     * @param i index of a tweet, 0 <= i < longSize()
+     * @return tweet i
+     */
+    public Tweet get(long i) {
+        return new Tweet(id(i), author(i), text(i), timestamp(i));
+    }
+
+    /**
+     * @return unmodifiable list view of the archive, building each Tweet
+     *         when it is read; valid until the archive is closed
+     */
+    public List<Tweet> asList() {
+        int n = size();
+        class View extends AbstractList<Tweet> implements RandomAccess {
+            @Override public Tweet get(int i) {
+                if (i < 0 || i >= n) {
+                    throw new IndexOutOfBoundsException("index " + i + " of " + n);
+                }
+                return TweetArchive.this.get(i);
+            }
+
+            @Override public int size() {
+                return n;
+            }
+        }
+        return new View();
+    }
+
+    /**
+     * @return a new list holding every tweet of the archive, in order
+     */
+    public List<Tweet> toList() {
+        return new ArrayList<>(asList());
+    }
+
+    /**
+     * Close the file. Views and buffers returned earlier must not be used
+     * afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private long record(long i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("tweet " + i + " of " + size);
+        }
+        return i * RECORD_SIZE;
+    }
+
+    /**
+     * Writes an archive one tweet at a time. Texts go straight to a temporary
+     * file next to the target; records are written to a second temporary file
+     * and copied after the texts by finish(), and the author dictionary is
+     * kept in memory. finish() then writes the header and moves the archive
+     * into place. Closing a writer without finishing it discards what was
+     * written and leaves the target untouched.
+     */
+    public static class Writer implements Closeable {
+
+        private final Path path;
+        private final Path partialPath;
+        private final Path recordsPath;
+        private final FileChannel out;
+        private final FileChannel recordsOut;
+        private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final Map<String, Integer> authorIds = new HashMap<>();
+        private final List<String> authors = new ArrayList<>();
+        private long textEnd = 0;
+        private int maxTextLength = 0;
+        private long count = 0;
+        private boolean closed = false;
+
+        /*
+         * Abstraction function:
+         *    represents a writer that has written count tweets for path, to
+         *    partialPath until it is finished
+         * Rep invariant:
+         *    authors.get(authorIds.get(a)).equals(a) for every key a
+         *    textEnd == total UTF-8 length of the texts written
+         */
+
+        /**
+         * Start writing an archive.
+         *
+         * @param path file to write; replaced when the writer is finished
+         * @throws IOException if the temporary files cannot be created; any
+         *                     that were are closed and deleted
+         */
+        public Writer(Path path) throws IOException {
+            this.path = path;
+            Path parent = path.toAbsolutePath().getParent();
+            String prefix = path.getFileName().toString();
+            Path partial = null;
+            Path records = null;
+            FileChannel partialChannel = null;
+            FileChannel recordsChannel = null;
+            try {
+                partial = Files.createTempFile(parent, prefix, ".partial");
+                records = Files.createTempFile(parent, prefix, ".records");
+                partialChannel = FileChannel.open(partial, StandardOpenOption.WRITE);
+                recordsChannel = FileChannel.open(records, StandardOpenOption.WRITE,
+                                                  StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+                partialChannel.position(HEADER_SIZE);
+            } catch (IOException | RuntimeException e) {
+                for (FileChannel channel : new FileChannel[] { partialChannel, recordsChannel }) {
+                    if (channel != null) {
+                        try {
+                            channel.close();
+                        } catch (IOException suppressed) {
+                            e.addSuppressed(suppressed);
+                        }
+                    }
+                }
+                for (Path created : new Path[] { partial, records }) {
+                    if (created != null) {
+                        try {
+                            Files.deleteIfExists(created);
+                        } catch (IOException suppressed) {
+                            e.addSuppressed(suppressed);
+                        }
+                    }
+                }
+                throw e;
+            }
+            this.partialPath = partial;
+            this.recordsPath = records;
+            this.out = partialChannel;
+            this.recordsOut = recordsChannel;
+        }
+
+        /**
+         * Append a tweet.
+         *
+         * @param tweet tweet to write
+         * @throws IOException if writing fails
+         */
+        public void add(Tweet tweet) throws IOException {
+            if (closed) {
+                throw new IllegalStateException("writer is closed");
+            }
+            byte[] text = tweet.getText().getBytes(StandardCharsets.UTF_8);
+            writeFully(out, ByteBuffer.wrap(text));
+            long textOffset = textEnd;
+            textEnd += text.length;
+            maxTextLength = Math.max(maxTextLength, text.length);
+
+            Integer author = authorIds.get(tweet.getAuthor());
+            if (author == null) {
+                author = authors.size();
+                authorIds.put(tweet.getAuthor(), author);
+                authors.add(tweet.getAuthor());
+            }
+            record.clear();
+            record.putLong(RECORD_ID, tweet.getId());
+            record.putLong(RECORD_SECOND, tweet.getTimestamp().getEpochSecond());
+            record.putInt(RECORD_NANO, tweet.getTimestamp().getNano());
+            record.putInt(RECORD_AUTHOR, author);
+            record.putLong(RECORD_TEXT_OFFSET, textOffset);
+            record.putInt(RECORD_TEXT_LENGTH, text.length);
+            writeFully(recordsOut, record);
+            count++;
+        }
+
+        /**
+         * Finish the archive: append the records and author dictionary, write
+         * the header, and move the archive to the target path, replacing any
+         * file there. Closes the writer.
+         *
+         * @throws IOException if writing fails; the target is then left as it was
+         * @throws IllegalStateException if the writer is already closed
+         */
+        public void finish() throws IOException {
+            if (closed) {
+                throw new IllegalStateException("writer is closed");
+            }
+            closed = true;
+            try {
+                long recordsOffset = HEADER_SIZE + textEnd;
+                long copied = 0;
+                long recordBytes = recordsOut.size();
+                while (copied < recordBytes) {
+                    copied += recordsOut.transferTo(copied, recordBytes - copied, out);
+                }
+
+                long authorsOffset = recordsOffset + recordBytes;
+                List<byte[]> names = new ArrayList<>(authors.size());
+                ByteBuffer offsets = ByteBuffer.allocate(4 * (authors.size() + 1)).order(ByteOrder.LITTLE_ENDIAN);
+                int offset = 0;
+                offsets.putInt(offset);
+                for (String author : authors) {
+                    byte[] name = author.getBytes(StandardCharsets.UTF_8);
+                    names.add(name);
+                    offset += name.length;
+                    offsets.putInt(offset);
+                }
+                offsets.flip();
+                writeFully(out, offsets);
+                for (byte[] name : names) {
+                    writeFully(out, ByteBuffer.wrap(name));
+                }
+                long end = out.position();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putLong(0, MAGIC);
+                header.putLong(8, count);
+                header.putInt(16, authors.size());
+                header.putInt(20, maxTextLength);
+                header.putLong(24, HEADER_SIZE);
+                header.putLong(32, recordsOffset);
+                header.putLong(40, authorsOffset);
+                header.putLong(48, end);
+                out.position(0);
+                writeFully(out, header);
+                out.force(false);
+                closeFiles();
+                try {
+                    Files.move(partialPath, path, StandardCopyOption.REPLACE_EXISTING,
+                               StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(partialPath, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                discard();
+            }
+        }
+
+        /**
+         * Close the writer. If it was not finished, discard the tweets written
+         * so far and leave the target as it was.
+         *
+         * @throws IOException if the temporary files cannot be removed
+         */
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            discard();
+        }
+
+        /*
+         * Close both files and delete whatever temporary files remain.
+         */
+        private void discard() throws IOException {
+            try {
+                closeFiles();
+            } finally {
+                try {
+                    Files.deleteIfExists(partialPath);
+                } finally {
+                    Files.deleteIfExists(recordsPath);
+                }
+            }
+        }
+
+        private void closeFiles() throws IOException {
+            try {
+                recordsOut.close();
+            } finally {
+                out.close();
+            }
+        }
+
+        private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+            buffer.rewind();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /*
+     * A section of the file, mapped read-only in chunks of at most chunkSize
+     * bytes that start every chunkSize - overlap bytes. A value lies in the
+     * chunk its first byte falls in if it is at most overlap bytes long, or
+     * if values are aligned so that none crosses a multiple of the stride.
+     */
+    private static final class Region {
+        private final long length;
+        private final long stride;
+        private final MappedByteBuffer[] chunks;
+
+        private Region(FileChannel channel, long offset, long length, long chunkSize, int overlap)
+                throws IOException {
+            if (overlap >= chunkSize) {
+                throw new IOException("values of " + overlap + " bytes do not fit chunks of " + chunkSize);
+            }
+            this.length = length;
+            this.stride = chunkSize - overlap;
+            int count = (int) Math.max(1, (length + stride - 1) / stride);
+            this.chunks = new MappedByteBuffer[count];
+            for (int c = 0; c < count; c++) {
+                long start = c * stride;
+                long size = Math.min(chunkSize, length - start);
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, Math.max(0, size));
+                chunks[c].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        private ByteBuffer chunk(long position) {
+            return chunks[(int) (position / stride)];
+        }
+
+        private int index(long position) {
+            return (int) (position % stride);
+        }
+
+        private long getLong(long position) {
+            return chunk(position).getLong(index(position));
+        }
+
+        private int getInt(long position) {
+            return chunk(position).getInt(index(position));
+        }
+
+        private ByteBuffer slice(long position, int size) {
+            if (position < 0 || position + size > length) {
+                throw new IndexOutOfBoundsException("bytes " + position + "+" + size + " of " + length);
+            }
+            if (size == 0) {
+                // position may be past the last chunk
+                return ByteBuffer.allocate(0).asReadOnlyBuffer();
+            }
+            ByteBuffer view = chunk(position).asReadOnlyBuffer();
+            view.position(index(position)).limit(index(position) + size);
+            return view.slice();
+        }
+
+        private String getString(long position, int size) {
+            byte[] bytes = new byte[size];
+            slice(position, size).get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package twitter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.json.JsonException;
+import javax.json.stream.JsonParser;
+
+/**
+ * Decodes tweet objects directly from a JsonParser by following a fixed set of
+ * key paths, compiled once into a trie.
+ *
+ * Only the four values a Tweet needs are read. Keys that lead nowhere in the
+ * trie have their values skipped event by event, so subtrees such as entities
+ * or retweeted_status are consumed without building any strings, maps or
+ * JsonValues for them. Arrays are never descended into.
+ *
+ * Instances are immutable and may be shared between threads.
+ */
+public class TweetDecoder {
+
+    /** Decoder for the key paths used by TweetReader and the tweet sample server. */
+    public static final TweetDecoder DEFAULT = compile("id", "user.screen_name", "text", "created_at");
+
+    private static final int ID = 0;
+    private static final int AUTHOR = 1;
+    private static final int TEXT = 2;
+    private static final int CREATED_AT = 3;
+    private static final int FIELD_COUNT = 4;
+
+    private final Node root;
+    private final String[] paths;
+
+    /*
+     * Abstraction function:
+     *    represents the decoder that reads field i of a Tweet from key path paths[i]
+     * Rep invariant:
+     *    paths.length == FIELD_COUNT
+     *    for each i, root reaches a node with field == i both by following the
+     *      '.'-separated segments of paths[i] and by the single key paths[i]
+     * Safety from rep exposure:
+     *    all fields are private and final, and nodes never leave this class
+     */
+
+    private TweetDecoder(Node root, String[] paths) {
+        this.root = root;
+        this.paths = paths;
+    }
+
+    /**
+     * Compile a decoder for the given key paths. A key path names a value by
+     * the keys of the objects enclosing it, joined by '.', e.g. "user.screen_name".
+     * Each path is also matched as a single literal key, so flattened inputs
+     * like {"user.screen_name": ...} decode the same way as nested ones.
+     *
+     * @param idPath key path of the tweet id, a JSON number or numeric string
+     * @param authorPath key path of the author's username
+     * @param textPath key path of the tweet text
+     * @param createdAtPath key path of the creation time, in TwitterDate.FORMAT
+     * @return a decoder for those paths
+     */
+    public static TweetDecoder compile(String idPath, String authorPath, String textPath, String createdAtPath) {
+        String[] paths = { idPath, authorPath, textPath, createdAtPath };
+        Node root = new Node(null);
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            root.insert(paths[field], field);
+            Node node = root;
+            for (String segment : paths[field].split("\\.", -1)) {
+                node = node.childOrCreate(segment);
+            }
+            node.setField(paths[field], field);
+        }
+        return new TweetDecoder(root, paths);
+    }
+
+    /**
+     * Decode one tweet object.
+     *
+     * @param parser a parser whose last event was the START_OBJECT of a tweet;
+     *               on return its last event is the matching END_OBJECT.
+     * @return the tweet described by the object
+     * @throws JsonException if a required value is missing or malformed
+     */
+    public Tweet decode(JsonParser parser) {
+        String id = null;
+        String author = null;
+        String text = null;
+        String createdAt = null;
+        int found = 0;
+
+        Node node = root;
+        while (true) {
+            JsonParser.Event event = parser.next();
+            if (event == JsonParser.Event.END_OBJECT) {
+                if (node == root) {
+                    break;
+                }
+                node = node.parent;
+                continue;
+            }
+            // inside an object every other event is a KEY_NAME
+            Node child = found == FIELD_COUNT ? null : node.children.get(parser.getString());
+            JsonParser.Event value = parser.next();
+            if (child == null) {
+                skip(parser, value);
+            } else if (value == JsonParser.Event.START_OBJECT && !child.children.isEmpty()) {
+                node = child;
+            } else if ((value == JsonParser.Event.VALUE_STRING || value == JsonParser.Event.VALUE_NUMBER)
+                    && child.field >= 0) {
+                switch (child.field) {
+                case ID:
+                    if (id == null) { id = parser.getString(); found++; }
+                    break;
+                case AUTHOR:
+                    if (author == null) { author = parser.getString(); found++; }
+                    break;
+                case TEXT:
+                    if (text == null) { text = parser.getString(); found++; }
+                    break;
+                default:
+                    if (createdAt == null) { createdAt = parser.getString(); found++; }
+                    break;
+                }
+            } else {
+                skip(parser, value);
+            }
+        }
+
+        return new Tweet(parseId(required(id, ID)),
+                         required(author, AUTHOR),
+                         required(text, TEXT),
+                         TwitterDate.parse(required(createdAt, CREATED_AT)));
+    }
+
+    /*
+     * Consume the rest of a value whose first event has already been read.
+     */
+    private static void skip(JsonParser parser, JsonParser.Event first) {
+        if (first != JsonParser.Event.START_OBJECT && first != JsonParser.Event.START_ARRAY) {
+            return;
+        }
+        int depth = 1;
+        while (depth > 0) {
+            switch (parser.next()) {
+            case START_OBJECT:
+            case START_ARRAY:
+                depth++;
+                break;
+            case END_OBJECT:
+            case END_ARRAY:
+                depth--;
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    private String required(String value, int field) {
+        if (value == null) {
+            throw new JsonException("tweet is missing " + paths[field]);
+        }
+        return value;
+    }
+
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException nfe) {
+            throw new JsonException("tweet id is not a long: " + id, nfe);
+        }
+    }
+
+    /*
+     * Node of the key-path trie: one node per object key on some path.
+     */
+    private static final class Node {
+        private final Node parent;
+        private final Map<String, Node> children = new HashMap<>();
+        private int field = -1;
+
+        private Node(Node parent) {
+            this.parent = parent;
+        }
+
+        private Node childOrCreate(String key) {
+            return children.computeIfAbsent(key, k -> new Node(this));
+        }
+
+        private void insert(String literalKey, int field) {
+            childOrCreate(literalKey).setField(literalKey, field);
+        }
+
+        private void setField(String path, int field) {
+            if (this.field >= 0 && this.field != field) {
+                throw new IllegalArgumentException("key path " + path + " is used for two fields");
+            }
+            this.field = field;
+        }
+    }
+}
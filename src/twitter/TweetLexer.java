@@ -0,0 +1,96 @@
+package twitter;
+
+/**
+ * Single-pass scanner for the mentions and hashtags in the text of a tweet.
+ *
+ * A mention is "@" followed by a Twitter username (as defined by
+ * Tweet.getAuthor()'s spec) that is not immediately preceded or followed by
+ * a character valid in a Twitter username, the rule of
+ * Extract.getMentionedUsers. So bitdiddle@mit.edu does not mention mit.
+ *
+ * A hashtag is "#" followed by one or more letters, digits or underscores.
+ *
+ * Tokens are reported as spans of the text, so scanning allocates nothing;
+ * a SymbolTable turns spans into shared lower-case Strings when needed.
+ */
+public class TweetLexer {
+
+    /**
+     * Receives the tokens found by scan(). Both methods do nothing by default.
+     */
+    public interface Handler {
+
+        /**
+         * Called for each mention, in text order.
+         *
+         * @param text text being scanned
+         * @param start index of the first character of the username (after the "@")
+         * @param end index just past the last character of the username
+         */
+        default void mention(CharSequence text, int start, int end) {
+        }
+
+        /**
+         * Called for each hashtag, in text order.
+         *
+         * @param text text being scanned
+         * @param start index of the first character of the tag (after the "#")
+         * @param end index just past the last character of the tag
+         */
+        default void hashtag(CharSequence text, int start, int end) {
+        }
+    }
+
+    private TweetLexer() {
+        // static methods only
+    }
+
+    /**
+     * Scan a text for mentions and hashtags.
+     *
+     * @param text text of a tweet
+     * @param handler receives each token, in text order
+     */
+    public static void scan(CharSequence text, Handler handler) {
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '@' && (i == 0 || !isUsernameChar(text.charAt(i - 1)))) {
+                int end = i + 1;
+                while (end < length && isUsernameChar(text.charAt(end))) {
+                    end++;
+                }
+                if (end > i + 1) {
+                    handler.mention(text, i + 1, end);
+                }
+                i = end;
+            } else if (c == '#') {
+                int end = i + 1;
+                while (end < length && isHashtagChar(text.charAt(end))) {
+                    end++;
+                }
+                if (end > i + 1) {
+                    handler.hashtag(text, i + 1, end);
+                    i = end;
+                } else {
+                    i++;
+                }
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * @param c a character
+     * @return true iff c may appear in a Twitter username: A-Z, a-z, 0-9, "_" or "-"
+     */
+    public static boolean isUsernameChar(char c) {
+        return isHashtagChar(c) || c == '-';
+    }
+
+    private static boolean isHashtagChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
@@ -0,0 +1,511 @@
+package twitter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * An immutable query over tweets: a combination, with AND and OR, of the
+ * criteria of Filter.writtenBy, Filter.inTimespan and Filter.containing.
+ *
+ *     TweetQuery query = TweetQuery.writtenBy(Set.of("alyssa", "bbitdiddle"))
+ *             .and(TweetQuery.inTimespan(timespan))
+ *             .and(TweetQuery.containing(List.of("rivest")));
+ *     List<Tweet> result = query.filter(tweets);
+ *
+ * A query returns the same tweets, in the same (input) order, as chaining
+ * the corresponding Filter calls, but never builds intermediate lists. A
+ * small planner picks how to run it:
+ *  - if an AuthorIndex or TimeIndex of the tweets is given and the query
+ *    can be answered from it (an author or time criterion, or an AND with
+ *    one, or an OR of such queries), and the index estimates that at most
+ *    INDEX_SELECTIVITY of the tweets qualify, it takes the candidate
+ *    positions from the index with the smallest estimate and checks the
+ *    whole query on those tweets only, in input order;
+ *  - otherwise it scans the tweets once, checking every criterion of each
+ *    tweet together, cheapest first (time, then author, then keywords),
+ *    and stopping as soon as the outcome is known.
+ *
+ * Usernames are compared case-insensitively, timespans include their
+ * endpoints, and words are matched as by Filter.containing.
+ *
+ * Instances are immutable and may be shared between threads.
+ */
+public abstract class TweetQuery {
+
+    /**
+     * Largest fraction of the tweets an index may estimate as candidates
+     * for the planner to use it instead of a scan: beyond it, gathering
+     * tweets by position costs more than checking them all in order.
+     */
+    public static final double INDEX_SELECTIVITY = 0.25;
+
+    /*
+     * Relative cost of checking one tweet against each kind of criterion,
+     * used to order the operands of AND and OR.
+     */
+    private static final int TIME_COST = 1;
+    private static final int AUTHOR_COST = 2;
+    private static final int KEYWORD_COST = 3;
+
+    private TweetQuery() {
+    }
+
+    /**
+     * @param username Twitter username, compared case-insensitively
+     * @return query for the tweets written by username
+     */
+    public static TweetQuery writtenBy(String username) {
+        return writtenBy(Collections.singleton(username));
+    }
+
+    /**
+     * @param usernames Twitter usernames, compared case-insensitively
+     * @return query for the tweets written by any of usernames
+     */
+    public static TweetQuery writtenBy(Set<String> usernames) {
+        return new Author(usernames);
+    }
+
+    /**
+     * @param timespan timespan
+     * @return query for the tweets sent during timespan
+     */
+    public static TweetQuery inTimespan(Timespan timespan) {
+        return new Time(timespan);
+    }
+
+    /**
+     * @param words words to search for, case-insensitive
+     * @return query for the tweets containing at least one of words
+     */
+    public static TweetQuery containing(List<String> words) {
+        return containing(KeywordMatcher.compile(words));
+    }
+
+    /**
+     * @param words matcher for the words to search for
+     * @return query for the tweets containing at least one of its words
+     */
+    public static TweetQuery containing(KeywordMatcher words) {
+        return new Keywords(words);
+    }
+
+    /**
+     * @param other another query
+     * @return query for the tweets that match both this and other
+     */
+    public TweetQuery and(TweetQuery other) {
+        return new And(operands(this, And.class, other));
+    }
+
+    /**
+     * @param other another query
+     * @return query for the tweets that match this or other (or both)
+     */
+    public TweetQuery or(TweetQuery other) {
+        return new Or(operands(this, Or.class, other));
+    }
+
+    /**
+     * @param tweet a tweet
+     * @return true iff tweet matches this query
+     */
+    public abstract boolean matches(Tweet tweet);
+
+    /**
+     * Run this query by scanning tweets once.
+     *
+     * @param tweets list of tweets, not modified by this method
+     * @return all and only the tweets in the list that match this query, in
+     *         the same order as in the input list
+     */
+    public List<Tweet> filter(List<Tweet> tweets) {
+        return filter(tweets, null, null);
+    }
+
+    /**
+     * Run this query on the tweets of an author index, using the index if
+     * the planner finds it worthwhile.
+     *
+     * @param tweets index of tweets, not modified by this method
+     * @return all and only the indexed tweets that match this query, in the
+     *         order they were added to the index
+     */
+    public List<Tweet> filter(AuthorIndex tweets) {
+        return filter(tweets.tweets(), tweets, null);
+    }
+
+    /**
+     * Run this query on the tweets of a time index, using the index if the
+     * planner finds it worthwhile.
+     *
+     * @param tweets index of tweets, not modified by this method
+     * @return all and only the indexed tweets that match this query, in the
+     *         order they were added to the index
+     */
+    public List<Tweet> filter(TimeIndex tweets) {
+        return filter(tweets.tweets(), null, tweets);
+    }
+
+    /**
+     * Run this query, using whichever of the given indexes the planner
+     * estimates to be the most selective, or a scan.
+     *
+     * @param tweets list of tweets, not modified by this method
+     * @param authors index of exactly the tweets in the list, in the same
+     *                order, or null if there is none
+     * @param times index of exactly the tweets in the list, in the same
+     *              order, or null if there is none
+     * @return all and only the tweets in the list that match this query, in
+     *         the same order as in the input list
+     * @throws IllegalArgumentException if an index has a different size
+     *                                  from the list
+     */
+    public List<Tweet> filter(List<Tweet> tweets, AuthorIndex authors, TimeIndex times) {
+        Access access = plan(tweets, authors, times);
+        List<Tweet> result = new ArrayList<>();
+        if (access == null) {
+            for (Tweet tweet : tweets) {
+                if (matches(tweet)) {
+                    result.add(tweet);
+                }
+            }
+        } else {
+            for (int position : access.positions.get()) {
+                Tweet tweet = tweets.get(position);
+                if (matches(tweet)) {
+                    result.add(tweet);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Describe how filter(tweets, authors, times) would run this query.
+     *
+     * @param tweets list of tweets
+     * @param authors index of exactly the tweets in the list, or null
+     * @param times index of exactly the tweets in the list, or null
+     * @return "scan" for a fused scan, or a description of the index lookup
+     *         starting with "author index" or "time index", or "union" for
+     *         an OR of lookups, followed by the estimated number of candidates
+     * @throws IllegalArgumentException if an index has a different size
+     *                                  from the list
+     */
+    public String explain(List<Tweet> tweets, AuthorIndex authors, TimeIndex times) {
+        Access access = plan(tweets, authors, times);
+        return access == null ? "scan" : access.description + " (~" + access.estimate + " tweets)";
+    }
+
+    private Access plan(List<Tweet> tweets, AuthorIndex authors, TimeIndex times) {
+        if ((authors != null && authors.size() != tweets.size())
+                || (times != null && times.size() != tweets.size())) {
+            throw new IllegalArgumentException("index does not match the list of tweets");
+        }
+        if (authors == null && times == null) {
+            return null;
+        }
+        Access access = access(authors, times);
+        if (access == null || access.estimate > INDEX_SELECTIVITY * tweets.size()) {
+            return null;
+        }
+        return access;
+    }
+
+    /*
+     * @return relative cost of matches() on one tweet
+     */
+    abstract int cost();
+
+    /*
+     * @return how to find a superset of the positions of the tweets matching
+     *         this query from the given indexes (either may be null), or null
+     *         if they cannot
+     */
+    Access access(AuthorIndex authors, TimeIndex times) {
+        return null;
+    }
+
+    /*
+     * Candidate positions from an index: an estimate of their number, and
+     * how to compute them, in increasing order.
+     */
+    private static final class Access {
+        private final long estimate;
+        private final Supplier<int[]> positions;
+        private final String description;
+
+        private Access(long estimate, Supplier<int[]> positions, String description) {
+            this.estimate = estimate;
+            this.positions = positions;
+            this.description = description;
+        }
+    }
+
+    /*
+     * Flatten nested operations of the same kind, and order operands by cost.
+     */
+    private static List<TweetQuery> operands(TweetQuery left, Class<? extends Operation> kind, TweetQuery right) {
+        List<TweetQuery> operands = new ArrayList<>();
+        for (TweetQuery q : Arrays.asList(left, right)) {
+            if (kind.isInstance(q)) {
+                operands.addAll(((Operation) q).operands);
+            } else {
+                operands.add(q);
+            }
+        }
+        operands.sort(Comparator.comparingInt(TweetQuery::cost));
+        return operands;
+    }
+
+    private static final class Author extends TweetQuery {
+        private final SymbolTable usernames = new SymbolTable();
+
+        /*
+         * Abstraction function:
+         *    represents the tweets whose author is one of the names in usernames
+         * Safety from rep exposure:
+         *    usernames is private and only read after the constructor
+         */
+
+        private Author(Set<String> usernames) {
+            for (String username : usernames) {
+                this.usernames.intern(username);
+            }
+        }
+
+        @Override public boolean matches(Tweet tweet) {
+            return usernames.find(tweet.getAuthor()) >= 0;
+        }
+
+        @Override int cost() {
+            return AUTHOR_COST;
+        }
+
+        @Override Access access(AuthorIndex authors, TimeIndex times) {
+            if (authors == null) {
+                return null;
+            }
+            long estimate = 0;
+            for (int id = 0; id < usernames.size(); id++) {
+                estimate += authors.count(usernames.name(id));
+            }
+            return new Access(estimate, () -> {
+                int[] positions = new int[0];
+                for (int id = 0; id < usernames.size(); id++) {
+                    positions = union(positions, authors.positionsWrittenBy(usernames.name(id)));
+                }
+                return positions;
+            }, "author index " + this);
+        }
+
+        @Override public String toString() {
+            List<String> names = new ArrayList<>();
+            for (int id = 0; id < usernames.size(); id++) {
+                names.add(usernames.name(id));
+            }
+            return "writtenBy" + names;
+        }
+    }
+
+    private static final class Time extends TweetQuery {
+        private final Timespan timespan;
+        private final Instant start;
+        private final Instant end;
+
+        private Time(Timespan timespan) {
+            this.timespan = timespan;
+            this.start = timespan.getStart();
+            this.end = timespan.getEnd();
+        }
+
+        @Override public boolean matches(Tweet tweet) {
+            Instant timestamp = tweet.getTimestamp();
+            return !timestamp.isBefore(start) && !timestamp.isAfter(end);
+        }
+
+        @Override int cost() {
+            return TIME_COST;
+        }
+
+        @Override Access access(AuthorIndex authors, TimeIndex times) {
+            if (times == null) {
+                return null;
+            }
+            return new Access(times.countInTimespan(timespan), () -> times.positionsInTimespan(timespan),
+                              "time index " + this);
+        }
+
+        @Override public String toString() {
+            return "inTimespan[" + start + ", " + end + "]";
+        }
+    }
+
+    private static final class Keywords extends TweetQuery {
+        private final KeywordMatcher words;
+
+        private Keywords(KeywordMatcher words) {
+            this.words = words;
+        }
+
+        @Override public boolean matches(Tweet tweet) {
+            return words.matchesAny(tweet.getText());
+        }
+
+        @Override int cost() {
+            return KEYWORD_COST;
+        }
+
+        @Override public String toString() {
+            return "containing" + words.words();
+        }
+    }
+
+    private abstract static class Operation extends TweetQuery {
+        final List<TweetQuery> operands;
+        final TweetQuery[] array;
+        /*
+         * Rep invariant:
+         *    operands.size() >= 2, in nondecreasing order of cost(), none of
+         *    them of the same class as this
+         *    array holds the same operands, for matches() to loop over
+         *      without an iterator
+         */
+
+        private Operation(List<TweetQuery> operands) {
+            this.operands = Collections.unmodifiableList(operands);
+            this.array = operands.toArray(new TweetQuery[0]);
+        }
+
+        String toString(String operator) {
+            StringBuilder s = new StringBuilder("(");
+            for (TweetQuery operand : operands) {
+                s.append(s.length() > 1 ? " " + operator + " " : "").append(operand);
+            }
+            return s.append(")").toString();
+        }
+    }
+
+    private static final class And extends Operation {
+        private final int cost;
+
+        private And(List<TweetQuery> operands) {
+            super(operands);
+            this.cost = operands.stream().mapToInt(TweetQuery::cost).max().getAsInt();
+        }
+
+        @Override public boolean matches(Tweet tweet) {
+            for (TweetQuery operand : array) {
+                if (!operand.matches(tweet)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override int cost() {
+            return cost;
+        }
+
+        @Override Access access(AuthorIndex authors, TimeIndex times) {
+            // any operand's candidates contain the candidates of the AND
+            Access best = null;
+            for (TweetQuery operand : operands) {
+                Access access = operand.access(authors, times);
+                if (access != null && (best == null || access.estimate < best.estimate)) {
+                    best = access;
+                }
+            }
+            return best;
+        }
+
+        @Override public String toString() {
+            return toString("AND");
+        }
+    }
+
+    private static final class Or extends Operation {
+        private final int cost;
+
+        private Or(List<TweetQuery> operands) {
+            super(operands);
+            this.cost = operands.stream().mapToInt(TweetQuery::cost).max().getAsInt();
+        }
+
+        @Override public boolean matches(Tweet tweet) {
+            for (TweetQuery operand : array) {
+                if (operand.matches(tweet)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override int cost() {
+            return cost;
+        }
+
+        @Override Access access(AuthorIndex authors, TimeIndex times) {
+            // every operand must have candidates; the OR's are their union
+            List<Access> accesses = new ArrayList<>();
+            long estimate = 0;
+            for (TweetQuery operand : operands) {
+                Access access = operand.access(authors, times);
+                if (access == null) {
+                    return null;
+                }
+                accesses.add(access);
+                estimate += access.estimate;
+            }
+            List<String> descriptions = new ArrayList<>();
+            for (Access access : accesses) {
+                descriptions.add(access.description);
+            }
+            return new Access(estimate, () -> {
+                int[] positions = new int[0];
+                for (Access access : accesses) {
+                    positions = union(positions, access.positions.get());
+                }
+                return positions;
+            }, "union" + descriptions);
+        }
+
+        @Override public String toString() {
+            return toString("OR");
+        }
+    }
+
+    /*
+     * @return the increasing union of two increasing arrays
+     */
+    private static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                result[n++] = a[i++];
+            } else if (a[i] > b[j]) {
+                result[n++] = b[j++];
+            } else {
+                result[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            result[n++] = a[i++];
+        }
+        while (j < b.length) {
+            result[n++] = b[j++];
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+}
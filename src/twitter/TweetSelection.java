@@ -0,0 +1,337 @@
+package twitter;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable selection of some of the tweets of a source list, kept as
+ * a bitmap of their positions: one bit per source tweet, so selecting from
+ * a million tweets takes 125 KB however many match, instead of a list of
+ * references to each match.
+ *
+ * Selections over the same source combine in O(n / 64) with and, or and
+ * andNot, and count their tweets without visiting them. The tweets are
+ * read from the source only when iterated, always in source order.
+ *
+ * The source list is not copied: it must not be modified while the
+ * selection is in use.
+ */
+public class TweetSelection implements Iterable<Tweet> {
+
+    private final List<Tweet> source;
+    private final long[] bits;
+    private final int count;
+
+    /*
+     * Abstraction function:
+     *    represents the subsequence of source made of the tweets at the
+     *    positions i whose bit (bits[i / 64] >>> i) & 1 is set
+     * Rep invariant:
+     *    bits.length == ceil(source.size() / 64)
+     *    no bit at a position >= source.size() is set
+     *    count == number of set bits
+     * Safety from rep exposure:
+     *    all fields are private and bits is never returned; source is shared
+     *    by design, and only ever read
+     */
+
+    private TweetSelection(List<Tweet> source, long[] bits) {
+        this.source = source;
+        this.bits = bits;
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        this.count = count;
+    }
+
+    /**
+     * @param source list of tweets, not modified by this method
+     * @param predicate test of each tweet
+     * @return selection of the tweets of source that satisfy predicate
+     */
+    public static TweetSelection of(List<Tweet> source, Predicate<? super Tweet> predicate) {
+        long[] bits = new long[words(source.size())];
+        int i = 0;
+        for (Tweet tweet : source) {
+            if (predicate.test(tweet)) {
+                bits[i >>> 6] |= 1L << i;
+            }
+            i++;
+        }
+        return new TweetSelection(source, bits);
+    }
+
+    /**
+     * @param source list of tweets, not modified by this method
+     * @return selection of all the tweets of source
+     */
+    public static TweetSelection all(List<Tweet> source) {
+        return new TweetSelection(source, allBits(source.size()));
+    }
+
+    /**
+     * @param source list of tweets
+     * @return selection of none of the tweets of source
+     */
+    public static TweetSelection none(List<Tweet> source) {
+        return new TweetSelection(source, new long[words(source.size())]);
+    }
+
+    /**
+     * @return the source list this selects from
+     */
+    public List<Tweet> source() {
+        return source;
+    }
+
+    /**
+     * @return number of tweets selected, in O(1)
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return true iff no tweet is selected
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @param position position in the source list
+     * @return true iff the tweet at position is selected
+     * @throws IndexOutOfBoundsException if position is not a position of
+     *                                   the source list
+     */
+    public boolean isSelected(int position) {
+        if (position < 0 || position >= source.size()) {
+            throw new IndexOutOfBoundsException("position " + position + " of " + source.size());
+        }
+        return (bits[position >>> 6] & (1L << position)) != 0;
+    }
+
+    /**
+     * @param other selection over the same source list
+     * @return selection of the tweets selected by both this and other
+     * @throws IllegalArgumentException if other selects from another list
+     */
+    public TweetSelection and(TweetSelection other) {
+        checkSameSource(other);
+        long[] result = new long[bits.length];
+        for (int w = 0; w < bits.length; w++) {
+            result[w] = bits[w] & other.bits[w];
+        }
+        return new TweetSelection(source, result);
+    }
+
+    /**
+     * @param other selection over the same source list
+     * @return selection of the tweets selected by this or other (or both)
+     * @throws IllegalArgumentException if other selects from another list
+     */
+    public TweetSelection or(TweetSelection other) {
+        checkSameSource(other);
+        long[] result = new long[bits.length];
+        for (int w = 0; w < bits.length; w++) {
+            result[w] = bits[w] | other.bits[w];
+        }
+        return new TweetSelection(source, result);
+    }
+
+    /**
+     * @param other selection over the same source list
+     * @return selection of the tweets selected by this but not by other
+     * @throws IllegalArgumentException if other selects from another list
+     */
+    public TweetSelection andNot(TweetSelection other) {
+        checkSameSource(other);
+        long[] result = new long[bits.length];
+        for (int w = 0; w < bits.length; w++) {
+            result[w] = bits[w] & ~other.bits[w];
+        }
+        return new TweetSelection(source, result);
+    }
+
+    /**
+     * @return selection of the tweets of the source list not selected by this
+     */
+    public TweetSelection not() {
+        long[] result = allBits(source.size());
+        for (int w = 0; w < bits.length; w++) {
+            result[w] &= ~bits[w];
+        }
+        return new TweetSelection(source, result);
+    }
+
+    /**
+     * @param predicate test of each selected tweet
+     * @return selection of the tweets selected by this that satisfy
+     *         predicate; unselected tweets are not tested
+     */
+    public TweetSelection filter(Predicate<? super Tweet> predicate) {
+        long[] result = bits.clone();
+        for (int w = 0; w < result.length; w++) {
+            for (long word = result[w]; word != 0; word &= word - 1) {
+                long bit = Long.lowestOneBit(word);
+                if (!predicate.test(source.get((w << 6) + Long.numberOfTrailingZeros(bit)))) {
+                    result[w] &= ~bit;
+                }
+            }
+        }
+        return new TweetSelection(source, result);
+    }
+
+    /**
+     * @return positions in the source list of the selected tweets, in
+     *         increasing order
+     */
+    public IntStream positions() {
+        return StreamSupport.intStream(Spliterators.spliterator(new Positions(), count,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * @return lazy stream of the selected tweets, in source order
+     */
+    public Stream<Tweet> stream() {
+        return StreamSupport.stream(Spliterators.spliterator(iterator(), count,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * @return iterator over the selected tweets, in source order; it does
+     *         not support remove
+     */
+    @Override
+    public Iterator<Tweet> iterator() {
+        Positions positions = new Positions();
+        return new Iterator<Tweet>() {
+            @Override
+            public boolean hasNext() {
+                return positions.hasNext();
+            }
+
+            @Override
+            public Tweet next() {
+                return source.get(positions.nextInt());
+            }
+        };
+    }
+
+    /**
+     * View the selection as a list, for callers such as Extract that take
+     * one, without copying the tweets. get(i) takes O(i / 64); iterate the
+     * view rather than indexing it.
+     *
+     * @return unmodifiable list of the selected tweets, in source order
+     */
+    public List<Tweet> asList() {
+        return new View();
+    }
+
+    @Override
+    public String toString() {
+        return count + " of " + source.size() + " tweets";
+    }
+
+    private void checkSameSource(TweetSelection other) {
+        if (other.source != source) {
+            throw new IllegalArgumentException("selections of different lists");
+        }
+    }
+
+    private static int words(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    private static long[] allBits(int size) {
+        long[] bits = new long[words(size)];
+        for (int w = 0; w < bits.length; w++) {
+            bits[w] = -1L;
+        }
+        if ((size & 63) != 0) {
+            bits[bits.length - 1] = (1L << size) - 1;
+        }
+        return bits;
+    }
+
+    /*
+     * Position of the selected tweet of the given rank.
+     */
+    private int positionOf(int rank) {
+        int remaining = rank;
+        for (int w = 0; w < bits.length; w++) {
+            int inWord = Long.bitCount(bits[w]);
+            if (remaining < inWord) {
+                long word = bits[w];
+                for (; remaining > 0; remaining--) {
+                    word &= word - 1;
+                }
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            remaining -= inWord;
+        }
+        throw new AssertionError("rank " + rank + " of " + count);
+    }
+
+    /*
+     * Iterator over the set bits, in increasing order.
+     */
+    private class Positions implements PrimitiveIterator.OfInt {
+        private int w = 0;
+        private long word = bits.length == 0 ? 0 : bits[0];
+
+        @Override
+        public boolean hasNext() {
+            while (word == 0) {
+                if (++w >= bits.length) {
+                    w = bits.length;
+                    return false;
+                }
+                word = bits[w];
+            }
+            return true;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int position = (w << 6) + Long.numberOfTrailingZeros(word);
+            word &= word - 1;
+            return position;
+        }
+    }
+
+    private class View extends AbstractList<Tweet> {
+        @Override
+        public Tweet get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("index " + index + " of " + count);
+            }
+            return source.get(positionOf(index));
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public Iterator<Tweet> iterator() {
+            return TweetSelection.this.iterator();
+        }
+    }
+}
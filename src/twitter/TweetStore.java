@@ -0,0 +1,483 @@
+package twitter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A growable, column-oriented collection of tweets.
+ *
+ * Tweets are not kept as objects. Each column is a primitive array indexed by
+ * position: ids, epoch seconds, and author ids into a dictionary of
+ * case-folded usernames. Texts are packed as UTF-8 into large byte pages.
+ * A Tweet object is built only when get() or asList() is used, which makes
+ * the store suitable for corpora of tens of millions of tweets. Extract and
+ * Filter have overloads that scan the columns directly.
+ *
+ * Usernames are case-insensitive, so all tweets by one user share a
+ * dictionary entry and come back with the spelling of the first tweet added
+ * for that user.
+ *
+ * Not safe for concurrent modification.
+ */
+public class TweetStore {
+
+    private static final int PAGE_BITS = 20;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int LENGTH_BITS = PAGE_BITS + 1;
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] ids;
+    private long[] seconds;
+    private int[] nanos;
+    private int[] authors;
+    private long[] texts;
+    private long[] asciiTexts;
+    private int size;
+
+    private final Map<String, Integer> authorIds = new HashMap<>();
+    private final List<String> authorNames = new ArrayList<>();
+
+    private byte[][] pages = new byte[1][];
+    private int pageCount;
+    private int pageFill;
+
+    /*
+     * Abstraction function:
+     *    represents the sequence of tweets t_0..t_{size-1} where t_i has
+     *      id ids[i],
+     *      timestamp seconds[i] + (nanos == null ? 0 : nanos[i]) nanoseconds after the epoch,
+     *      author authorNames.get(authors[i]),
+     *      text the UTF-8 decoding of the bytes of pages at address texts[i] >>> LENGTH_BITS
+     *        (page = address >>> PAGE_BITS, offset = address & (PAGE_SIZE - 1))
+     *        with length texts[i] & LENGTH_MASK
+     * Rep invariant:
+     *    0 <= size <= ids.length == seconds.length == authors.length == texts.length
+     *    nanos == null || nanos.length == ids.length
+     *    authorIds maps authorNames.get(a).toLowerCase(Locale.ROOT) to a, for every a
+     *    0 <= authors[i] < authorNames.size() for i < size
+     *    no text crosses a page boundary; pages[0..pageCount) are non-null
+     *    bit i of asciiTexts is set iff every byte of text i is < 0x80
+     * Safety from rep exposure:
+     *    all fields are private; arrays and pages are never returned, and
+     *    views copy what they return into new Strings and Tweets
+     */
+
+    /**
+     * Make an empty store.
+     */
+    public TweetStore() {
+        ids = new long[INITIAL_CAPACITY];
+        seconds = new long[INITIAL_CAPACITY];
+        authors = new int[INITIAL_CAPACITY];
+        texts = new long[INITIAL_CAPACITY];
+        asciiTexts = new long[1];
+    }
+
+    /**
+     * Make a store holding the given tweets.
+     *
+     * @param tweets tweets to add, in order
+     */
+    public TweetStore(Iterable<? extends Tweet> tweets) {
+        this();
+        addAll(tweets);
+    }
+
+    /**
+     * Append a tweet.
+     *
+     * @param tweet tweet to add; its text must encode to at most 1 MiB of UTF-8
+     * @return the position of the tweet in this store
+     */
+    public int add(Tweet tweet) {
+        byte[] utf8 = tweet.getText().getBytes(StandardCharsets.UTF_8);
+        if (utf8.length > PAGE_SIZE) {
+            throw new IllegalArgumentException("tweet text too long: " + utf8.length + " bytes");
+        }
+        if (size == ids.length) {
+            grow();
+        }
+        int i = size;
+        Instant timestamp = tweet.getTimestamp();
+        ids[i] = tweet.getId();
+        seconds[i] = timestamp.getEpochSecond();
+        if (timestamp.getNano() != 0 && nanos == null) {
+            nanos = new int[ids.length];
+        }
+        if (nanos != null) {
+            nanos[i] = timestamp.getNano();
+        }
+        authors[i] = internAuthor(tweet.getAuthor());
+        texts[i] = appendText(utf8);
+        if (isAscii(utf8)) {
+            asciiTexts[i >>> 6] |= 1L << i;
+        }
+        size++;
+        return i;
+    }
+
+    /**
+     * Append tweets in order.
+     *
+     * @param tweets tweets to add
+     */
+    public void addAll(Iterable<? extends Tweet> tweets) {
+        for (Tweet tweet : tweets) {
+            add(tweet);
+        }
+    }
+
+    /**
+     * @return number of tweets in this store
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true iff this store holds no tweets
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param i position, 0 <= i < size()
+     * @return id of the tweet at position i
+     */
+    public long id(int i) {
+        checkIndex(i);
+        return ids[i];
+    }
+
+    /**
+     * @param i position, 0 <= i < size()
+     * @return timestamp of the tweet at position i, in whole seconds since the epoch
+     */
+    public long epochSecond(int i) {
+        checkIndex(i);
+        return seconds[i];
+    }
+
+    /**
+     * @param i position, 0 <= i < size()
+     * @return timestamp of the tweet at position i
+     */
+    public Instant timestamp(int i) {
+        checkIndex(i);
+        return Instant.ofEpochSecond(seconds[i], nano(i));
+    }
+
+    /**
+     * @param i position, 0 <= i < size()
+     * @return dictionary id of the author of the tweet at position i
+     */
+    public int authorId(int i) {
+        checkIndex(i);
+        return authors[i];
+    }
+
+    /**
+     * @param i position, 0 <= i < size()
+     * @return author of the tweet at position i
+     */
+    public String author(int i) {
+        return authorName(authorId(i));
+    }
+
+    /**
+     * @param i position, 0 <= i < size()
+     * @return text of the tweet at position i
+     */
+    public String text(int i) {
+        checkIndex(i);
+        long text = texts[i];
+        long address = text >>> LENGTH_BITS;
+        return new String(pages[(int) (address >>> PAGE_BITS)], (int) (address & (PAGE_SIZE - 1)),
+                          (int) (text & LENGTH_MASK), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param i position, 0 <= i < size()
+     * @return a new Tweet equal to the one added at position i
+     */
+    public Tweet get(int i) {
+        return new Tweet(id(i), author(i), text(i), timestamp(i));
+    }
+
+    /**
+     * @return an unmodifiable list view of this store that builds each Tweet
+     *         when it is read; reflects later additions
+     */
+    public List<Tweet> asList() {
+        return new TweetList();
+    }
+
+    /**
+     * @return number of distinct (case-insensitive) authors in this store
+     */
+    public int authorCount() {
+        return authorNames.size();
+    }
+
+    /**
+     * @param username Twitter username, compared case-insensitively
+     * @return dictionary id of username, or -1 if no tweet in this store is by username
+     */
+    public int authorId(String username) {
+        Integer id = authorIds.get(username.toLowerCase(Locale.ROOT));
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param authorId dictionary id, 0 <= authorId < authorCount()
+     * @return username with that id
+     */
+    public String authorName(int authorId) {
+        return authorNames.get(authorId);
+    }
+
+    /**
+     * Find the positions of the tweets written by a user.
+     *
+     * @param username Twitter username, compared case-insensitively
+     * @return positions of the tweets by username, in increasing order
+     */
+    int[] positionsWrittenBy(String username) {
+        int author = authorId(username);
+        if (author < 0) {
+            return new int[0];
+        }
+        IntList result = new IntList();
+        for (int i = 0; i < size; i++) {
+            if (authors[i] == author) {
+                result.add(i);
+            }
+        }
+        return result.toArray();
+    }
+
+    /**
+     * Find the positions of the tweets sent during a timespan.
+     *
+     * @param timespan timespan
+     * @return positions of the tweets whose timestamp is within timespan, in increasing order
+     */
+    int[] positionsInTimespan(Timespan timespan) {
+        long startSecond = timespan.getStart().getEpochSecond();
+        int startNano = timespan.getStart().getNano();
+        long endSecond = timespan.getEnd().getEpochSecond();
+        int endNano = timespan.getEnd().getNano();
+        IntList result = new IntList();
+        for (int i = 0; i < size; i++) {
+            long second = seconds[i];
+            if (second < startSecond || second > endSecond) {
+                continue;
+            }
+            if (second == startSecond || second == endSecond) {
+                int nano = nano(i);
+                if ((second == startSecond && nano < startNano) || (second == endSecond && nano > endNano)) {
+                    continue;
+                }
+            }
+            result.add(i);
+        }
+        return result.toArray();
+    }
+
+    /**
+     * Find the positions of the tweets whose text contains at least one of
+     * some words, ignoring case.
+     *
+     * @param words words to search for
+     * @return positions of the matching tweets, in increasing order
+     */
+    int[] positionsContaining(List<String> words) {
+        String[] folded = new String[words.size()];
+        byte[][] asciiFolded = new byte[words.size()][];
+        for (int w = 0; w < folded.length; w++) {
+            folded[w] = words.get(w).toLowerCase(Locale.ROOT);
+            byte[] utf8 = folded[w].getBytes(StandardCharsets.UTF_8);
+            asciiFolded[w] = isAscii(utf8) ? utf8 : null;
+        }
+        IntList result = new IntList();
+        for (int i = 0; i < size; i++) {
+            if (textContainsAny(i, folded, asciiFolded)) {
+                result.add(i);
+            }
+        }
+        return result.toArray();
+    }
+
+    /**
+     * @return the earliest and latest timestamps in this store
+     * @throws IllegalArgumentException if the store is empty
+     */
+    Timespan timespan() {
+        if (size == 0) {
+            throw new IllegalArgumentException("tweet store must not be empty");
+        }
+        int min = 0;
+        int max = 0;
+        for (int i = 1; i < size; i++) {
+            if (compareTime(i, min) < 0) {
+                min = i;
+            }
+            if (compareTime(i, max) > 0) {
+                max = i;
+            }
+        }
+        return new Timespan(timestamp(min), timestamp(max));
+    }
+
+    /**
+     * @param positions positions in this store
+     * @return views of the tweets at those positions, in the same order
+     */
+    List<Tweet> tweetsAt(int[] positions) {
+        List<Tweet> result = new ArrayList<>(positions.length);
+        for (int i : positions) {
+            result.add(get(i));
+        }
+        return result;
+    }
+
+    /*
+     * Does text i contain one of the folded words? ASCII texts are searched
+     * byte by byte in place; since lower-casing ASCII text yields ASCII, a
+     * folded word with non-ASCII characters can never match them. Other texts
+     * are decoded and compared ignoring case in place.
+     */
+    private boolean textContainsAny(int i, String[] folded, byte[][] asciiFolded) {
+        boolean ascii = (asciiTexts[i >>> 6] & (1L << i)) != 0;
+        if (ascii) {
+            long text = texts[i];
+            long address = text >>> LENGTH_BITS;
+            byte[] page = pages[(int) (address >>> PAGE_BITS)];
+            int start = (int) (address & (PAGE_SIZE - 1));
+            int length = (int) (text & LENGTH_MASK);
+            for (byte[] word : asciiFolded) {
+                if (word != null && asciiIndexOfIgnoreCase(page, start, length, word)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String text = text(i);
+        for (String word : folded) {
+            if (CaseFolding.containsIgnoreCase(text, word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * @return true iff bytes[start..start+length), lower-cased as ASCII, contains word
+     */
+    private static boolean asciiIndexOfIgnoreCase(byte[] bytes, int start, int length, byte[] word) {
+        int last = start + length - word.length;
+        outer:
+        for (int i = start; i <= last; i++) {
+            for (int j = 0; j < word.length; j++) {
+                byte b = bytes[i + j];
+                if (b >= 'A' && b <= 'Z') {
+                    b += 'a' - 'A';
+                }
+                if (b != word[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isAscii(byte[] utf8) {
+        for (byte b : utf8) {
+            if (b < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int nano(int i) {
+        return nanos == null ? 0 : nanos[i];
+    }
+
+    private int compareTime(int i, int j) {
+        int bySecond = Long.compare(seconds[i], seconds[j]);
+        return bySecond != 0 ? bySecond : Integer.compare(nano(i), nano(j));
+    }
+
+    private int internAuthor(String author) {
+        String folded = author.toLowerCase(Locale.ROOT);
+        Integer id = authorIds.get(folded);
+        if (id == null) {
+            id = authorNames.size();
+            authorIds.put(folded, id);
+            authorNames.add(author);
+        }
+        return id;
+    }
+
+    /*
+     * Copy utf8 into the text pages.
+     *
+     * @return texts[] entry for it: address << LENGTH_BITS | length
+     */
+    private long appendText(byte[] utf8) {
+        if (pageCount == 0 || pageFill + utf8.length > PAGE_SIZE) {
+            if (pageCount == pages.length) {
+                pages = Arrays.copyOf(pages, pageCount * 2);
+            }
+            pages[pageCount++] = new byte[PAGE_SIZE];
+            pageFill = 0;
+        }
+        System.arraycopy(utf8, 0, pages[pageCount - 1], pageFill, utf8.length);
+        long address = ((long) (pageCount - 1) << PAGE_BITS) | pageFill;
+        pageFill += utf8.length;
+        return address << LENGTH_BITS | utf8.length;
+    }
+
+    private void grow() {
+        int capacity = ids.length + (ids.length >> 1);
+        ids = Arrays.copyOf(ids, capacity);
+        seconds = Arrays.copyOf(seconds, capacity);
+        authors = Arrays.copyOf(authors, capacity);
+        texts = Arrays.copyOf(texts, capacity);
+        if (nanos != null) {
+            nanos = Arrays.copyOf(nanos, capacity);
+        }
+        asciiTexts = Arrays.copyOf(asciiTexts, (capacity + 63) >>> 6);
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("position " + i + " of " + size);
+        }
+    }
+
+    /*
+     * Read-only list view that builds Tweets on demand.
+     */
+    private final class TweetList extends AbstractList<Tweet> implements RandomAccess {
+        @Override public Tweet get(int index) {
+            return TweetStore.this.get(index);
+        }
+
+        @Override public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package twitter;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Parses the created_at timestamps of the Twitter API, such as
+ * "Wed Feb 17 10:00:00 +0000 2016".
+ *
+ * Strings in the usual fixed 30-character layout are decoded field by field
+ * straight into epoch seconds. Anything else, including out-of-range fields,
+ * is handed to the shared FORMAT, so results and errors are exactly those of
+ * ZonedDateTime.parse(text, FORMAT).
+ */
+public class TwitterDate {
+
+    /** The created_at format; immutable and safe to share between threads. */
+    public static final DateTimeFormatter FORMAT =
+            DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss Z yyyy", Locale.US);
+
+    private static final int LENGTH = "Wed Feb 17 10:00:00 +0000 2016".length();
+    private static final String DAYS = "MonTueWedThuFriSatSun";
+    private static final String MONTHS = "JanFebMarAprMayJunJulAugSepOctNovDec";
+    private static final int SECONDS_PER_DAY = 86_400;
+    private static final int MAX_OFFSET_HOURS = 18;
+
+    private TwitterDate() {
+        // static methods only
+    }
+
+    /**
+     * Parse a created_at timestamp.
+     *
+     * @param text timestamp in FORMAT
+     * @return the instant it denotes
+     * @throws java.time.format.DateTimeParseException if text is not in FORMAT
+     */
+    public static Instant parse(CharSequence text) {
+        long seconds = fastEpochSecond(text);
+        if (seconds == Long.MIN_VALUE) {
+            return ZonedDateTime.parse(text, FORMAT).toInstant();
+        }
+        return Instant.ofEpochSecond(seconds);
+    }
+
+    /**
+     * Parse a created_at timestamp to seconds since 1970-01-01T00:00:00Z.
+     *
+     * @param text timestamp in FORMAT
+     * @return the epoch second it denotes
+     * @throws java.time.format.DateTimeParseException if text is not in FORMAT
+     */
+    public static long parseEpochSecond(CharSequence text) {
+        long seconds = fastEpochSecond(text);
+        if (seconds == Long.MIN_VALUE) {
+            return ZonedDateTime.parse(text, FORMAT).toEpochSecond();
+        }
+        return seconds;
+    }
+
+    /*
+     * Decode the fixed layout "EEE MMM dd HH:mm:ss +hhmm yyyy".
+     *
+     * @return the epoch second, or Long.MIN_VALUE if text does not follow the
+     *         layout exactly or holds a value FORMAT would resolve differently
+     */
+    private static long fastEpochSecond(CharSequence text) {
+        if (text.length() != LENGTH
+                || text.charAt(3) != ' ' || text.charAt(7) != ' ' || text.charAt(10) != ' '
+                || text.charAt(13) != ':' || text.charAt(16) != ':' || text.charAt(19) != ' '
+                || text.charAt(25) != ' ') {
+            return Long.MIN_VALUE;
+        }
+        int dayOfWeek = indexOfName(DAYS, text, 0);
+        int month = indexOfName(MONTHS, text, 4) + 1;
+        int day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int second = digits(text, 17, 2);
+        char sign = text.charAt(20);
+        int offsetHours = digits(text, 21, 2);
+        int offsetMinutes = digits(text, 23, 2);
+        int year = digits(text, 26, 4);
+        if (dayOfWeek < 0 || month <= 0 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59
+                || (sign != '+' && sign != '-') || offsetHours < 0 || offsetMinutes < 0 || offsetMinutes > 59
+                || offsetHours * 60 + offsetMinutes > MAX_OFFSET_HOURS * 60 || year < 1) {
+            return Long.MIN_VALUE;
+        }
+        long epochDay = epochDay(year, month, day);
+        if (Math.floorMod(epochDay + 3, 7) != dayOfWeek) {
+            return Long.MIN_VALUE;
+        }
+        int offsetSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (sign == '-' ? -1 : 1);
+        return epochDay * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second - offsetSeconds;
+    }
+
+    /*
+     * @return i if text[start..start+3) equals names[3i..3i+3), or -1 if none does
+     */
+    private static int indexOfName(String names, CharSequence text, int start) {
+        for (int i = 0; i < names.length(); i += 3) {
+            if (names.charAt(i) == text.charAt(start)
+                    && names.charAt(i + 1) == text.charAt(start + 1)
+                    && names.charAt(i + 2) == text.charAt(start + 2)) {
+                return i / 3;
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * @return the decimal value of text[start..start+count), or -1 if it has a non-digit
+     */
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+        case 2:
+            boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+            return leap ? 29 : 28;
+        case 4: case 6: case 9: case 11:
+            return 30;
+        default:
+            return 31;
+        }
+    }
+
+    /*
+     * Days since 1970-01-01 of a proleptic Gregorian date, by the
+     * era-based civil calendar algorithm (no java.time objects).
+     */
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+}
@@ -0,0 +1,326 @@
+package twitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A growable list of tweets with an inverted index of the words of their
+ * texts.
+ *
+ * A word is a maximal run of letters, digits and underscores, compared
+ * case-insensitively, so "#Hype!" contains the word "hype" and "rivest's"
+ * contains "rivest" and "s". Unlike Filter.containing, which looks for
+ * substrings, the index matches whole words only: "rives" does not match a
+ * tweet about "rivest".
+ *
+ * Each word maps to the increasing positions of the tweets that contain it,
+ * delta-encoded in a PostingList. A query merges the lists of its words
+ * instead of reading any text: an OR query costs time proportional to the
+ * total length of its lists; an AND query walks the shortest list and skips
+ * ahead in the others, so it costs about the length of the shortest one.
+ * Appending a tweet costs time proportional to its length.
+ *
+ * Not safe for concurrent modification.
+ */
+public class WordIndex {
+
+    private final List<Tweet> tweets = new ArrayList<>();
+    private final SymbolTable words = new SymbolTable();
+    private final List<PostingList> postings = new ArrayList<>();
+
+    /*
+     * Abstraction function:
+     *    represents the sequence of tweets in tweets, in input order
+     * Rep invariant:
+     *    postings.size() == words.size(); postings.get(id) is the nonempty,
+     *      increasing list of positions of the tweets containing the word
+     *      words.name(id)
+     * Safety from rep exposure:
+     *    all fields are private; tweets is only returned as an unmodifiable
+     *    view, and results are freshly built lists
+     */
+
+    /**
+     * Make an empty index.
+     */
+    public WordIndex() {
+    }
+
+    /**
+     * Make an index of the given tweets.
+     *
+     * @param tweets tweets in input order, not modified by this constructor
+     */
+    public WordIndex(List<Tweet> tweets) {
+        addAll(tweets);
+    }
+
+    /**
+     * Append a tweet.
+     *
+     * @param tweet tweet to add after all the tweets already in the index
+     */
+    public void add(Tweet tweet) {
+        int position = tweets.size();
+        String text = tweet.getText();
+        int i = 0;
+        while (i < text.length()) {
+            int start = i;
+            while (i < text.length() && isWordChar(text.codePointAt(i))) {
+                i += Character.charCount(text.codePointAt(i));
+            }
+            if (i > start) {
+                int id = words.intern(text, start, i);
+                if (id == postings.size()) {
+                    postings.add(new PostingList());
+                }
+                PostingList list = postings.get(id);
+                if (list.last() != position) {
+                    list.add(position);
+                }
+            } else {
+                i += Character.charCount(text.codePointAt(i));
+            }
+        }
+        tweets.add(tweet);
+    }
+
+    /**
+     * Append tweets in order.
+     *
+     * @param tweets tweets to add
+     */
+    public void addAll(Iterable<? extends Tweet> tweets) {
+        for (Tweet tweet : tweets) {
+            add(tweet);
+        }
+    }
+
+    /**
+     * @return number of tweets in the index
+     */
+    public int size() {
+        return tweets.size();
+    }
+
+    /**
+     * @return unmodifiable view of the indexed tweets, in input order
+     */
+    public List<Tweet> tweets() {
+        return Collections.unmodifiableList(tweets);
+    }
+
+    /**
+     * @return number of distinct (case-folded) words in the index
+     */
+    public int wordCount() {
+        return words.size();
+    }
+
+    /**
+     * @param word a word, compared case-insensitively
+     * @return number of indexed tweets that contain word
+     * @throws IllegalArgumentException if word is not a single word
+     */
+    public int count(String word) {
+        PostingList list = postingsOf(word);
+        return list == null ? 0 : list.count();
+    }
+
+    /**
+     * Find tweets that contain at least one of the specified words.
+     *
+     * @param words words to search for, case-insensitive
+     * @return all and only the indexed tweets that contain at least one of
+     *         the words, in input order
+     * @throws IllegalArgumentException if one of words is not a single word
+     */
+    public List<Tweet> containingAny(List<String> words) {
+        return tweetsAt(positionsContainingAny(words));
+    }
+
+    /**
+     * Find tweets that contain all of the specified words.
+     *
+     * @param words words to search for, case-insensitive
+     * @return all and only the indexed tweets that contain every one of the
+     *         words, in input order; all the tweets if words is empty
+     * @throws IllegalArgumentException if one of words is not a single word
+     */
+    public List<Tweet> containingAll(List<String> words) {
+        return containingAll(words, Collections.emptyList());
+    }
+
+    /**
+     * Find tweets that contain all of some words and none of others.
+     *
+     * @param words words that must all appear, case-insensitive
+     * @param excluded words that must not appear, case-insensitive
+     * @return all and only the indexed tweets that contain every one of words
+     *         and none of excluded, in input order
+     * @throws IllegalArgumentException if one of words or excluded is not a
+     *                                  single word
+     */
+    public List<Tweet> containingAll(List<String> words, List<String> excluded) {
+        return tweetsAt(positionsContainingAll(words, excluded));
+    }
+
+    /**
+     * @param words words to search for, case-insensitive
+     * @return input positions of the tweets that contain at least one of
+     *         words, in increasing order
+     * @throws IllegalArgumentException if one of words is not a single word
+     */
+    int[] positionsContainingAny(List<String> words) {
+        List<PostingList> lists = new ArrayList<>();
+        int total = 0;
+        for (String word : words) {
+            PostingList list = postingsOf(word);
+            if (list != null) {
+                lists.add(list);
+                total += list.count();
+            }
+        }
+        if (lists.size() == 1) {
+            return positions(lists.get(0).cursor(), lists.get(0).count());
+        }
+        // mark the positions of every list in a bitmap, then read them out in order
+        long[] bits = new long[(tweets.size() + 63) >>> 6];
+        for (PostingList list : lists) {
+            PostingList.Cursor cursor = list.cursor();
+            while (cursor.next()) {
+                int position = cursor.position();
+                bits[position >>> 6] |= 1L << position;
+            }
+        }
+        IntList result = new IntList(total);
+        for (int w = 0; w < bits.length; w++) {
+            for (long word = bits[w]; word != 0; word &= word - 1) {
+                result.add((w << 6) + Long.numberOfTrailingZeros(word));
+            }
+        }
+        return result.toArray();
+    }
+
+    /**
+     * @param words words that must all appear, case-insensitive
+     * @param excluded words that must not appear, case-insensitive
+     * @return input positions of the tweets that contain every one of words
+     *         and none of excluded, in increasing order
+     * @throws IllegalArgumentException if one of words or excluded is not a
+     *                                  single word
+     */
+    int[] positionsContainingAll(List<String> words, List<String> excluded) {
+        List<PostingList> required = new ArrayList<>();
+        for (String word : words) {
+            PostingList list = postingsOf(word);
+            if (list == null) {
+                checkAllWords(excluded);
+                return new int[0];
+            }
+            required.add(list);
+        }
+        List<PostingList.Cursor> exclusions = new ArrayList<>();
+        for (String word : excluded) {
+            PostingList list = postingsOf(word);
+            if (list != null) {
+                exclusions.add(list.cursor());
+            }
+        }
+        required.sort(Comparator.comparingInt(PostingList::count));
+
+        IntList result = new IntList();
+        PostingList.Cursor[] others = new PostingList.Cursor[Math.max(0, required.size() - 1)];
+        for (int k = 0; k < others.length; k++) {
+            others[k] = required.get(k + 1).cursor();
+        }
+        PostingList.Cursor first = required.isEmpty() ? null : required.get(0).cursor();
+        int candidate = -1;
+        candidates:
+        while (true) {
+            if (first == null) {
+                if (++candidate >= tweets.size()) {
+                    break;
+                }
+            } else {
+                if (!first.next()) {
+                    break;
+                }
+                candidate = first.position();
+            }
+            for (PostingList.Cursor other : others) {
+                if (!other.advance(candidate)) {
+                    break candidates;
+                }
+                if (other.position() != candidate) {
+                    continue candidates;
+                }
+            }
+            for (PostingList.Cursor exclusion : exclusions) {
+                if (exclusion.advance(candidate) && exclusion.position() == candidate) {
+                    continue candidates;
+                }
+            }
+            result.add(candidate);
+        }
+        return result.toArray();
+    }
+
+    /**
+     * @return approximate number of bytes taken by the posting lists and
+     *         the table of distinct words
+     */
+    public long postingBytes() {
+        long bytes = 0;
+        for (PostingList list : postings) {
+            bytes += list.encodedBytes() + 48;
+        }
+        for (int id = 0; id < words.size(); id++) {
+            bytes += 48 + 2L * words.name(id).length();
+        }
+        return bytes;
+    }
+
+    private List<Tweet> tweetsAt(int[] positions) {
+        List<Tweet> result = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            result.add(tweets.get(position));
+        }
+        return result;
+    }
+
+    private static int[] positions(PostingList.Cursor cursor, int count) {
+        int[] result = new int[count];
+        for (int i = 0; i < count && cursor.next(); i++) {
+            result[i] = cursor.position();
+        }
+        return result;
+    }
+
+    /*
+     * Posting list of a query word, or null if no tweet contains it.
+     */
+    private PostingList postingsOf(String word) {
+        checkWord(word);
+        int id = words.find(word);
+        return id < 0 ? null : postings.get(id);
+    }
+
+    private static void checkAllWords(List<String> words) {
+        for (String word : words) {
+            checkWord(word);
+        }
+    }
+
+    private static void checkWord(String word) {
+        if (word.isEmpty() || !word.codePoints().allMatch(WordIndex::isWordChar)) {
+            throw new IllegalArgumentException("not a single word: \"" + word + "\"");
+        }
+    }
+
+    private static boolean isWordChar(int codePoint) {
+        return Character.isLetterOrDigit(codePoint) || codePoint == '_';
+    }
+}
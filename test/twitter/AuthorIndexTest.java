@@ -0,0 +1,79 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class AuthorIndexTest {
+
+    /*
+     * Testing strategy
+     *
+     * AuthorIndex.writtenBy(), count():
+     *  unknown user, user with one tweet, user with several tweets in mixed case
+     *  tweets added after construction
+     * Filter.writtenByAll() on a list and on an index:
+     *  empty set, unknown users, several users
+     *  same user requested in two spellings
+     *  results equal to Filter.writtenBy for each user
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+    private static final Instant d2 = Instant.parse("2016-02-17T11:00:00Z");
+
+    private static final Tweet tweet1 = new Tweet(1, "alyssa", "is it reasonable to talk about rivest so much?", d1);
+    private static final Tweet tweet2 = new Tweet(2, "bbitdiddle", "rivest talk in 30 minutes #hype", d2);
+    private static final Tweet tweet3 = new Tweet(3, "Alyssa", "I love programming in Java", d2);
+    private static final List<Tweet> tweets = Arrays.asList(tweet1, tweet2, tweet3);
+
+    @Test
+    public void testWrittenBy() {
+        AuthorIndex index = new AuthorIndex(tweets);
+        assertEquals(Arrays.asList(tweet1, tweet3), Filter.writtenBy(index, "ALYSSA"));
+        assertEquals(Arrays.asList(tweet2), Filter.writtenBy(index, "bbitdiddle"));
+        assertTrue(Filter.writtenBy(index, "nobody").isEmpty());
+        assertEquals(2, index.count("alyssa"));
+        assertEquals(Set.of("alyssa", "bbitdiddle"), index.authors());
+    }
+
+    @Test
+    public void testAddAfterConstruction() {
+        AuthorIndex index = new AuthorIndex(Arrays.asList(tweet2));
+        index.add(tweet3);
+        index.add(tweet1);
+        assertEquals(Arrays.asList(tweet3, tweet1), index.writtenBy("alyssa"));
+        assertEquals(Arrays.asList(tweet2, tweet3, tweet1), index.tweets());
+    }
+
+    @Test
+    public void testWrittenByAllEmptySet() {
+        assertTrue(Filter.writtenByAll(tweets, Set.of()).isEmpty());
+    }
+
+    @Test
+    public void testWrittenByAllMatchesWrittenBy() {
+        Set<String> users = Set.of("alyssa", "BBITDIDDLE", "nobody");
+        AuthorIndex index = new AuthorIndex(tweets);
+        for (Map<String, List<Tweet>> result : List.of(Filter.writtenByAll(tweets, users),
+                                                       Filter.writtenByAll(index, users))) {
+            assertEquals(users, result.keySet());
+            for (String user : users) {
+                assertEquals(Filter.writtenBy(tweets, user), result.get(user));
+            }
+        }
+    }
+
+    @Test
+    public void testWrittenByAllTwoSpellings() {
+        Map<String, List<Tweet>> result = Filter.writtenByAll(tweets, Set.of("alyssa", "Alyssa"));
+        assertEquals(Arrays.asList(tweet1, tweet3), result.get("alyssa"));
+        assertEquals(Arrays.asList(tweet1, tweet3), result.get("Alyssa"));
+        assertNotSame(result.get("alyssa"), result.get("Alyssa"));
+    }
+}
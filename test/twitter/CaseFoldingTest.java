@@ -0,0 +1,84 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CaseFoldingTest {
+
+    /*
+     * Testing strategy
+     *
+     * chars: ASCII letters and others, non-ASCII with a simple lower case,
+     *  dotted capital I, capital sigma (final and not), surrogate pairs
+     * equalsIgnoreCase: equal, differing in case, different lengths that fold
+     *  to equal strings, empty
+     * containsIgnoreCase: empty word, word at start, middle, end, longer than
+     *  text, partial match then match
+     * random strings against String.toLowerCase(Locale.ROOT)
+     */
+
+    @Test
+    public void testFold() {
+        assertEquals('a', CaseFolding.fold('A'));
+        assertEquals('#', CaseFolding.fold('#'));
+        assertEquals('é', CaseFolding.fold('É'));
+        assertEquals('z', CaseFolding.fold('z'));
+    }
+
+    @Test
+    public void testEqualsIgnoreCase() {
+        assertTrue(CaseFolding.equalsIgnoreCase("", ""));
+        assertTrue(CaseFolding.equalsIgnoreCase("Alyssa", "aLYSSA"));
+        assertFalse(CaseFolding.equalsIgnoreCase("alyssa", "alyss"));
+        assertFalse(CaseFolding.equalsIgnoreCase("alyssa", "alyssb"));
+        assertTrue(CaseFolding.equalsIgnoreCase("ÉCOLE", "école"));
+        assertTrue("İ folds to two chars", CaseFolding.equalsIgnoreCase("İ", "i̇"));
+        assertFalse(CaseFolding.equalsIgnoreCase("İ", "i"));
+        assertTrue(CaseFolding.equalsIgnoreCase("ΟΔΥΣΣΕΥΣ", "οδυσσευς"));
+        assertTrue(CaseFolding.equalsIgnoreCase("𐐀", "𐐨"));
+    }
+
+    @Test
+    public void testContainsIgnoreCase() {
+        assertTrue(CaseFolding.containsIgnoreCase("anything", ""));
+        assertTrue(CaseFolding.containsIgnoreCase("", ""));
+        assertTrue(CaseFolding.containsIgnoreCase("Talking about Rivest", "TALK"));
+        assertTrue(CaseFolding.containsIgnoreCase("Talking about Rivest", "rivest"));
+        assertTrue(CaseFolding.containsIgnoreCase("aaab", "AAB"));
+        assertFalse(CaseFolding.containsIgnoreCase("rives", "rivest"));
+        assertFalse(CaseFolding.containsIgnoreCase("i", "İ"));
+        assertTrue(CaseFolding.containsIgnoreCase("İstanbul", "i̇stan"));
+        assertTrue(CaseFolding.containsIgnoreCase("ΟΔΥΣΣΕΥΣ", "υς"));
+    }
+
+    @Test
+    public void testRandomAgainstToLowerCase() {
+        Random random = new Random(6005);
+        String alphabet = "aAbBiIİıΣσςÉé𐐀𐐨 ";
+        for (int trial = 0; trial < 5000; trial++) {
+            String a = randomString(random, alphabet, random.nextInt(6));
+            String b = random.nextBoolean() ? randomString(random, alphabet, random.nextInt(4))
+                                            : a.toUpperCase(Locale.ROOT);
+            String lowerA = a.toLowerCase(Locale.ROOT);
+            String lowerB = b.toLowerCase(Locale.ROOT);
+            assertEquals(a + " = " + b, lowerA.equals(lowerB), CaseFolding.equalsIgnoreCase(a, b));
+            assertEquals(a + " contains " + b, lowerA.contains(lowerB), CaseFolding.containsIgnoreCase(a, b));
+        }
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            int k = random.nextInt(alphabet.length());
+            if (Character.isLowSurrogate(alphabet.charAt(k))) {
+                k--;
+            }
+            s.appendCodePoint(alphabet.codePointAt(k));
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,125 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class CompactFollowsGraphTest {
+
+    /*
+     * Testing strategy
+     *
+     * fromTweets():
+     *  no tweets; mentions only; hashtags only; same edge from several sources
+     *  self-mention; hashtag used twice by one user; names in different case
+     *  random corpora against SocialNetwork.guessFollowsGraph
+     * fromMap(), toMap():
+     *  key with empty set; user only as a target; self-loop; round trip
+     * observers:
+     *  id of unknown user; degrees, follows, followers, isFollowing
+     * SocialNetwork.influencers(CompactFollowsGraph):
+     *  ties ordered by username; same order as for the hypergraph
+     */
+
+    private static final Instant D = Instant.parse("2016-02-17T10:00:00Z");
+
+    private static Tweet tweet(long id, String author, String text) {
+        return new Tweet(id, author, text, D);
+    }
+
+    @Test
+    public void testEmpty() {
+        CompactFollowsGraph graph = CompactFollowsGraph.fromTweets(List.of());
+        assertEquals(0, graph.vertexCount());
+        assertEquals(0, graph.edgeCount());
+        assertEquals(Map.of(), graph.toMap());
+        assertEquals(-1, graph.id("alyssa"));
+        assertEquals(List.of(), SocialNetwork.influencers(graph));
+    }
+
+    @Test
+    public void testFromTweets() {
+        CompactFollowsGraph graph = CompactFollowsGraph.fromTweets(List.of(
+                tweet(1, "Alyssa", "@bbitdiddle @ALYSSA see you at #6005 #6005"),
+                tweet(2, "bbitdiddle", "#6005 #MIT"),
+                tweet(3, "charlie", "#mit @BBitDiddle")));
+
+        int alyssa = graph.id("ALYSSA");
+        int ben = graph.id("bbitdiddle");
+        int charlie = graph.id("Charlie");
+        assertEquals(3, graph.vertexCount());
+        assertEquals("alyssa", graph.name(alyssa));
+        assertEquals("duplicate evidence makes one edge, no self edges", 4, graph.edgeCount());
+        assertTrue(graph.isFollowing(alyssa, ben));
+        assertFalse(graph.isFollowing(alyssa, alyssa));
+        assertFalse(graph.isFollowing(alyssa, charlie));
+        assertEquals(2, graph.outDegree(ben));
+        assertEquals(2, graph.inDegree(ben));
+        assertEquals(1, graph.inDegree(charlie));
+        int[] followers = graph.followers(ben);
+        assertArrayEquals(new int[] { Math.min(alyssa, charlie), Math.max(alyssa, charlie) }, followers);
+        assertArrayEquals(new int[] { ben }, graph.follows(charlie));
+        assertEquals(List.of("bbitdiddle", "alyssa", "charlie"), SocialNetwork.influencers(graph));
+    }
+
+    @Test
+    public void testFromMapRoundTrip() {
+        Map<String, Set<String>> map = new HashMap<>();
+        map.put("alyssa", Set.of("ben", "alyssa"));
+        map.put("charlie", Set.of());
+        map.put("ben", Set.of("dana"));
+        CompactFollowsGraph graph = CompactFollowsGraph.fromMap(map);
+
+        assertEquals(4, graph.vertexCount());
+        assertEquals(3, graph.edgeCount());
+        assertEquals(0, graph.outDegree(graph.id("dana")));
+        assertTrue("self-loops are kept", graph.isFollowing(graph.id("alyssa"), graph.id("alyssa")));
+        assertEquals(map, graph.toMap());
+        assertEquals(List.of("alyssa", "ben", "dana"), SocialNetwork.influencers(graph));
+    }
+
+    @Test
+    public void testRandomCorporaMatchMapForm() {
+        Random random = new Random(6005);
+        for (int trial = 0; trial < 50; trial++) {
+            List<Tweet> tweets = new ArrayList<>();
+            int users = 2 + random.nextInt(15);
+            int tags = 1 + random.nextInt(6);
+            for (int i = 0; i < 40; i++) {
+                StringBuilder text = new StringBuilder();
+                for (int j = random.nextInt(4); j > 0; j--) {
+                    text.append(random.nextBoolean() ? " @U" : " @u").append(random.nextInt(users));
+                }
+                for (int j = random.nextInt(4); j > 0; j--) {
+                    text.append(random.nextBoolean() ? " #T" : " #t").append(random.nextInt(tags));
+                }
+                tweets.add(tweet(i, "u" + random.nextInt(users), text.toString()));
+            }
+
+            Map<String, Set<String>> expected = SocialNetwork.guessFollowsGraph(tweets);
+            CompactFollowsGraph graph = CompactFollowsGraph.fromTweets(tweets);
+            assertEquals(expected, graph.toMap());
+            assertEquals(expected, CompactFollowsGraph.fromMap(expected).toMap());
+            assertEquals(SocialNetwork.influencers(FollowsHypergraph.fromTweets(tweets)),
+                         SocialNetwork.influencers(graph));
+
+            for (int v = 0; v < graph.vertexCount(); v++) {
+                Set<String> followers = new HashSet<>();
+                for (int u : graph.followers(v)) {
+                    assertTrue(graph.isFollowing(u, v));
+                    followers.add(graph.name(u));
+                }
+                assertEquals(graph.inDegree(v), followers.size());
+            }
+        }
+    }
+}
@@ -6,8 +6,11 @@ package twitter;
 import static org.junit.Assert.*;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 
 import org.junit.Test;
@@ -29,6 +32,7 @@ public class ExtractTest {
      *  mention at start, middle, and end of text
      *  mixed case usernames
      *  ignore email-like text (e.g. alice@mit.edu)
+     *  username with hyphen
      *  repeated mentions (should appear once)
      */
 
@@ -128,4 +132,41 @@ public class ExtractTest {
         assertTrue(mentionedUsers.contains("alice"));
         assertEquals("mentions should not repeat", 1, mentionedUsers.size());
     }
+
+    @Test
+    public void testGetMentionedUsersHyphenatedUsername() {
+        Tweet t = new Tweet(11, "bob", "ask @Ben-Bitdiddle, not x-@alyssa", d2);
+        Set<String> mentionedUsers = Extract.getMentionedUsers(Arrays.asList(t));
+        assertEquals("hyphen is a username character", Set.of("ben-bitdiddle"), mentionedUsers);
+    }
+
+    // ---------- parallel variants ----------
+
+    private static List<Tweet> manyTweets(int count) {
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Instant time = d1.plusSeconds((i * 7919L) % 100_003);
+            tweets.add(new Tweet(i, "user" + i, "hi @user" + (i % 97) + " and @User" + (i * 31 % 1009), time));
+        }
+        return tweets;
+    }
+
+    @Test
+    public void testParallelBelowThreshold() {
+        List<Tweet> tweets = Arrays.asList(tweet1, tweet2);
+        assertEquals(Extract.getTimespan(tweets), Extract.getTimespanParallel(tweets));
+        assertEquals(Extract.getMentionedUsers(tweets), Extract.getMentionedUsersParallel(tweets));
+    }
+
+    @Test
+    public void testParallelMatchesSequential() {
+        List<Tweet> tweets = manyTweets(5_000);
+        for (int threshold : new int[] { 1, 10, 1_000 }) {
+            assertEquals(Extract.getTimespan(tweets), Extract.getTimespanParallel(tweets, threshold));
+            assertEquals(Extract.getMentionedUsers(tweets), Extract.getMentionedUsersParallel(tweets, threshold));
+        }
+        List<Tweet> linked = new LinkedList<>(tweets);
+        assertEquals(Extract.getTimespan(tweets), Extract.getTimespanParallel(linked, 100));
+        assertEquals(Extract.getMentionedUsers(tweets), Extract.getMentionedUsersParallel(linked, 100));
+    }
 }
@@ -0,0 +1,92 @@
+package twitter;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class FilterAllocationTest {
+
+    /*
+     * Testing strategy
+     *
+     * Regression test that the Filter hot loops allocate nothing per tweet:
+     * each method runs over lists of 1,000 and 20,000 tweets with mixed-case
+     * authors and texts, none of which match, so the result is empty, and
+     * the bytes the thread allocates must not grow with the list.
+     *
+     * methods: writtenBy, writtenByAll, inTimespan, containing (with a
+     *  compiled KeywordMatcher), and their lazy stream variants
+     *
+     * Skipped on JVMs that cannot measure per-thread allocation.
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    /** Bytes allowed per call on top of the small list, independent of its size. */
+    private static final long SLACK = 4096;
+
+    private interface Call {
+        Object run(List<Tweet> tweets);
+    }
+
+    private static List<Tweet> tweets(int n) {
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            tweets.add(new Tweet(i, (i % 2 == 0 ? "Alyssa" : "BBitDiddle") + i % 100,
+                    "Is it REASONABLE to Talk about Rivest so much? #Hype " + i, d1.plusSeconds(i)));
+        }
+        return tweets;
+    }
+
+    private static long allocatedBytes(List<Tweet> tweets, Call call) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < 20; i++) {
+            call.run(tweets);
+        }
+        long before = threads.getThreadAllocatedBytes(thread);
+        call.run(tweets);
+        return threads.getThreadAllocatedBytes(thread) - before;
+    }
+
+    private static void assertNoAllocationPerTweet(String name, Call call) {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                        .isThreadAllocatedMemoryEnabled());
+        long small = allocatedBytes(tweets(1_000), call);
+        long large = allocatedBytes(tweets(20_000), call);
+        assertTrue(name + " allocated " + small + " then " + large + " bytes", large <= small + SLACK);
+    }
+
+    @Test
+    public void testWrittenBy() {
+        assertNoAllocationPerTweet("writtenBy", tweets -> Filter.writtenBy(tweets, "nobody"));
+        assertNoAllocationPerTweet("streamWrittenBy", tweets -> Filter.streamWrittenBy(tweets, "nobody").count());
+        Set<String> usernames = Set.of("nobody", "NOBODY_ELSE");
+        assertNoAllocationPerTweet("writtenByAll", tweets -> Filter.writtenByAll(tweets, usernames));
+    }
+
+    @Test
+    public void testInTimespan() {
+        Timespan before = new Timespan(d1.minusSeconds(100), d1.minusSeconds(1));
+        assertNoAllocationPerTweet("inTimespan", tweets -> Filter.inTimespan(tweets, before));
+        assertNoAllocationPerTweet("streamInTimespan", tweets -> Filter.streamInTimespan(tweets, before).count());
+    }
+
+    @Test
+    public void testContaining() {
+        KeywordMatcher words = KeywordMatcher.compile(Arrays.asList("java", "MIT"));
+        assertNoAllocationPerTweet("containing", tweets -> Filter.containing(tweets, words));
+        List<String> list = Arrays.asList("java", "MIT");
+        assertNoAllocationPerTweet("streamContaining", tweets -> Filter.streamContaining(tweets, list).count());
+    }
+}
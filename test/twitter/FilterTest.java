@@ -4,6 +4,8 @@ import static org.junit.Assert.*;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 import org.junit.Test;
 
 public class FilterTest {
@@ -43,4 +45,14 @@ public class FilterTest {
         assertTrue(containingWord.contains(tweet1));
         assertTrue(containingWord.contains(tweet2));
     }
+
+    // --- streamWrittenBy(), streamInTimespan(), streamContaining() ---
+    @Test
+    public void testStreamsMatchLists() {
+        List<Tweet> tweets = Arrays.asList(tweet1, tweet2, tweet3);
+        assertEquals(Filter.writtenBy(tweets, "ALYSSA"),
+                Filter.streamWrittenBy(tweets, "ALYSSA").collect(Collectors.toList()));
+        assertEquals(2, Filter.streamInTimespan(tweets, new Timespan(t2, t3)).count());
+        assertEquals(Optional.of(tweet2), Filter.streamContaining(tweets, Arrays.asList("hype", "java")).findFirst());
+    }
 }
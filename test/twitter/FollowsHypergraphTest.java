@@ -0,0 +1,164 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class FollowsHypergraphTest {
+
+    /*
+     * Testing strategy
+     *
+     * fromTweets():
+     *  no tweets; mentions only; hashtags only; both evidence sources for one edge
+     *  self-mention; user in one hashtag, in several overlapping hashtags
+     *  user in many hashtags; unknown user
+     *  usernames and hashtags in different case
+     * observers:
+     *  isFollowing, follows, followers, followerCount(s) against the materialized
+     *  graph; toFollowsGraph against a pairwise reference on random corpora
+     * SocialNetwork.influencers(FollowsHypergraph):
+     *  ties ordered by username; matches counts of the materialized graph
+     */
+
+    private static final Instant D = Instant.parse("2016-02-17T10:00:00Z");
+
+    private static Tweet tweet(long id, String author, String text) {
+        return new Tweet(id, author, text, D);
+    }
+
+    @Test
+    public void testEmpty() {
+        FollowsHypergraph graph = FollowsHypergraph.fromTweets(List.of());
+        assertEquals(Set.of(), graph.users());
+        assertEquals(Map.of(), graph.toFollowsGraph());
+        assertEquals(Map.of(), graph.followerCounts());
+        assertEquals(0, graph.followerCount("alyssa"));
+        assertEquals(List.of(), SocialNetwork.influencers(graph));
+    }
+
+    @Test
+    public void testMentionsAndHashtags() {
+        FollowsHypergraph graph = FollowsHypergraph.fromTweets(List.of(
+                tweet(1, "Alyssa", "@bbitdiddle @alyssa see you at #6005"),
+                tweet(2, "bbitdiddle", "#6005 #MIT"),
+                tweet(3, "charlie", "#mit @BBitDiddle")));
+
+        assertTrue(graph.isFollowing("alyssa", "BBITDIDDLE"));
+        assertFalse("no self edges", graph.isFollowing("alyssa", "alyssa"));
+        assertTrue(graph.isFollowing("bbitdiddle", "alyssa"));
+        assertFalse(graph.isFollowing("alyssa", "charlie"));
+        assertEquals(Set.of("alyssa", "charlie"), graph.follows("bbitdiddle"));
+        assertEquals(Set.of("alyssa", "charlie"), graph.followers("bbitdiddle"));
+        assertEquals(2, graph.followerCount("BbitDiddle"));
+        assertEquals(Map.of("alyssa", 1, "bbitdiddle", 2, "charlie", 1), graph.followerCounts());
+        assertEquals(Set.of("6005", "mit"), graph.hashtags().keySet());
+        assertEquals(List.of("bbitdiddle", "alyssa", "charlie"), SocialNetwork.influencers(graph));
+    }
+
+    @Test
+    public void testManyHashtagsPerUser() {
+        List<Tweet> tweets = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            text.append(" #t").append(i);
+            tweets.add(tweet(i, "u" + i, "#t" + i + " #t" + (i + 1)));
+        }
+        tweets.add(tweet(100, "hub", text.toString()));
+        FollowsHypergraph graph = FollowsHypergraph.fromTweets(tweets);
+        assertEquals(20, graph.followerCount("hub"));
+        assertEquals(0, graph.followerCount("nobody"));
+        assertCountsMatch(graph.toFollowsGraph(), graph);
+    }
+
+    @Test
+    public void testRandomCorporaMatchReference() {
+        Random random = new Random(6005);
+        for (int trial = 0; trial < 50; trial++) {
+            List<Tweet> tweets = new ArrayList<>();
+            int users = 2 + random.nextInt(15);
+            int tags = 1 + random.nextInt(6);
+            for (int i = 0; i < 40; i++) {
+                StringBuilder text = new StringBuilder();
+                for (int j = random.nextInt(4); j > 0; j--) {
+                    text.append(random.nextBoolean() ? " @U" : " @u").append(random.nextInt(users));
+                }
+                for (int j = random.nextInt(4); j > 0; j--) {
+                    text.append(random.nextBoolean() ? " #T" : " #t").append(random.nextInt(tags));
+                }
+                tweets.add(tweet(i, "u" + random.nextInt(users), text.toString()));
+            }
+
+            FollowsHypergraph graph = FollowsHypergraph.fromTweets(tweets);
+            Map<String, Set<String>> expected = reference(tweets);
+            assertEquals(expected, graph.toFollowsGraph());
+            assertEquals(expected, SocialNetwork.guessFollowsGraph(tweets));
+            assertCountsMatch(expected, graph);
+            for (String a : graph.users()) {
+                assertEquals(expected.getOrDefault(a, Set.of()), graph.follows(a));
+            }
+        }
+    }
+
+    /*
+     * Pairwise expansion of the evidence, written independently of TweetLexer.
+     */
+    private static Map<String, Set<String>> reference(List<Tweet> tweets) {
+        Map<String, Set<String>> graph = new HashMap<>();
+        Map<String, Set<String>> hashtagUsers = new HashMap<>();
+        for (Tweet t : tweets) {
+            String author = t.getAuthor().toLowerCase();
+            for (String word : t.getText().split(" ")) {
+                if (word.startsWith("@") && !word.substring(1).equalsIgnoreCase(author)) {
+                    graph.computeIfAbsent(author, k -> new HashSet<>()).add(word.substring(1).toLowerCase());
+                } else if (word.startsWith("#")) {
+                    hashtagUsers.computeIfAbsent(word.substring(1).toLowerCase(), k -> new HashSet<>()).add(author);
+                }
+            }
+        }
+        for (Set<String> users : hashtagUsers.values()) {
+            for (String a : users) {
+                for (String b : users) {
+                    if (!a.equals(b)) {
+                        graph.computeIfAbsent(a, k -> new HashSet<>()).add(b);
+                    }
+                }
+            }
+        }
+        return graph;
+    }
+
+    private static void assertCountsMatch(Map<String, Set<String>> followsGraph, FollowsHypergraph graph) {
+        Map<String, Integer> counts = new HashMap<>();
+        Map<String, Set<String>> followers = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : followsGraph.entrySet()) {
+            for (String followed : entry.getValue()) {
+                counts.merge(followed, 1, Integer::sum);
+                followers.computeIfAbsent(followed, k -> new HashSet<>()).add(entry.getKey());
+            }
+        }
+        assertEquals(counts, graph.followerCounts());
+        for (String user : counts.keySet()) {
+            assertEquals(counts.get(user).intValue(), graph.followerCount(user));
+            assertEquals(followers.get(user), graph.followers(user));
+        }
+
+        List<String> influencers = SocialNetwork.influencers(graph);
+        assertEquals(counts.keySet(), new HashSet<>(influencers));
+        for (int i = 1; i < influencers.size(); i++) {
+            int previous = counts.get(influencers.get(i - 1));
+            int current = counts.get(influencers.get(i));
+            assertTrue(previous > current
+                    || previous == current && influencers.get(i - 1).compareTo(influencers.get(i)) < 0);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class IncrementalFollowsGraphTest {
+
+    /*
+     * Testing strategy
+     *
+     * addTweets():
+     *  empty batch; first batch; later batch that repeats old evidence, adds
+     *  a new member to an old hashtag, a mention already implied by a hashtag,
+     *  a hashtag shared with a user already mentioned, or a second hashtag
+     *  shared by the same users
+     *  usernames and hashtags in different case across batches
+     * observers:
+     *  isFollowing and followerCount of unknown users; influencers(k) for
+     *  k = 0, k < number ranked, k > number ranked; toMap
+     *  random batches against guessFollowsGraph and influencers of all tweets
+     *  so far, including isFollowing for every pair
+     */
+
+    private static final Instant D = Instant.parse("2016-02-17T10:00:00Z");
+
+    private static Tweet tweet(long id, String author, String text) {
+        return new Tweet(id, author, text, D);
+    }
+
+    @Test
+    public void testEmpty() {
+        IncrementalFollowsGraph graph = new IncrementalFollowsGraph();
+        graph.addTweets(List.of());
+        assertEquals(0, graph.userCount());
+        assertEquals(0, graph.edgeCount());
+        assertEquals(Map.of(), graph.toMap());
+        assertEquals(List.of(), graph.influencers(10));
+        assertFalse(graph.isFollowing("alyssa", "ben"));
+        assertEquals(0, graph.followerCount("alyssa"));
+    }
+
+    @Test
+    public void testBatches() {
+        IncrementalFollowsGraph graph = new IncrementalFollowsGraph();
+        graph.addTweets(List.of(tweet(1, "alyssa", "@ben #6005"),
+                                tweet(2, "charlie", "#6005")));
+        assertTrue(graph.isFollowing("Alyssa", "BEN"));
+        assertTrue(graph.isFollowing("charlie", "alyssa"));
+        assertEquals(2, graph.followerCount("alyssa") + graph.followerCount("ben"));
+        assertEquals(List.of("alyssa", "ben", "charlie"), graph.influencers(3));
+
+        graph.addTweets(List.of(tweet(3, "Ben", "#6005 @CHARLIE"),
+                                tweet(4, "dana", "@charlie @alyssa")));
+        assertEquals(3, graph.followerCount("charlie"));
+        assertEquals(3, graph.followerCount("alyssa"));
+        assertEquals(2, graph.followerCount("ben"));
+        assertEquals(0, graph.followerCount("dana"));
+        assertEquals(List.of("alyssa", "charlie"), graph.influencers(2));
+        assertEquals(List.of(), graph.influencers(0));
+        assertEquals(List.of("alyssa", "charlie", "ben"), graph.influencers(10));
+        assertEquals(4, graph.userCount());
+    }
+
+    @Test
+    public void testOverlappingEvidenceCountsEachEdgeOnce() {
+        IncrementalFollowsGraph graph = new IncrementalFollowsGraph();
+        graph.addTweets(List.of(tweet(1, "alyssa", "@ben"),
+                                tweet(2, "alyssa", "#mit #6005")));
+        graph.addTweets(List.of(tweet(3, "ben", "#6005 #MIT"),
+                                tweet(4, "charlie", "#mit")));
+        assertEquals(6, graph.edgeCount());
+        assertEquals(2, graph.followerCount("ben"));
+        assertEquals(2, graph.followerCount("alyssa"));
+        assertTrue(graph.isFollowing("ben", "alyssa"));
+        assertFalse(graph.isFollowing("ben", "ben"));
+
+        graph.addTweets(List.of(tweet(5, "charlie", "@alyssa #6005")));
+        assertEquals(6, graph.edgeCount());
+        assertEquals(List.of("alyssa", "ben", "charlie"), graph.influencers(3));
+    }
+
+    @Test
+    public void testRandomBatchesMatchRebuild() {
+        Random random = new Random(6005);
+        for (int trial = 0; trial < 20; trial++) {
+            IncrementalFollowsGraph graph = new IncrementalFollowsGraph();
+            List<Tweet> all = new ArrayList<>();
+            int users = 2 + random.nextInt(20);
+            int tags = 1 + random.nextInt(6);
+            for (int batch = 0; batch < 8; batch++) {
+                List<Tweet> tweets = new ArrayList<>();
+                for (int i = random.nextInt(10); i > 0; i--) {
+                    StringBuilder text = new StringBuilder();
+                    for (int j = random.nextInt(3); j > 0; j--) {
+                        text.append(random.nextBoolean() ? " @U" : " @u").append(random.nextInt(users));
+                    }
+                    for (int j = random.nextInt(3); j > 0; j--) {
+                        text.append(random.nextBoolean() ? " #T" : " #t").append(random.nextInt(tags));
+                    }
+                    tweets.add(tweet(all.size() + tweets.size(), "u" + random.nextInt(users), text.toString()));
+                }
+                graph.addTweets(tweets);
+                all.addAll(tweets);
+
+                Map<String, Set<String>> expected = SocialNetwork.guessFollowsGraph(all);
+                assertEquals(expected, graph.toMap());
+                int edges = expected.values().stream().mapToInt(Set::size).sum();
+                assertEquals(edges, graph.edgeCount());
+                int k = random.nextInt(users + 1);
+                assertEquals(SocialNetwork.influencers(expected, k), graph.influencers(k));
+                for (int a = 0; a < users; a++) {
+                    for (int b = 0; b < users; b++) {
+                        assertEquals(expected.getOrDefault("u" + a, Set.of()).contains("u" + b),
+                                graph.isFollowing("u" + a, "U" + b));
+                    }
+                }
+            }
+        }
+    }
+}
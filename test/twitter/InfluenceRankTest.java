@@ -0,0 +1,203 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class InfluenceRankTest {
+
+    /*
+     * Testing strategy
+     *
+     * graph: empty; cycle (uniform ranks); star; users who follow no one;
+     *  random graphs large enough to be split into several chunks
+     * pool: common pool, pool with parallelism 1, pool with parallelism 4
+     * rank(): against a straightforward sequential power iteration
+     * rank(start): warm start from the converged ranking, carried over
+     *  from a smaller graph
+     * personalizedRank(): teleport to one user; invalid weight vectors
+     * top(): k = 0, ties ordered by username
+     * constructor: invalid parameters
+     */
+
+    private static final double EPSILON = 1e-7;
+
+    private static Map<String, Set<String>> graph(String... edges) {
+        Map<String, Set<String>> followsGraph = new HashMap<>();
+        for (String edge : edges) {
+            String[] ends = edge.split("->");
+            followsGraph.computeIfAbsent(ends[0], k -> new HashSet<>()).add(ends[1]);
+            followsGraph.computeIfAbsent(ends[1], k -> new HashSet<>());
+        }
+        return followsGraph;
+    }
+
+    @Test
+    public void testEmpty() {
+        InfluenceRank engine = new InfluenceRank(CompactFollowsGraph.fromMap(Map.of()));
+        assertArrayEquals(new double[0], engine.rank(), 0);
+        assertEquals(0, engine.iterations());
+        assertEquals(List.of(), engine.top(new double[0], 5));
+    }
+
+    @Test
+    public void testCycleIsUniform() {
+        CompactFollowsGraph graph = CompactFollowsGraph.fromMap(graph("a->b", "b->c", "c->a"));
+        InfluenceRank engine = new InfluenceRank(graph);
+        double[] ranks = engine.rank();
+        assertArrayEquals(new double[] { 1.0 / 3, 1.0 / 3, 1.0 / 3 }, ranks, EPSILON);
+        assertTrue(engine.converged());
+        assertEquals("ties by username", List.of("a", "b"), engine.top(ranks, 2));
+        assertEquals(List.of(), engine.top(ranks, 0));
+    }
+
+    @Test
+    public void testStar() {
+        CompactFollowsGraph graph = CompactFollowsGraph.fromMap(graph("a->hub", "b->hub", "c->hub", "hub->a"));
+        InfluenceRank engine = new InfluenceRank(graph);
+        double[] ranks = engine.rank();
+        assertEquals(List.of("hub", "a", "b", "c"), engine.top(ranks, 4));
+        assertEquals(1.0, sum(ranks), EPSILON);
+        assertArrayEquals(reference(graph, null, 0.85), ranks, EPSILON);
+    }
+
+    @Test
+    public void testRandomGraphsMatchReference() {
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            Random random = new Random(6005);
+            for (int trial = 0; trial < 5; trial++) {
+                Map<String, Set<String>> map = new HashMap<>();
+                int users = 2_000 + random.nextInt(20_000);
+                for (int i = 0; i < users; i++) {
+                    Set<String> followed = new HashSet<>();
+                    // some users follow no one
+                    for (int j = random.nextInt(8) - 2; j > 0; j--) {
+                        followed.add("u" + random.nextInt(users));
+                    }
+                    map.put("u" + i, followed);
+                }
+                CompactFollowsGraph graph = CompactFollowsGraph.fromMap(map);
+                double[] expected = reference(graph, null, 0.85);
+                assertArrayEquals(expected, new InfluenceRank(graph).rank(), EPSILON);
+                assertArrayEquals(expected, new InfluenceRank(graph, one, 0.85, 1e-12, 200).rank(), EPSILON);
+                InfluenceRank parallel = new InfluenceRank(graph, four, 0.85, 1e-12, 200);
+                assertArrayEquals(expected, parallel.rank(), EPSILON);
+
+                double[] teleport = new double[graph.vertexCount()];
+                teleport[graph.id("u0")] = 1;
+                assertArrayEquals(reference(graph, teleport, 0.85), parallel.personalizedRank(teleport, null), EPSILON);
+            }
+        } finally {
+            one.shutdown();
+            four.shutdown();
+        }
+    }
+
+    @Test
+    public void testWarmStart() {
+        Map<String, Set<String>> map = new HashMap<>();
+        Random random = new Random(6005);
+        for (int i = 0; i < 5_000; i++) {
+            Set<String> followed = new HashSet<>();
+            for (int j = random.nextInt(6); j > 0; j--) {
+                followed.add("u" + random.nextInt(5_000));
+            }
+            map.put("u" + i, followed);
+        }
+        CompactFollowsGraph before = CompactFollowsGraph.fromMap(map);
+        InfluenceRank engine = new InfluenceRank(before);
+        double[] ranks = engine.rank();
+        int cold = engine.iterations();
+        engine.rank(ranks);
+        assertTrue("converged ranking is already a fixed point", engine.iterations() <= 2);
+
+        map.put("newcomer", Set.of("u1", "u2"));
+        map.get("u3").add("newcomer");
+        CompactFollowsGraph after = CompactFollowsGraph.fromMap(map);
+        InfluenceRank next = new InfluenceRank(after);
+        double[] warm = next.rank(InfluenceRank.carryOver(before, ranks, after));
+        int warmIterations = next.iterations();
+        assertArrayEquals(next.rank(), warm, EPSILON);
+        assertTrue(warmIterations + " warm vs " + cold + " cold iterations", warmIterations < cold);
+    }
+
+    @Test
+    public void testPersonalizedRank() {
+        CompactFollowsGraph graph = CompactFollowsGraph.fromMap(graph("a->b", "b->c", "c->a", "d->a"));
+        InfluenceRank engine = new InfluenceRank(graph);
+        double[] teleport = new double[graph.vertexCount()];
+        teleport[graph.id("d")] = 1;
+        double[] ranks = engine.personalizedRank(teleport, null);
+        assertEquals(1.0, sum(ranks), EPSILON);
+        assertEquals("d is followed by no one", 0.15, ranks[graph.id("d")], EPSILON);
+        assertEquals("a", engine.top(ranks, 1).get(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongLengthStart() {
+        new InfluenceRank(CompactFollowsGraph.fromMap(graph("a->b"))).rank(new double[3]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroTeleport() {
+        new InfluenceRank(CompactFollowsGraph.fromMap(graph("a->b"))).personalizedRank(new double[2], null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDampingOne() {
+        new InfluenceRank(CompactFollowsGraph.fromMap(graph("a->b")), ForkJoinPool.commonPool(), 1, 1e-9, 10);
+    }
+
+    /*
+     * Power iteration, one edge at a time, to a tight tolerance.
+     */
+    private static double[] reference(CompactFollowsGraph graph, double[] teleport, double damping) {
+        int n = graph.vertexCount();
+        double[] p = new double[n];
+        for (int v = 0; v < n; v++) {
+            p[v] = teleport == null ? 1.0 / n : teleport[v] / sum(teleport);
+        }
+        double[] rank = p.clone();
+        for (int iteration = 0; iteration < 1_000; iteration++) {
+            double[] next = new double[n];
+            double dangling = 0;
+            for (int u = 0; u < n; u++) {
+                int[] followed = graph.follows(u);
+                if (followed.length == 0) {
+                    dangling += rank[u];
+                }
+                for (int v : followed) {
+                    next[v] += damping * rank[u] / followed.length;
+                }
+            }
+            double change = 0;
+            for (int v = 0; v < n; v++) {
+                next[v] += (1 - damping + damping * dangling) * p[v];
+                change += Math.abs(next[v] - rank[v]);
+            }
+            rank = next;
+            if (change < 1e-13) {
+                break;
+            }
+        }
+        return rank;
+    }
+
+    private static double sum(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+}
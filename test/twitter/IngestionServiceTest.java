@@ -0,0 +1,278 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class IngestionServiceTest {
+
+    /*
+     * Testing strategy
+     *
+     * responses: overlapping samples; sample with no new tweets; server error;
+     *  malformed JSON; malformed created_at; empty array
+     * subscribers: none, one, two; slow subscriber with small queues
+     *  (backpressure); subscriber that throws
+     * lifecycle: close before start; start twice; close stops polling
+     * metrics: fetch stage and bytes read recorded when enabled, including
+     *  for a server error
+     *
+     * Each test serves canned JSON from a local HttpServer: the i-th request
+     * gets responses[min(i, last)].
+     */
+
+    private HttpServer server;
+    private final List<String> responses = new ArrayList<>();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/tweets", exchange -> {
+            int i = requests.getAndIncrement();
+            String body = responses.get(Math.min(i, responses.size() - 1));
+            int status = body == null ? 500 : 200;
+            byte[] bytes = (body == null ? "error" : body).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private URL url() throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/tweets");
+    }
+
+    private static String tweet(long id, String author) {
+        return "{\"id\": " + id + ", \"user\": {\"screen_name\": \"" + author + "\"},"
+                + " \"text\": \"tweet " + id + " #mit\", \"created_at\": \"Wed Feb 17 10:00:00 +0000 2016\"}";
+    }
+
+    private static String sample(long... ids) {
+        StringBuilder json = new StringBuilder("[");
+        for (long id : ids) {
+            json.append(json.length() > 1 ? ", " : "").append(tweet(id, "user" + id % 3));
+        }
+        return json.append("]").toString();
+    }
+
+    @Test
+    public void testOverlappingSamplesAreDeduplicated() throws Exception {
+        responses.add(sample(1, 2, 3));
+        responses.add(null);
+        responses.add(sample(2, 3, 4, 5));
+        responses.add("[{\"id\": 9, \"text\": ");
+        responses.add(sample(5, 4));
+        responses.add(sample(6));
+        responses.add("[]");
+
+        List<Long> ids = new ArrayList<>();
+        List<Long> copy = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        IngestionService service = new IngestionService(url(), Duration.ofMillis(1));
+        try {
+            service.subscribe(batch -> {
+                for (Tweet t : batch) {
+                    ids.add(t.getId());
+                }
+                if (ids.contains(6L)) {
+                    done.countDown();
+                }
+            });
+            service.subscribe(batch -> batch.forEach(t -> copy.add(t.getId())));
+            service.start();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            service.close();
+
+            assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), ids);
+            assertEquals(ids, copy);
+            assertEquals(6, service.tweetCount());
+            assertEquals("2, 3 in the third sample; 5, 4 in the fifth", 4, service.duplicateCount());
+            assertEquals(3, service.publishedCount());
+            assertEquals("server error and truncated JSON", 2, service.errorCount());
+            assertNotNull(service.lastError());
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    public void testSlowSubscriberSlowsPolling() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger batches = new AtomicInteger();
+        long[] counter = { 100 };
+        try (IngestionService service = new IngestionService(url(), Duration.ofMillis(1), 1, Thread::new)) {
+            // every response is new, so every response becomes a batch
+            server.removeContext("/tweets");
+            server.createContext("/tweets", exchange -> {
+                requests.incrementAndGet();
+                byte[] bytes;
+                synchronized (counter) {
+                    bytes = sample(counter[0]++).getBytes(StandardCharsets.UTF_8);
+                }
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            });
+            service.subscribe(batch -> {
+                batches.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            service.start();
+            Thread.sleep(300);
+            // one batch in the subscriber, one in each queue, one parsed and
+            // one fetched response waiting for space
+            assertTrue("polled " + requests.get() + " times", requests.get() <= 5);
+            assertEquals(1, batches.get());
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testThrowingSubscriberIsCounted() throws Exception {
+        responses.add(sample(1));
+        CountDownLatch later = new CountDownLatch(1);
+        IngestionService service = new IngestionService(url(), Duration.ofMillis(1));
+        try {
+            service.subscribe(batch -> {
+                throw new IllegalStateException("subscriber failed");
+            });
+            service.subscribe(batch -> later.countDown());
+            service.start();
+            assertTrue(later.await(10, TimeUnit.SECONDS));
+            service.close();
+            assertEquals(1, service.errorCount());
+            assertTrue(service.lastError() instanceof IllegalStateException);
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    public void testBadDateIsCountedAndPollingContinues() throws Exception {
+        responses.add(sample(1));
+        responses.add("[" + tweet(2, "alyssa").replace("Wed Feb 17 10:00:00 +0000 2016", "yesterday") + "]");
+        responses.add(sample(3));
+        CountDownLatch done = new CountDownLatch(1);
+        List<Long> ids = new ArrayList<>();
+        IngestionService service = new IngestionService(url(), Duration.ofMillis(1));
+        try {
+            service.subscribe(batch -> {
+                batch.forEach(t -> ids.add(t.getId()));
+                if (ids.contains(3L)) {
+                    done.countDown();
+                }
+            });
+            service.start();
+            assertTrue("parse thread survived the bad date", done.await(10, TimeUnit.SECONDS));
+            service.close();
+            assertEquals(List.of(1L, 3L), ids);
+            assertEquals(1, service.errorCount());
+            assertTrue(service.lastError() instanceof RuntimeException);
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    public void testLifecycle() throws Exception {
+        responses.add("[]");
+        IngestionService unused = new IngestionService(url(), Duration.ofMillis(1));
+        unused.close();
+
+        IngestionService service = new IngestionService(url(), Duration.ofMillis(5));
+        service.start();
+        try {
+            service.start();
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException ise) {
+            // expected
+        }
+        service.close();
+        int polled = requests.get();
+        Thread.sleep(50);
+        assertEquals("no polling after close", polled, requests.get());
+        assertEquals(0, service.publishedCount());
+    }
+
+    @Test
+    public void testFetchRecordsMetrics() throws Exception {
+        String body = sample(1, 2);
+        responses.add(body);
+
+        CountDownLatch done = new CountDownLatch(1);
+        IngestionService service = new IngestionService(url(), Duration.ofMinutes(1));
+        Metrics.reset();
+        Metrics.setEnabled(true);
+        try {
+            service.subscribe(batch -> done.countDown());
+            service.start();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            service.close();
+
+            Metrics.Snapshot snapshot = Metrics.snapshot();
+            assertEquals(1, service.fetchCount());
+            assertEquals(1, snapshot.count(Metrics.Stage.FETCH));
+            assertEquals(body.getBytes(StandardCharsets.UTF_8).length,
+                    snapshot.counter(Metrics.Counter.BYTES_READ));
+            assertEquals(1, snapshot.count(Metrics.Stage.PARSE));
+        } finally {
+            service.close();
+            Metrics.setEnabled(false);
+            Metrics.reset();
+        }
+    }
+
+    @Test
+    public void testFailedFetchesAreTimed() throws Exception {
+        responses.add(null);
+        responses.add(sample(1));
+
+        CountDownLatch done = new CountDownLatch(1);
+        IngestionService service = new IngestionService(url(), Duration.ofMillis(1));
+        Metrics.reset();
+        Metrics.setEnabled(true);
+        try {
+            service.subscribe(batch -> done.countDown());
+            service.start();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            service.close();
+
+            assertTrue(service.errorCount() >= 1);
+            assertEquals("every attempt, failed or not", service.fetchCount(),
+                    Metrics.snapshot().count(Metrics.Stage.FETCH));
+        } finally {
+            service.close();
+            Metrics.setEnabled(false);
+            Metrics.reset();
+        }
+    }
+}
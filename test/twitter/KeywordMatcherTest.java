@@ -0,0 +1,131 @@
+package twitter;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class KeywordMatcherTest {
+
+    /*
+     * Testing strategy
+     *
+     * compile(): no words, empty word, duplicate words, words that are
+     *            prefixes/suffixes/substrings of each other, thousands of words;
+     *            memory allocated for a small query
+     * matchesAny(), matchingWords():
+     *  match at start, middle, end of text; overlapping matches
+     *  mixed case text and words
+     *  non-ASCII letters, supplementary characters, dotted capital I, capital sigma
+     *  results compared with text.toLowerCase().contains(word.toLowerCase())
+     */
+
+    private static Set<String> reference(String text, List<String> words) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String word : words) {
+            if (text.toLowerCase(Locale.ROOT).contains(word.toLowerCase(Locale.ROOT))) {
+                result.add(word);
+            }
+        }
+        return result;
+    }
+
+    private static void assertMatches(String text, List<String> words) {
+        KeywordMatcher matcher = KeywordMatcher.compile(words);
+        Set<String> expected = reference(text, words);
+        assertEquals(text, !expected.isEmpty(), matcher.matchesAny(text));
+        assertEquals(text, expected, matcher.matchingWords(text));
+    }
+
+    @Test
+    public void testNoWords() {
+        assertFalse(KeywordMatcher.compile(List.of()).matchesAny("anything"));
+    }
+
+    @Test
+    public void testEmptyWordMatchesEverything() {
+        assertMatches("", Arrays.asList("", "x"));
+        assertMatches("rivest", Arrays.asList("x", ""));
+    }
+
+    @Test
+    public void testOverlappingWords() {
+        List<String> words = Arrays.asList("he", "she", "his", "hers", "talk", "TALKING", "alk");
+        assertMatches("ushers", words);
+        assertMatches("Rivest TALK in 30 minutes", words);
+        assertMatches("talkin", words);
+        assertMatches("nothing here", words);
+        assertMatches("h", words);
+    }
+
+    @Test
+    public void testDuplicateWords() {
+        assertMatches("Talk", Arrays.asList("talk", "TALK", "talk"));
+    }
+
+    @Test
+    public void testNonAscii() {
+        List<String> words = Arrays.asList("CAFÉ", "naïve", "𐐨", "i̇", "σ", "ς", "ΟΣ");
+        assertMatches("Un CAFÉ NAÏVE", words);
+        assertMatches("Deseret 𐐀 capital", words);
+        assertMatches("İstanbul", words);
+        assertMatches("ΟΔΟΣ", words);
+        assertMatches("ΟΔΟΣ ΣΑ", words);
+        assertMatches("lone surrogate \uD801", words);
+    }
+
+    @Test
+    public void testSmallQueryCompilesSmall() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                        .isThreadAllocatedMemoryEnabled());
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        List<String> words = Arrays.asList("Rivest", "#hype", "caf\u00e9");
+        for (int i = 0; i < 20; i++) {
+            KeywordMatcher.compile(words);
+        }
+        long before = threads.getThreadAllocatedBytes(thread);
+        KeywordMatcher matcher = KeywordMatcher.compile(words);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assertTrue("compile allocated " + allocated + " bytes", allocated < 16 * 1024);
+        assertTrue(matcher.matchesAny("CAF\u00c9 talk"));
+    }
+
+    @Test
+    public void testRandomAgainstReference() {
+        Random random = new Random(6005);
+        String alphabet = "abAB éÉΣσ";
+        List<String> words = new ArrayList<>();
+        for (int w = 0; w < 2_000; w++) {
+            words.add(randomString(random, alphabet, 1 + random.nextInt(4)));
+        }
+        KeywordMatcher matcher = KeywordMatcher.compile(words);
+        for (int t = 0; t < 500; t++) {
+            String text = randomString(random, alphabet, random.nextInt(12));
+            Set<String> expected = reference(text, words);
+            assertEquals(text, expected, matcher.matchingWords(text));
+            assertEquals(text, !expected.isEmpty(), matcher.matchesAny(text));
+            List<String> few = words.subList(t, t + 3);
+            assertMatches(text, few);
+        }
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,195 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class MetricsTest {
+
+    /*
+     * Testing strategy
+     *
+     * state: disabled (nothing recorded), enabled, disabled again, reset
+     * stages: each instrumented pipeline stage called once and several times;
+     *  influencers of each graph representation; parallel extraction split
+     *  into many leaves, below its threshold
+     * snapshot: counts, items, gauges of the last graph; percentiles of one
+     *  and many calls, bucket boundaries; JSON form
+     * JFR: recording with the stage event enabled
+     *
+     * Metrics are process-wide, so every test starts from a reset, disabled
+     * state and restores it.
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    private static final List<Tweet> TWEETS = Arrays.asList(
+            new Tweet(1, "alyssa", "@bbitdiddle #hype", d1),
+            new Tweet(2, "bbitdiddle", "@alyssa talk #hype", d1.plusSeconds(60)),
+            new Tweet(3, "charlie", "#hype", d1.plusSeconds(120)));
+
+    @Before
+    @After
+    public void resetMetrics() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    @Test
+    public void testDisabledRecordsNothing() {
+        assertFalse(Metrics.isEnabled());
+        Metrics.Span span = Metrics.start(Metrics.Stage.GET_TIMESPAN);
+        assertFalse(span.isRecording());
+        Extract.getTimespan(TWEETS);
+        SocialNetwork.guessFollowsGraph(TWEETS);
+        Metrics.count(Metrics.Counter.BYTES_READ, 10);
+        span.end(5);
+
+        Metrics.Snapshot snapshot = Metrics.snapshot();
+        for (Metrics.Stage stage : Metrics.Stage.values()) {
+            assertEquals(0, snapshot.count(stage));
+            assertEquals(0, snapshot.percentileNanos(stage, 50));
+        }
+        assertEquals(0, snapshot.counter(Metrics.Counter.BYTES_READ));
+        assertEquals(0, snapshot.gauge(Metrics.Gauge.GRAPH_EDGES));
+    }
+
+    @Test
+    public void testPipelineStages() {
+        Metrics.setEnabled(true);
+        String json = "[{\"id\": 1, \"user\": {\"screen_name\": \"alyssa\"}, \"text\": \"@bbitdiddle\","
+                + " \"created_at\": \"Wed Feb 17 10:00:00 +0000 2016\"}]";
+        assertEquals(1, StreamingTweetReader.read(new StringReader(json), tweet -> { }));
+        Extract.getTimespan(TWEETS);
+        Extract.getTimespan(TWEETS.subList(0, 1));
+        Extract.getMentionedUsers(TWEETS);
+        SocialNetwork.influencers(SocialNetwork.guessFollowsGraph(TWEETS));
+        SocialNetwork.influencers(SocialNetwork.guessFollowsGraph(TWEETS.subList(0, 1)), 1);
+        SocialNetwork.influencers(FollowsHypergraph.fromTweets(TWEETS));
+        SocialNetwork.influencers(CompactFollowsGraph.fromTweets(TWEETS), 2);
+
+        Metrics.Snapshot snapshot = Metrics.snapshot();
+        assertEquals(0, snapshot.count(Metrics.Stage.FETCH));
+        assertEquals(1, snapshot.count(Metrics.Stage.PARSE));
+        assertEquals(1, snapshot.items(Metrics.Stage.PARSE));
+        assertEquals(2, snapshot.count(Metrics.Stage.GET_TIMESPAN));
+        assertEquals(4, snapshot.items(Metrics.Stage.GET_TIMESPAN));
+        assertEquals(1, snapshot.count(Metrics.Stage.GET_MENTIONED_USERS));
+        assertEquals(2, snapshot.count(Metrics.Stage.GUESS_FOLLOWS_GRAPH));
+        assertEquals(4, snapshot.count(Metrics.Stage.INFLUENCERS));
+        assertEquals("last graph: alyssa follows bbitdiddle", 1, snapshot.gauge(Metrics.Gauge.GRAPH_EDGES));
+        assertEquals(1, snapshot.gauge(Metrics.Gauge.GRAPH_NODES));
+
+        long total = snapshot.totalNanos(Metrics.Stage.GET_TIMESPAN);
+        long max = snapshot.maxNanos(Metrics.Stage.GET_TIMESPAN);
+        assertTrue(max > 0 && max <= total);
+        assertTrue(snapshot.percentileNanos(Metrics.Stage.GET_TIMESPAN, 50) <= max);
+        assertEquals(max, snapshot.percentileNanos(Metrics.Stage.GET_TIMESPAN, 100));
+        assertEquals(4 * 1e9 / total, snapshot.itemsPerSecond(Metrics.Stage.GET_TIMESPAN), 1e-6);
+
+        Metrics.setEnabled(false);
+        Extract.getTimespan(TWEETS);
+        assertEquals("kept after disabling", 2, Metrics.snapshot().count(Metrics.Stage.GET_TIMESPAN));
+        Metrics.reset();
+        assertEquals(0, Metrics.snapshot().count(Metrics.Stage.GET_TIMESPAN));
+    }
+
+    @Test
+    public void testParallelExtractionRecordsOneSpanPerCall() {
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            tweets.add(new Tweet(i, "u" + i, "@u" + (i + 1), d1.plusSeconds(i)));
+        }
+        Metrics.setEnabled(true);
+        Extract.getTimespanParallel(tweets, 1);
+        Extract.getTimespanParallel(TWEETS, 10);
+        Extract.getMentionedUsersParallel(tweets, 1);
+        Extract.getMentionedUsersParallel(TWEETS, 10);
+
+        Metrics.Snapshot snapshot = Metrics.snapshot();
+        assertEquals(2, snapshot.count(Metrics.Stage.GET_TIMESPAN));
+        assertEquals(103, snapshot.items(Metrics.Stage.GET_TIMESPAN));
+        assertEquals(2, snapshot.count(Metrics.Stage.GET_MENTIONED_USERS));
+        assertEquals(103, snapshot.items(Metrics.Stage.GET_MENTIONED_USERS));
+    }
+
+    @Test
+    public void testPercentiles() {
+        Metrics.setEnabled(true);
+        List<Metrics.Span> spans = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            spans.add(Metrics.start(Metrics.Stage.INFLUENCERS));
+        }
+        // end in reverse order of start, so latencies differ
+        for (int i = spans.size() - 1; i >= 0; i--) {
+            spans.get(i).end(1);
+        }
+        Metrics.Snapshot snapshot = Metrics.snapshot();
+        long p50 = snapshot.percentileNanos(Metrics.Stage.INFLUENCERS, 50);
+        long p99 = snapshot.percentileNanos(Metrics.Stage.INFLUENCERS, 99);
+        assertTrue(0 < p50 && p50 <= p99 && p99 <= snapshot.maxNanos(Metrics.Stage.INFLUENCERS));
+        assertEquals(100, snapshot.items(Metrics.Stage.INFLUENCERS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPercentileOutOfRange() {
+        Metrics.snapshot().percentileNanos(Metrics.Stage.PARSE, 0);
+    }
+
+    @Test
+    public void testJson() {
+        Metrics.setEnabled(true);
+        Extract.getMentionedUsers(TWEETS);
+        Metrics.count(Metrics.Counter.BYTES_READ, 123);
+        JsonObject json = Json.createReader(new StringReader(Metrics.snapshot().toJson())).readObject();
+        JsonObject stage = json.getJsonObject("stages").getJsonObject("get_mentioned_users");
+        assertEquals(1, stage.getInt("count"));
+        assertEquals(3, stage.getInt("items"));
+        assertTrue(stage.getJsonNumber("p99Nanos").longValue() > 0);
+        assertEquals(123, json.getJsonObject("counters").getInt("bytes_read"));
+        assertEquals(0, json.getJsonObject("gauges").getInt("graph_nodes"));
+    }
+
+    @Test
+    public void testFlightRecorderEvents() throws Exception {
+        Metrics.setEnabled(true);
+        Path file = Files.createTempFile("metrics", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable("twitter.Stage").withoutThreshold();
+                recording.start();
+                Extract.getTimespan(TWEETS);
+                SocialNetwork.guessFollowsGraph(TWEETS);
+                recording.stop();
+                recording.dump(file);
+            }
+            List<String> stages = new ArrayList<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (event.getEventType().getName().equals("twitter.Stage")) {
+                    stages.add(event.getString("stage"));
+                    assertEquals(3, event.getLong("items"));
+                }
+            }
+            assertEquals(Arrays.asList("get_timespan", "guess_follows_graph"), stages);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -149,4 +149,85 @@ public class MySocialNetworkTest {
         assertTrue("alice and bob both have one follower each",
                 influencers.containsAll(List.of("alice", "bob")));
     }
+
+    /**
+     * 11. Top-K Influencers
+     * Checks the bounded ranking: k smaller than, equal to and larger than
+     * the number of followed users, k = 0, and ties ordered by username.
+     */
+    @Test
+    public void testTopKInfluencers() {
+        Map<String, Set<String>> graph = new HashMap<>();
+        graph.put("bob", Set.of("alice", "charlie", "erin"));
+        graph.put("charlie", Set.of("alice", "erin"));
+        graph.put("david", Set.of("charlie", "bob"));
+        graph.put("erin", Set.of());
+
+        List<String> all = List.of("alice", "charlie", "erin", "bob");
+        assertEquals(List.of(), SocialNetwork.influencers(graph, 0));
+        assertEquals(all.subList(0, 1), SocialNetwork.influencers(graph, 1));
+        assertEquals(all.subList(0, 3), SocialNetwork.influencers(graph, 3));
+        assertEquals(all, SocialNetwork.influencers(graph, 4));
+        assertEquals(all, SocialNetwork.influencers(graph, 100));
+        assertEquals(all, SocialNetwork.influencers(CompactFollowsGraph.fromMap(graph), 100));
+        assertEquals(all.subList(0, 2), SocialNetwork.influencers(CompactFollowsGraph.fromMap(graph), 2));
+    }
+
+    /**
+     * 12. Top-K Influencers Agree With Full Ranking
+     * On random graphs, every prefix of the full ranking is the top-k ranking,
+     * and counts in the full ranking never increase.
+     */
+    @Test
+    public void testTopKInfluencersMatchFullRanking() {
+        Random random = new Random(6005);
+        for (int trial = 0; trial < 30; trial++) {
+            Map<String, Set<String>> graph = new HashMap<>();
+            int users = 1 + random.nextInt(60);
+            for (int i = 0; i < users; i++) {
+                Set<String> followed = new HashSet<>();
+                for (int j = random.nextInt(6); j > 0; j--) {
+                    followed.add("u" + random.nextInt(users));
+                }
+                graph.put("u" + i, followed);
+            }
+            List<String> ranking = SocialNetwork.influencers(graph, Integer.MAX_VALUE);
+            assertEquals(Set.copyOf(SocialNetwork.influencers(graph)), Set.copyOf(ranking));
+            for (int k = 0; k <= ranking.size(); k += 1 + random.nextInt(5)) {
+                assertEquals(ranking.subList(0, k), SocialNetwork.influencers(graph, k));
+            }
+            Map<String, Integer> counts = new HashMap<>();
+            for (Set<String> followed : graph.values()) {
+                for (String user : followed) {
+                    counts.merge(user, 1, Integer::sum);
+                }
+            }
+            for (int i = 1; i < ranking.size(); i++) {
+                int previous = counts.get(ranking.get(i - 1));
+                int current = counts.get(ranking.get(i));
+                assertTrue(previous > current
+                        || previous == current && ranking.get(i - 1).compareTo(ranking.get(i)) < 0);
+            }
+        }
+    }
+
+    /**
+     * 13. Top-K Influencers Keep Spelling
+     * Checks that the bounded ranking returns usernames as spelled in the
+     * graph, orders ties by lower-cased username, and counts names that
+     * differ only in case as one user.
+     */
+    @Test
+    public void testTopKInfluencersKeepSpelling() {
+        Map<String, Set<String>> graph = new HashMap<>();
+        graph.put("bob", Set.of("Zed", "amy"));
+        graph.put("charlie", Set.of("Zed", "amy", "Dave"));
+        graph.put("erin", Set.of("dave"));
+        graph.put("frank", Set.of("amy", "Zed"));
+
+        List<String> top = SocialNetwork.influencers(graph, 3);
+        assertEquals(List.of("amy", "Zed"), top.subList(0, 2));
+        assertTrue(top.get(2).equalsIgnoreCase("dave"));
+        assertEquals(3, SocialNetwork.influencers(graph, 10).size());
+    }
 }
@@ -0,0 +1,203 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class SlidingWindowTest {
+
+    /*
+     * Testing strategy
+     *
+     * add():
+     *  first tweet; tweets in order; tweet at the end of the window; late tweet
+     *  within the lateness bound, beyond it, and at or before the window start
+     *  tweet that mentions a user twice, mentions its author, repeats a hashtag
+     * advanceTo():
+     *  earlier than the end (ignored); evicting some, all tweets
+     * observers:
+     *  empty window; timespan after the latest tweet was evicted; counts of
+     *  unknown names; top k with ties; random streams against Extract and
+     *  SocialNetwork applied to the tweets in the window
+     * memory: one hashtag used by many users, entering and leaving the window
+     * constructor: zero window, negative lateness
+     */
+
+    private static final Instant T0 = Instant.parse("2016-02-17T10:00:00Z");
+
+    private static Tweet tweet(long id, String author, String text, long secondsAfterT0) {
+        return new Tweet(id, author, text, T0.plusSeconds(secondsAfterT0));
+    }
+
+    @Test
+    public void testEmpty() {
+        SlidingWindow window = new SlidingWindow(Duration.ofMinutes(5), Duration.ZERO);
+        assertEquals(0, window.size());
+        assertNull(window.end());
+        assertEquals(Set.of(), window.mentionedUsers());
+        assertEquals(List.of(), window.influencers(3));
+        assertEquals(0, window.followerCount("alyssa"));
+        assertEquals(0, window.hashtagCount("mit"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyTimespan() {
+        new SlidingWindow(Duration.ofMinutes(5), Duration.ZERO).timespan();
+    }
+
+    @Test
+    public void testEviction() {
+        SlidingWindow window = new SlidingWindow(Duration.ofSeconds(60), Duration.ofSeconds(10));
+        assertTrue(window.add(tweet(1, "alyssa", "@ben @BEN #mit #MIT", 0)));
+        assertTrue(window.add(tweet(2, "ben", "#mit @alyssa @ben", 30)));
+        assertEquals(new Timespan(T0, T0.plusSeconds(30)), window.timespan());
+        assertEquals(2, window.mentionCount("Ben"));
+        assertEquals(1, window.mentionCount("alyssa"));
+        assertEquals(2, window.hashtagCount("mit"));
+        assertEquals(1, window.followerCount("alyssa"));
+        assertEquals(List.of("alyssa", "ben"), window.influencers(5));
+        assertEquals(List.of("ben"), window.topMentioned(1));
+
+        assertTrue(window.add(tweet(3, "charlie", "#mit", 61)));
+        assertEquals("first tweet evicted", 2, window.size());
+        assertEquals(new Timespan(T0.plusSeconds(30), T0.plusSeconds(61)), window.timespan());
+        assertEquals(1, window.mentionCount("ben"));
+        assertEquals(2, window.hashtagCount("mit"));
+        assertEquals("ben and charlie share #mit", 1, window.followerCount("ben"));
+        assertEquals("ben still mentions alyssa", 1, window.followerCount("alyssa"));
+        assertEquals(List.of("alyssa", "ben", "charlie"), window.influencers(5));
+
+        window.advanceTo(T0);
+        assertEquals(T0.plusSeconds(61), window.end());
+        window.advanceTo(T0.plusSeconds(91));
+        assertEquals(1, window.size());
+        assertEquals(new Timespan(T0.plusSeconds(61), T0.plusSeconds(61)), window.timespan());
+        assertEquals(List.of(), window.influencers(5));
+        assertEquals(Set.of(), window.mentionedUsers());
+        window.advanceTo(T0.plusSeconds(1_000));
+        assertEquals(0, window.size());
+        assertEquals(List.of(), window.topHashtags(5));
+    }
+
+    @Test
+    public void testLateness() {
+        SlidingWindow window = new SlidingWindow(Duration.ofSeconds(60), Duration.ofSeconds(10));
+        assertTrue(window.add(tweet(1, "alyssa", "#a", 100)));
+        assertTrue("within lateness", window.add(tweet(2, "ben", "#a", 90)));
+        assertFalse("beyond lateness", window.add(tweet(3, "charlie", "#a", 89)));
+        assertEquals(2, window.hashtagCount("a"));
+        assertEquals(new Timespan(T0.plusSeconds(90), T0.plusSeconds(100)), window.timespan());
+
+        SlidingWindow lenient = new SlidingWindow(Duration.ofSeconds(60), Duration.ofHours(1));
+        assertTrue(lenient.add(tweet(1, "alyssa", "#a", 100)));
+        assertTrue(lenient.add(tweet(2, "ben", "#a", 41)));
+        assertFalse("at the window start", lenient.add(tweet(3, "charlie", "#a", 40)));
+        assertEquals(1, lenient.followerCount("ben"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroWindow() {
+        new SlidingWindow(Duration.ZERO, Duration.ZERO);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLateness() {
+        new SlidingWindow(Duration.ofSeconds(1), Duration.ofSeconds(-1));
+    }
+
+    @Test
+    public void testLargeHashtagTakesLinearSpace() {
+        SlidingWindow window = new SlidingWindow(Duration.ofSeconds(60), Duration.ZERO);
+        int users = 1000;
+        for (int i = 0; i < users; i++) {
+            window.add(tweet(i, "u" + i, "#MIT" + (i == 0 ? " @u1" : ""), 0));
+        }
+        assertEquals(users - 1, window.followerCount("u0"));
+        assertEquals(users - 1, window.followerCount("u1"));
+        assertEquals("one entry per user of the hashtag, plus the mention",
+                users + 1, window.pairEntries());
+
+        window.add(tweet(users, "u1", "#6005", 30));
+        window.advanceTo(T0.plusSeconds(60));
+        assertEquals(1, window.size());
+        assertEquals(0, window.followerCount("u1"));
+        assertEquals(List.of(), window.influencers(1));
+        assertEquals(1, window.pairEntries());
+    }
+
+    @Test
+    public void testRandomStreamsMatchRescan() {
+        Random random = new Random(6005);
+        for (int trial = 0; trial < 10; trial++) {
+            Duration length = Duration.ofSeconds(20 + random.nextInt(100));
+            Duration lateness = Duration.ofSeconds(random.nextInt(60));
+            SlidingWindow window = new SlidingWindow(length, lateness);
+            List<Tweet> accepted = new ArrayList<>();
+            long clock = 0;
+            int users = 2 + random.nextInt(12);
+            int tags = 1 + random.nextInt(5);
+            for (int i = 0; i < 300; i++) {
+                clock += random.nextInt(5);
+                long timestamp = clock - (random.nextInt(4) == 0 ? random.nextInt(80) : 0);
+                StringBuilder text = new StringBuilder();
+                for (int j = random.nextInt(3); j > 0; j--) {
+                    text.append(random.nextBoolean() ? " @U" : " @u").append(random.nextInt(users));
+                }
+                for (int j = random.nextInt(3); j > 0; j--) {
+                    text.append(random.nextBoolean() ? " #T" : " #t").append(random.nextInt(tags));
+                }
+                Tweet t = tweet(i, "u" + random.nextInt(users), text.toString(), timestamp);
+                if (window.add(t)) {
+                    accepted.add(t);
+                }
+
+                Instant start = window.end().minus(length);
+                List<Tweet> inWindow = new ArrayList<>();
+                for (Tweet a : accepted) {
+                    if (a.getTimestamp().isAfter(start)) {
+                        inWindow.add(a);
+                    }
+                }
+                assertEquals(inWindow.size(), window.size());
+                if (!inWindow.isEmpty()) {
+                    assertEquals(Extract.getTimespan(inWindow), window.timespan());
+                }
+                assertEquals(Extract.getMentionedUsers(inWindow), window.mentionedUsers());
+                Map<String, Set<String>> followsGraph = SocialNetwork.guessFollowsGraph(inWindow);
+                assertEquals(SocialNetwork.influencers(followsGraph, 5), window.influencers(5));
+                Map<String, Integer> followers = new HashMap<>();
+                for (Set<String> followed : followsGraph.values()) {
+                    for (String user : followed) {
+                        followers.merge(user, 1, Integer::sum);
+                    }
+                }
+                String user = "u" + random.nextInt(users);
+                assertEquals(followers.getOrDefault(user, 0).intValue(), window.followerCount(user));
+                String tag = "t" + random.nextInt(tags);
+                assertEquals(countTagged(inWindow, tag), window.hashtagCount(tag));
+            }
+        }
+    }
+
+    private static int countTagged(List<Tweet> tweets, String tag) {
+        int count = 0;
+        for (Tweet t : tweets) {
+            for (String word : t.getText().split(" ")) {
+                if (word.equalsIgnoreCase("#" + tag)) {
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,116 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.json.JsonException;
+
+import org.junit.Test;
+
+public class StreamingTweetReaderTest {
+
+    /*
+     * Testing strategy
+     *
+     * input: empty array, one tweet, several tweets
+     * screen name: flat "user.screen_name" key, nested user object
+     * irrelevant fields: nested objects, arrays, booleans, nulls
+     * API: iterator, stream (Reader and Path), callback
+     * malformed input: not an array, missing field, truncated after a complete tweet
+     */
+
+    private static final String ALYSSA =
+            "{\"id\": 1, \"user.screen_name\": \"alyssa\", \"text\": \"is it reasonable to talk about rivest so much?\","
+            + " \"created_at\": \"Wed Feb 17 10:00:00 +0000 2016\"}";
+    private static final String BEN =
+            "{\"id\": 2, \"entities\": [{\"id\": 99, \"text\": \"hype\"}], \"retweeted\": false,"
+            + " \"user\": {\"id\": 7, \"screen_name\": \"bbitdiddle\", \"location\": null},"
+            + " \"text\": \"rivest talk in 30 minutes #hype\", \"created_at\": \"Wed Feb 17 11:00:00 +0000 2016\"}";
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+    private static final Instant d2 = Instant.parse("2016-02-17T11:00:00Z");
+
+    @Test
+    public void testEmptyArray() {
+        assertFalse(StreamingTweetReader.iterator(new StringReader("[]")).hasNext());
+    }
+
+    @Test
+    public void testIteratorFlatAndNestedScreenName() {
+        StreamingTweetReader.TweetIterator iterator =
+                StreamingTweetReader.iterator(new StringReader("[" + ALYSSA + ", " + BEN + "]"));
+
+        Tweet first = iterator.next();
+        assertEquals(1, first.getId());
+        assertEquals("alyssa", first.getAuthor());
+        assertEquals("is it reasonable to talk about rivest so much?", first.getText());
+        assertEquals(d1, first.getTimestamp());
+
+        Tweet second = iterator.next();
+        assertEquals("ids inside arrays must not override the tweet id", 2, second.getId());
+        assertEquals("bbitdiddle", second.getAuthor());
+        assertEquals("rivest talk in 30 minutes #hype", second.getText());
+        assertEquals(d2, second.getTimestamp());
+
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testStreamFromPath() throws IOException {
+        Path file = Files.createTempFile("tweets", ".json");
+        try {
+            Files.write(file, ("[" + ALYSSA + "," + BEN + "]").getBytes(StandardCharsets.UTF_8));
+            List<Long> ids;
+            try (Stream<Tweet> tweets = StreamingTweetReader.stream(file)) {
+                ids = tweets.map(Tweet::getId).collect(Collectors.toList());
+            }
+            assertEquals(List.of(1L, 2L), ids);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testCallback() {
+        List<Tweet> seen = new ArrayList<>();
+        long count = StreamingTweetReader.read(new StringReader("[" + BEN + "," + ALYSSA + "]"), seen::add);
+        assertEquals(2, count);
+        assertEquals(2, seen.get(0).getId());
+        assertEquals(1, seen.get(1).getId());
+    }
+
+    @Test
+    public void testTweetAvailableBeforeInputEnds() {
+        // everything after the first element is garbage, so the first tweet
+        // can only be returned if it is decoded before the rest is read
+        Reader truncated = new StringReader("[" + ALYSSA + ", {\"id\": ");
+        StreamingTweetReader.TweetIterator iterator = StreamingTweetReader.iterator(truncated);
+        assertEquals(1, iterator.next().getId());
+        try {
+            iterator.next();
+            fail("expected truncated input to be reported");
+        } catch (JsonException expected) {
+        }
+    }
+
+    @Test(expected = JsonException.class)
+    public void testNotAnArray() {
+        StreamingTweetReader.iterator(new StringReader(ALYSSA)).hasNext();
+    }
+
+    @Test(expected = JsonException.class)
+    public void testMissingField() {
+        StreamingTweetReader.iterator(new StringReader("[{\"id\": 3, \"text\": \"no author\"}]")).next();
+    }
+}
@@ -0,0 +1,87 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TimeIndexTest {
+
+    /*
+     * Testing strategy
+     *
+     * construction: empty, in time order, shuffled, equal timestamps
+     * add(): in order, slightly out of order, earlier than everything
+     * timespan(): empty (error), one tweet, many tweets
+     * inTimespan(), countInTimespan():
+     *  span before, after, covering all tweets
+     *  bounds equal to tweet timestamps, bounds with nanoseconds
+     *  results compared with Filter.inTimespan on the same list
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+    private static final Instant d2 = Instant.parse("2016-02-17T11:00:00Z");
+    private static final Instant d3 = Instant.parse("2016-02-17T12:00:00Z");
+
+    private static final Tweet tweet1 = new Tweet(1, "alyssa", "is it reasonable to talk about rivest so much?", d1);
+    private static final Tweet tweet2 = new Tweet(2, "bbitdiddle", "rivest talk in 30 minutes #hype", d2);
+    private static final Tweet tweet3 = new Tweet(3, "Alyssa", "I love programming in Java", d3);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyTimespan() {
+        Extract.getTimespan(new TimeIndex());
+    }
+
+    @Test
+    public void testShuffledConstruction() {
+        TimeIndex index = new TimeIndex(Arrays.asList(tweet3, tweet1, tweet2));
+        assertEquals(new Timespan(d1, d3), Extract.getTimespan(index));
+        assertEquals("input order is kept", Arrays.asList(tweet3, tweet1, tweet2),
+                     Filter.inTimespan(index, new Timespan(d1, d3)));
+        assertEquals(Arrays.asList(tweet1, tweet2), Filter.inTimespan(index, new Timespan(d1, d2)));
+        assertEquals(2, index.countInTimespan(new Timespan(d2, d3)));
+        assertTrue(Filter.inTimespan(index, new Timespan(d3.plusNanos(1), d3.plusSeconds(1))).isEmpty());
+        assertEquals(0, index.countInTimespan(new Timespan(d1.minusSeconds(1), d1.minusNanos(1))));
+    }
+
+    @Test
+    public void testAddOutOfOrder() {
+        TimeIndex index = new TimeIndex();
+        index.add(tweet2);
+        index.add(tweet3);
+        assertEquals(new Timespan(d2, d3), index.timespan());
+        index.add(tweet1);
+        assertEquals(new Timespan(d1, d3), index.timespan());
+        assertEquals(Arrays.asList(tweet2, tweet1), index.inTimespan(new Timespan(d1, d2)));
+        assertEquals(Arrays.asList(tweet2, tweet3, tweet1), index.tweets());
+    }
+
+    @Test
+    public void testMatchesLinearScan() {
+        Random random = new Random(6005);
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            // roughly in time order, with some jitter and many ties
+            Instant time = d1.plusSeconds(i / 3 + random.nextInt(20)).plusNanos(random.nextInt(3));
+            tweets.add(new Tweet(i, "user" + i, "text", time));
+        }
+        TimeIndex built = new TimeIndex(tweets);
+        TimeIndex appended = new TimeIndex();
+        appended.addAll(tweets);
+        assertEquals(Extract.getTimespan(tweets), built.timespan());
+        assertEquals(Extract.getTimespan(tweets), appended.timespan());
+        for (int q = 0; q < 200; q++) {
+            Instant start = d1.plusSeconds(random.nextInt(700)).plusNanos(random.nextInt(3));
+            Timespan span = new Timespan(start, start.plusSeconds(random.nextInt(100)));
+            List<Tweet> expected = Filter.inTimespan(tweets, span);
+            assertEquals(expected, built.inTimespan(span));
+            assertEquals(expected, appended.inTimespan(span));
+            assertEquals(expected.size(), appended.countInTimespan(span));
+        }
+    }
+}
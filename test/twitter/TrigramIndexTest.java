@@ -0,0 +1,96 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TrigramIndexTest {
+
+    /*
+     * Testing strategy
+     *
+     * words: length 0, 1, 2 (scan), 3, longer; substrings inside and across
+     *  words; differing in case; absent trigram; all trigrams present but not
+     *  contiguous (candidate rejected by verification); several words
+     * texts: empty, shorter than a trigram, repeated trigrams, non-ASCII
+     *  case folding (capital sigma, dotted capital I)
+     * results: against Filter.containing on random tweets, also after adding
+     *  tweets; candidate counts; footprint grows with the index
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    private static Tweet tweet(long id, String text) {
+        return new Tweet(id, "alyssa", text, d1);
+    }
+
+    @Test
+    public void testSubstrings() {
+        List<Tweet> tweets = Arrays.asList(
+                tweet(1, "is it reasonable to talk about rivest so much?"),
+                tweet(2, "Rivest TALKING in 30 minutes #hype"),
+                tweet(3, "ab"),
+                tweet(4, ""),
+                tweet(5, "talk about vest, rive"),
+                tweet(6, "ΟΔΥΣΣΕΥΣ at İstanbul"));
+        TrigramIndex index = new TrigramIndex(tweets);
+        assertEquals(Arrays.asList(tweets.get(0), tweets.get(1), tweets.get(4)),
+                index.containing(Arrays.asList("TALK")));
+        assertEquals(Arrays.asList(tweets.get(0), tweets.get(1)), index.containing(Arrays.asList("rivest")));
+        assertEquals("tweet 5 has every trigram of rivest, not contiguous", 3,
+                index.candidateCount(Arrays.asList("rivest")));
+        assertEquals(Arrays.asList(tweets.get(0), tweets.get(4)), index.containing(Arrays.asList("lk ab")));
+        assertEquals(Arrays.asList(tweets.get(1)), index.containing(Arrays.asList("st tal")));
+        assertEquals(0, index.candidateCount(Arrays.asList("zzz")));
+        assertEquals(Collections.emptyList(), index.containing(Arrays.asList("zzz")));
+        assertEquals(Arrays.asList(tweets.get(0), tweets.get(2), tweets.get(4)),
+                index.containing(Arrays.asList("AB", "zzz")));
+        assertEquals(tweets, index.containing(Arrays.asList("")));
+        assertEquals(Collections.emptyList(), index.containing(Collections.emptyList()));
+        for (String word : Arrays.asList("σσ", "υσσε", "υς a", "i̇stan", "İSTAN")) {
+            assertEquals(word, Filter.containing(tweets, Arrays.asList(word)), index.containing(Arrays.asList(word)));
+        }
+    }
+
+    @Test
+    public void testRandomQueriesMatchContaining() {
+        Random random = new Random(6005);
+        String alphabet = "abcdeABC #";
+        List<Tweet> tweets = new ArrayList<>();
+        TrigramIndex index = new TrigramIndex();
+        long footprint = index.footprintBytes();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 500; i++) {
+                Tweet tweet = tweet(tweets.size(), randomString(random, alphabet, random.nextInt(40)));
+                tweets.add(tweet);
+                index.add(tweet);
+            }
+            assertTrue(index.footprintBytes() > footprint);
+            footprint = index.footprintBytes();
+            for (int q = 0; q < 200; q++) {
+                List<String> words = new ArrayList<>();
+                for (int w = random.nextInt(3); w >= 0; w--) {
+                    words.add(randomString(random, alphabet, 1 + random.nextInt(6)));
+                }
+                assertEquals(words.toString(), Filter.containing(tweets, words), index.containing(words));
+                assertEquals(Filter.containing(tweets, words), Filter.containing(index, words));
+                assertTrue(index.candidateCount(words) >= Filter.containing(tweets, words).size());
+            }
+        }
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            s.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return s.toString();
+    }
+}
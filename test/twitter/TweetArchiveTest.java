@@ -0,0 +1,236 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.Stream;
+
+import javax.json.JsonException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TweetArchiveTest {
+
+    /*
+     * Testing strategy
+     *
+     * contents: no tweets, one tweet, many tweets; empty text, non-ASCII
+     *  text and author; repeated authors, authors differing only in case;
+     *  timestamps with nanoseconds, before the epoch
+     * input: Writer/write(), convert() from JSON; writer closed without
+     *  finishing, malformed JSON (target left untouched or absent)
+     * mapping: one chunk, many small chunks (texts and records crossing
+     *  chunk boundaries)
+     * API: field accessors, get, asList, toList, textBytes views
+     * bad input: not an archive, truncated archive, index out of range
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    private Path file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = Files.createTempFile("tweets", ".archive");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private static List<Tweet> sampleTweets() {
+        List<Tweet> tweets = new ArrayList<>();
+        tweets.add(new Tweet(1, "alyssa", "is it reasonable to talk about rivest so much?", d1));
+        tweets.add(new Tweet(2, "bbitdiddle", "rivest talk in 30 minutes #hype", d1.plusSeconds(3600)));
+        tweets.add(new Tweet(3, "Alyssa", "", d1.plusNanos(123_456_789)));
+        tweets.add(new Tweet(-4, "zoë", "naïve café ☕ 🐦 @bbitdiddle", Instant.parse("1969-12-31T23:59:59.5Z")));
+        tweets.add(new Tweet(Long.MAX_VALUE, "alyssa", "#mit", d1.minusSeconds(1)));
+        return tweets;
+    }
+
+    @Test
+    public void testEmptyArchive() throws IOException {
+        TweetArchive.write(List.of(), file);
+        try (TweetArchive archive = TweetArchive.open(file)) {
+            assertEquals(0, archive.size());
+            assertEquals(0, archive.authorCount());
+            assertEquals(List.of(), archive.asList());
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        List<Tweet> tweets = sampleTweets();
+        TweetArchive.write(tweets, file);
+        try (TweetArchive archive = TweetArchive.open(file)) {
+            assertEquals(5, archive.size());
+            assertEquals(5L, archive.longSize());
+            assertEquals("alyssa, bbitdiddle, Alyssa, zoë", 4, archive.authorCount());
+            assertEquals(archive.authorId(0), archive.authorId(4));
+            assertNotEquals(archive.authorId(0), archive.authorId(2));
+            assertEquals("zoë", archive.authorName(archive.authorId(3)));
+            assertEquals(-4, archive.id(3));
+            assertEquals(-1, archive.epochSecond(3));
+            assertEquals(d1.plusNanos(123_456_789), archive.timestamp(2));
+            assertEquals("", archive.text(2));
+
+            List<Tweet> list = archive.asList();
+            assertTrue(list instanceof RandomAccess);
+            assertEquals(tweets.size(), list.size());
+            for (int i = 0; i < tweets.size(); i++) {
+                assertTweetEquals(tweets.get(i), list.get(i));
+            }
+            List<Tweet> copy = archive.toList();
+            for (int i = 0; i < tweets.size(); i++) {
+                assertTweetEquals(tweets.get(i), copy.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testTextBytes() throws IOException {
+        TweetArchive.write(sampleTweets(), file);
+        try (TweetArchive archive = TweetArchive.open(file)) {
+            ByteBuffer bytes = archive.textBytes(3);
+            byte[] expected = "naïve café ☕ 🐦 @bbitdiddle".getBytes(StandardCharsets.UTF_8);
+            assertEquals(0, bytes.position());
+            assertEquals(expected.length, bytes.remaining());
+            byte[] actual = new byte[bytes.remaining()];
+            bytes.duplicate().get(actual);
+            assertArrayEquals(expected, actual);
+            assertEquals(0, archive.textBytes(2).remaining());
+            try {
+                bytes.put(0, (byte) 'x');
+                fail("expected ReadOnlyBufferException");
+            } catch (ReadOnlyBufferException robe) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testSmallChunks() throws IOException {
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            StringBuilder text = new StringBuilder("tweet ").append(i);
+            for (int j = 0; j < i % 13; j++) {
+                text.append(" é#").append(j);
+            }
+            tweets.add(new Tweet(i, "user" + i % 17, text.toString(), d1.plusSeconds(i)));
+        }
+        TweetArchive.write(tweets, file);
+        // chunks of 160 bytes: 4 records each, and texts up to ~60 bytes
+        // starting anywhere in a chunk
+        try (TweetArchive archive = TweetArchive.open(file, 160)) {
+            assertEquals(17, archive.authorCount());
+            for (int i = 0; i < tweets.size(); i++) {
+                assertTweetEquals(tweets.get(i), archive.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testConvert() throws IOException {
+        String json = "[{\"id\": 1, \"user\": {\"screen_name\": \"alyssa\"},"
+                + " \"text\": \"is it reasonable to talk about rivest so much?\","
+                + " \"created_at\": \"Wed Feb 17 10:00:00 +0000 2016\"},"
+                + " {\"id\": 2, \"user.screen_name\": \"bbitdiddle\", \"text\": \"rivest talk in 30 minutes #hype\","
+                + " \"created_at\": \"Wed Feb 17 11:00:00 +0000 2016\"}]";
+        assertEquals(2, TweetArchive.convert(new StringReader(json), file));
+        try (TweetArchive archive = TweetArchive.open(file)) {
+            assertTweetEquals(sampleTweets().get(0), archive.get(0));
+            assertTweetEquals(sampleTweets().get(1), archive.get(1));
+        }
+    }
+
+    @Test
+    public void testWriterReplacesExistingFile() throws IOException {
+        Files.write(file, new byte[10_000]);
+        try (TweetArchive.Writer writer = new TweetArchive.Writer(file)) {
+            writer.add(sampleTweets().get(0));
+            writer.finish();
+        }
+        try (TweetArchive archive = TweetArchive.open(file)) {
+            assertEquals(1, archive.size());
+            assertTweetEquals(sampleTweets().get(0), archive.get(0));
+        }
+    }
+
+    @Test
+    public void testUnfinishedWriterLeavesTargetUntouched() throws IOException {
+        TweetArchive.write(sampleTweets(), file);
+        byte[] before = Files.readAllBytes(file);
+        try (TweetArchive.Writer writer = new TweetArchive.Writer(file)) {
+            writer.add(sampleTweets().get(0));
+        }
+        assertArrayEquals(before, Files.readAllBytes(file));
+        try (Stream<Path> siblings = Files.list(file.toAbsolutePath().getParent())) {
+            String prefix = file.getFileName().toString();
+            assertEquals("temporary files removed", 0, siblings
+                    .filter(p -> p.getFileName().toString().startsWith(prefix) && !p.equals(file))
+                    .count());
+        }
+    }
+
+    @Test
+    public void testConvertMalformedJsonLeavesNoArchive() throws IOException {
+        Files.delete(file);
+        String json = "[{\"id\": 1, \"user\": {\"screen_name\": \"alyssa\"}, \"text\": \"#mit\","
+                + " \"created_at\": \"Wed Feb 17 10:00:00 +0000 2016\"}, {\"id\": 2, \"text\": ";
+        try {
+            TweetArchive.convert(new StringReader(json), file);
+            fail("expected JsonException");
+        } catch (JsonException e) {
+            // expected
+        }
+        try {
+            TweetArchive.open(file).close();
+            fail("a partial conversion must not be readable as an archive");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAnArchive() throws IOException {
+        Files.write(file, "[{\"id\": 1}]".getBytes(StandardCharsets.UTF_8));
+        TweetArchive.open(file).close();
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedArchive() throws IOException {
+        TweetArchive.write(sampleTweets(), file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        TweetArchive.open(file).close();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexOutOfRange() throws IOException {
+        TweetArchive.write(sampleTweets(), file);
+        try (TweetArchive archive = TweetArchive.open(file)) {
+            archive.id(5);
+        }
+    }
+
+    private static void assertTweetEquals(Tweet expected, Tweet actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getAuthor(), actual.getAuthor());
+        assertEquals(expected.getText(), actual.getText());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+    }
+}
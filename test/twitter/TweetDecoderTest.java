@@ -0,0 +1,84 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.time.Instant;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.stream.JsonParser;
+
+import org.junit.Test;
+
+public class TweetDecoderTest {
+
+    /*
+     * Testing strategy
+     *
+     * decode():
+     *  wanted keys at top level, in a nested object, as a flattened literal key
+     *  unwanted subtrees containing the same key names (objects, arrays)
+     *  wanted key whose value has the wrong shape (object instead of scalar)
+     *  id as JSON number and as string
+     *  parser left at the tweet's END_OBJECT
+     * compile():
+     *  custom key paths
+     *  one path used for two fields
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    private static Tweet decode(TweetDecoder decoder, String json) {
+        JsonParser parser = Json.createParser(new StringReader("[" + json + ", 42]"));
+        parser.next(); // START_ARRAY
+        assertEquals(JsonParser.Event.START_OBJECT, parser.next());
+        Tweet tweet = decoder.decode(parser);
+        assertEquals("parser should stop after the tweet", JsonParser.Event.VALUE_NUMBER, parser.next());
+        return tweet;
+    }
+
+    @Test
+    public void testSkipsRetweetedStatus() {
+        Tweet tweet = decode(TweetDecoder.DEFAULT,
+                "{\"retweeted_status\": {\"id\": 5, \"text\": \"original\", \"user\": {\"screen_name\": \"other\"}},"
+                + " \"id\": \"1\", \"text\": \"RT original\", \"user\": {\"screen_name\": \"alyssa\"},"
+                + " \"entities\": {\"user_mentions\": [{\"screen_name\": \"other\", \"id\": 3}]},"
+                + " \"created_at\": \"Wed Feb 17 10:00:00 +0000 2016\"}");
+        assertEquals(1, tweet.getId());
+        assertEquals("alyssa", tweet.getAuthor());
+        assertEquals("RT original", tweet.getText());
+        assertEquals(d1, tweet.getTimestamp());
+    }
+
+    @Test
+    public void testScalarExpectedButObjectFound() {
+        Tweet tweet = decode(TweetDecoder.DEFAULT,
+                "{\"id\": {\"$numberLong\": 1}, \"id\": 2, \"user.screen_name\": \"alyssa\", \"text\": \"hi\","
+                + " \"created_at\": \"Wed Feb 17 10:00:00 +0000 2016\"}");
+        assertEquals(2, tweet.getId());
+    }
+
+    @Test
+    public void testCustomPaths() {
+        TweetDecoder decoder = TweetDecoder.compile("data.id", "data.author.login", "data.body", "meta.time");
+        Tweet tweet = decode(decoder,
+                "{\"meta\": {\"time\": \"Wed Feb 17 10:00:00 +0000 2016\"},"
+                + " \"data\": {\"body\": \"hello\", \"id\": 9, \"author\": {\"login\": \"bbitdiddle\"}}}");
+        assertEquals(9, tweet.getId());
+        assertEquals("bbitdiddle", tweet.getAuthor());
+        assertEquals("hello", tweet.getText());
+        assertEquals(d1, tweet.getTimestamp());
+    }
+
+    @Test(expected = JsonException.class)
+    public void testMissingField() {
+        decode(TweetDecoder.DEFAULT, "{\"id\": 1, \"user\": {\"name\": \"Alyssa\"}, \"text\": \"hi\","
+                + " \"created_at\": \"Wed Feb 17 10:00:00 +0000 2016\"}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConflictingPaths() {
+        TweetDecoder.compile("id", "id", "text", "created_at");
+    }
+}
@@ -0,0 +1,78 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TweetLexerTest {
+
+    /*
+     * Testing strategy
+     *
+     * TweetLexer.scan():
+     *  no tokens; mention/hashtag at start, middle, end of text
+     *  mention preceded by a username character (email), by punctuation
+     *  username containing "-" and "_"; lone "@" and "#"; "@@x", "##x"
+     *  hashtag directly followed by a mention
+     * SymbolTable:
+     *  same name in different case, names with equal hash, growth past capacity,
+     *  symbol() of a new name when the table is full
+     *  find() of unknown name
+     */
+
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        TweetLexer.scan(text, new TweetLexer.Handler() {
+            @Override public void mention(CharSequence t, int start, int end) {
+                tokens.add("@" + t.subSequence(start, end));
+            }
+
+            @Override public void hashtag(CharSequence t, int start, int end) {
+                tokens.add("#" + t.subSequence(start, end));
+            }
+        });
+        return tokens;
+    }
+
+    @Test
+    public void testNoTokens() {
+        assertEquals(List.of(), tokens("is it reasonable to talk about rivest so much?"));
+        assertEquals(List.of(), tokens("@ # bitdiddle@mit.edu x-@y"));
+    }
+
+    @Test
+    public void testMentions() {
+        assertEquals(List.of("@alyssa", "@Ben_Bit-diddle", "@bob"),
+                     tokens("@alyssa, (@Ben_Bit-diddle) and @bob"));
+        assertEquals(List.of("@x"), tokens("@@x"));
+    }
+
+    @Test
+    public void testHashtags() {
+        assertEquals(List.of("#hype", "#x"), tokens("rivest talk in 30 minutes #hype ##x"));
+        assertEquals(List.of("#a", "#b"), tokens("#a#b"));
+        assertEquals("a mention cannot follow a hyphen", List.of("#mit"), tokens("#mit-@alyssa"));
+        assertEquals(List.of("#mit", "@alyssa"), tokens("#mit @alyssa"));
+    }
+
+    @Test
+    public void testSymbolTable() {
+        SymbolTable table = new SymbolTable();
+        int alyssa = table.intern("Alyssa");
+        assertEquals(alyssa, table.intern("xxALYSSAxx", 2, 8));
+        assertEquals("alyssa", table.name(alyssa));
+        assertSame(table.name(alyssa), table.symbol("alyssa", 0, 6));
+        // "0@" and "1!" have the same hash code
+        assertNotEquals(table.intern("0@"), table.intern("1!"));
+        assertEquals(-1, table.find("nobody"));
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(3 + i, table.intern("user" + i));
+        }
+        assertEquals(1_003, table.size());
+        assertEquals(500 + 3, table.find("USER500"));
+        assertEquals("a new symbol may grow the table", "tag", table.symbol("#Tag", 1, 4));
+    }
+}
@@ -0,0 +1,185 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TweetQueryTest {
+
+    /*
+     * Testing strategy
+     *
+     * criteria: writtenBy one user, several users, differing in case;
+     *  inTimespan including endpoints; containing; AND, OR, nested and mixed
+     * sources: list only; author index; time index; both indexes
+     * plan: scan (no index, no usable index, index not selective enough);
+     *  author index; time index; most selective of two indexes; union for OR
+     * results: empty, all, input order when the index order differs
+     *  (tweets added out of time order); random queries against chained
+     *  Filter calls
+     * bad input: index of a different size
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    private static Tweet tweet(long id, String author, String text, long minutesAfterD1) {
+        return new Tweet(id, author, text, d1.plusSeconds(60 * minutesAfterD1));
+    }
+
+    private static List<Tweet> randomTweets(Random random, int n) {
+        String[] words = { "rivest", "talk", "Java", "mit", "hype", "6.005" };
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            String author = (random.nextBoolean() ? "User" : "user") + random.nextInt(20);
+            String text = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+            tweets.add(tweet(i, author, text, random.nextInt(500)));
+        }
+        return tweets;
+    }
+
+    @Test
+    public void testSingleCriteria() {
+        List<Tweet> tweets = Arrays.asList(
+                tweet(1, "alyssa", "is it reasonable to talk about rivest so much?", 0),
+                tweet(2, "bbitdiddle", "rivest talk in 30 minutes #hype", 60),
+                tweet(3, "Alyssa", "#mit", 30));
+        assertEquals(Arrays.asList(tweets.get(0), tweets.get(2)),
+                TweetQuery.writtenBy("ALYSSA").filter(tweets));
+        assertEquals(Arrays.asList(tweets.get(1), tweets.get(2)),
+                TweetQuery.inTimespan(new Timespan(d1.plusSeconds(1800), d1.plusSeconds(3600))).filter(tweets));
+        assertEquals(Arrays.asList(tweets.get(0), tweets.get(1)),
+                TweetQuery.containing(Arrays.asList("TALK")).filter(tweets));
+        assertEquals(Collections.emptyList(), TweetQuery.writtenBy(new HashSet<>()).filter(tweets));
+    }
+
+    @Test
+    public void testAndOr() {
+        List<Tweet> tweets = Arrays.asList(
+                tweet(1, "alyssa", "rivest", 0),
+                tweet(2, "bbitdiddle", "rivest talk", 60),
+                tweet(3, "charlie", "talk", 30),
+                tweet(4, "alyssa", "talk", 90));
+        TweetQuery query = TweetQuery.writtenBy(new HashSet<>(Arrays.asList("alyssa", "charlie")))
+                .and(TweetQuery.containing(Arrays.asList("talk")))
+                .or(TweetQuery.inTimespan(new Timespan(d1, d1)));
+        assertTrue(query.matches(tweets.get(0)));
+        assertEquals(Arrays.asList(tweets.get(0), tweets.get(2), tweets.get(3)), query.filter(tweets));
+        assertEquals("(inTimespan[" + d1 + ", " + d1 + "] OR (writtenBy[alyssa, charlie] AND containing[talk]))",
+                query.toString());
+    }
+
+    @Test
+    public void testPlans() {
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            tweets.add(tweet(i, i < 5 ? "alyssa" : "user" + i % 2, "talk " + i, i));
+        }
+        AuthorIndex authors = new AuthorIndex(tweets);
+        TimeIndex times = new TimeIndex(tweets);
+        TweetQuery alyssa = TweetQuery.writtenBy("Alyssa");
+        TweetQuery early = TweetQuery.inTimespan(new Timespan(d1, d1.plusSeconds(60 * 9)));
+        TweetQuery talk = TweetQuery.containing(Arrays.asList("talk"));
+
+        assertEquals("scan", alyssa.explain(tweets, null, null));
+        assertEquals("scan", alyssa.explain(tweets, null, times));
+        assertEquals("scan", talk.explain(tweets, authors, times));
+        assertTrue(alyssa.explain(tweets, authors, null).startsWith("author index"));
+        assertTrue(early.explain(tweets, authors, times).startsWith("time index"));
+        assertEquals("5 by alyssa is fewer than 10 early", "author index writtenBy[alyssa] (~5 tweets)",
+                alyssa.and(early).and(talk).explain(tweets, authors, times));
+        assertTrue(alyssa.or(early).explain(tweets, authors, times).startsWith("union"));
+        assertEquals("OR with an unindexed operand", "scan", alyssa.or(talk).explain(tweets, authors, times));
+        assertEquals("half the tweets are by user1", "scan",
+                TweetQuery.writtenBy("user1").explain(tweets, authors, times));
+
+        assertEquals(tweets.subList(0, 5), alyssa.and(talk).filter(tweets, authors, times));
+        assertEquals(tweets.subList(0, 10), alyssa.or(early).filter(tweets, authors, times));
+        assertEquals(tweets.subList(0, 5), alyssa.filter(authors));
+        assertEquals(tweets.subList(0, 10), early.filter(times));
+    }
+
+    @Test
+    public void testIndexKeepsInputOrder() {
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            tweets.add(tweet(i, "user" + i, "talk", 40 - i));
+        }
+        TimeIndex times = new TimeIndex(tweets);
+        TweetQuery query = TweetQuery.inTimespan(new Timespan(d1.plusSeconds(60), d1.plusSeconds(60 * 5)));
+        assertTrue(query.explain(tweets, null, times).startsWith("time index"));
+        assertEquals(tweets.subList(35, 40), query.filter(times));
+    }
+
+    @Test
+    public void testRandomQueriesMatchChainedFilters() {
+        Random random = new Random(6005);
+        for (int trial = 0; trial < 50; trial++) {
+            List<Tweet> tweets = randomTweets(random, 1 + random.nextInt(300));
+            AuthorIndex authors = new AuthorIndex(tweets);
+            TimeIndex times = new TimeIndex(tweets);
+
+            Set<String> usernames = new HashSet<>();
+            for (int i = random.nextInt(3); i >= 0; i--) {
+                usernames.add("USER" + random.nextInt(25));
+            }
+            Instant start = d1.plusSeconds(60 * random.nextInt(500));
+            Timespan timespan = new Timespan(start, start.plusSeconds(60 * random.nextInt(200)));
+            List<String> words = Arrays.asList(random.nextBoolean() ? "rivest" : "JAVA", "6.0");
+
+            List<Tweet> byAuthor = new ArrayList<>();
+            for (List<Tweet> written : Filter.writtenByAll(tweets, usernames).values()) {
+                byAuthor.addAll(written);
+            }
+            List<Tweet> expected = Filter.containing(Filter.inTimespan(
+                    inInputOrder(tweets, byAuthor), timespan), words);
+
+            TweetQuery query = TweetQuery.containing(words)
+                    .and(TweetQuery.writtenBy(usernames))
+                    .and(TweetQuery.inTimespan(timespan));
+            assertEquals(expected, query.filter(tweets));
+            assertEquals(expected, query.filter(tweets, authors, times));
+            assertEquals(expected, query.filter(authors));
+            assertEquals(expected, query.filter(times));
+
+            List<Tweet> either = inInputOrder(tweets, union(byAuthor, Filter.inTimespan(tweets, timespan)));
+            TweetQuery or = TweetQuery.writtenBy(usernames).or(TweetQuery.inTimespan(timespan));
+            assertEquals(either, or.filter(tweets));
+            assertEquals(either, or.filter(tweets, authors, times));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIndexOfOtherTweets() {
+        List<Tweet> tweets = randomTweets(new Random(1), 10);
+        TweetQuery.writtenBy("user1").filter(tweets, new AuthorIndex(tweets.subList(0, 5)), null);
+    }
+
+    private static List<Tweet> union(List<Tweet> a, List<Tweet> b) {
+        List<Tweet> union = new ArrayList<>(a);
+        for (Tweet t : b) {
+            if (!union.contains(t)) {
+                union.add(t);
+            }
+        }
+        return union;
+    }
+
+    private static List<Tweet> inInputOrder(List<Tweet> tweets, List<Tweet> subset) {
+        List<Tweet> ordered = new ArrayList<>();
+        for (Tweet t : tweets) {
+            if (subset.contains(t)) {
+                ordered.add(t);
+            }
+        }
+        return ordered;
+    }
+}
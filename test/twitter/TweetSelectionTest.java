@@ -0,0 +1,124 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class TweetSelectionTest {
+
+    /*
+     * Testing strategy
+     *
+     * source size: 0, < 64, multiple of 64, > 64 and not a multiple
+     * selected: none, some (across word boundaries), all
+     * operations: and, or, andNot, not, filter; selections of another list
+     * views: count, isSelected, iterator (exhausted), stream short-circuiting,
+     *  positions, asList get and iteration, passed to Extract
+     * Filter.select*: agree with the eager Filter methods
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    private static List<Tweet> tweets(int n) {
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            tweets.add(new Tweet(i, i % 3 == 0 ? "Alyssa" : "bbitdiddle", i % 5 == 0 ? "rivest talk" : "#hype",
+                    d1.plusSeconds(60 * i)));
+        }
+        return tweets;
+    }
+
+    @Test
+    public void testEmptySource() {
+        List<Tweet> tweets = tweets(0);
+        TweetSelection all = TweetSelection.all(tweets);
+        assertTrue(all.isEmpty());
+        assertFalse(all.iterator().hasNext());
+        assertEquals(0, all.not().count());
+        assertEquals(Collections.emptyList(), all.asList());
+    }
+
+    @Test
+    public void testSelectMatchesFilter() {
+        for (int n : new int[] { 10, 64, 128, 200 }) {
+            List<Tweet> tweets = tweets(n);
+            TweetSelection alyssa = Filter.selectWrittenBy(tweets, "alyssa");
+            TweetSelection talk = Filter.selectContaining(tweets, Arrays.asList("TALK"));
+            TweetSelection late = Filter.selectInTimespan(tweets, new Timespan(d1.plusSeconds(60 * 5), d1.plusSeconds(60 * n)));
+            List<Tweet> expected = Filter.writtenBy(tweets, "alyssa");
+            assertEquals(expected, alyssa.asList());
+            assertEquals(expected.size(), alyssa.count());
+            assertEquals(Filter.containing(tweets, Arrays.asList("talk")), talk.stream().collect(Collectors.toList()));
+            assertEquals(Filter.inTimespan(tweets, new Timespan(d1.plusSeconds(60 * 5), d1.plusSeconds(60 * n))),
+                    late.asList());
+
+            List<Tweet> both = new ArrayList<>();
+            List<Tweet> either = new ArrayList<>();
+            List<Tweet> onlyAlyssa = new ArrayList<>();
+            for (Tweet t : tweets) {
+                boolean a = expected.contains(t);
+                boolean k = t.getText().contains("talk");
+                if (a && k) {
+                    both.add(t);
+                }
+                if (a || k) {
+                    either.add(t);
+                }
+                if (a && !k) {
+                    onlyAlyssa.add(t);
+                }
+            }
+            assertEquals(both, alyssa.and(talk).asList());
+            assertEquals(either, alyssa.or(talk).asList());
+            assertEquals(onlyAlyssa, alyssa.andNot(talk).asList());
+            assertEquals(onlyAlyssa, alyssa.filter(t -> !t.getText().contains("talk")).asList());
+            assertEquals(n - alyssa.count(), alyssa.not().count());
+            assertEquals(n, TweetSelection.all(tweets).count());
+            assertEquals(0, TweetSelection.all(tweets).not().count());
+        }
+    }
+
+    @Test
+    public void testViews() {
+        List<Tweet> tweets = tweets(130);
+        TweetSelection talk = Filter.selectContaining(tweets, Arrays.asList("rivest"));
+        assertEquals(26, talk.count());
+        assertTrue(talk.isSelected(65));
+        assertFalse(talk.isSelected(64));
+        assertEquals(Arrays.asList(0, 5, 10), talk.positions().limit(3).boxed().collect(Collectors.toList()));
+        assertEquals(tweets.get(125), talk.asList().get(25));
+        assertEquals(tweets.get(65), talk.asList().get(13));
+        assertEquals(tweets.get(0), talk.stream().findFirst().get());
+        assertEquals(d1, Extract.getTimespan(talk.asList()).getStart());
+        assertEquals(d1.plusSeconds(60 * 125), Extract.getTimespan(talk.asList()).getEnd());
+        assertEquals("26 of 130 tweets", talk.toString());
+
+        Iterator<Tweet> iterator = TweetSelection.none(tweets).or(Filter.selectWrittenBy(tweets, "nobody")).iterator();
+        assertFalse(iterator.hasNext());
+        try {
+            iterator.next();
+            fail("expected NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentSources() {
+        TweetSelection.all(tweets(10)).and(TweetSelection.all(tweets(10)));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testPositionOutOfRange() {
+        TweetSelection.all(tweets(10)).isSelected(10);
+    }
+}
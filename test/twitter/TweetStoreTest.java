@@ -0,0 +1,116 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TweetStoreTest {
+
+    /*
+     * Testing strategy
+     *
+     * add(), get(), asList():
+     *  empty store, one tweet, enough tweets to fill several text pages
+     *  timestamps with and without nanoseconds
+     *  ASCII and non-ASCII text, empty text
+     *  same author in different case
+     * Extract/Filter overloads on a store, compared with the List versions:
+     *  getTimespan: empty store, random corpus
+     *  writtenBy: unknown user, user in different case
+     *  inTimespan: bounds with nanoseconds, empty result
+     *  containing: ASCII and non-ASCII words and texts, empty word, no words
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+    private static final Instant d2 = Instant.parse("2016-02-17T11:00:00Z");
+
+    private static final Tweet tweet1 = new Tweet(1, "alyssa", "is it reasonable to talk about rivest so much?", d1);
+    private static final Tweet tweet2 = new Tweet(2, "bbitdiddle", "rivest talk in 30 minutes #hype", d2);
+    private static final Tweet tweet3 = new Tweet(3, "Alyssa", "Ünïcödé TALK — naïve café", d2.plusNanos(5));
+    private static final Tweet tweet4 = new Tweet(4, "bbitdiddle", "", d1.minusNanos(1));
+
+    private static void assertSameTweets(List<Tweet> expected, List<Tweet> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Tweet e = expected.get(i);
+            Tweet a = actual.get(i);
+            assertEquals(e.getId(), a.getId());
+            assertTrue(e.getAuthor().equalsIgnoreCase(a.getAuthor()));
+            assertEquals(e.getText(), a.getText());
+            assertEquals(e.getTimestamp(), a.getTimestamp());
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        TweetStore store = new TweetStore();
+        assertTrue(store.isEmpty());
+        assertTrue(store.asList().isEmpty());
+        assertTrue(Filter.writtenBy(store, "alyssa").isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetTimespanEmpty() {
+        Extract.getTimespan(new TweetStore());
+    }
+
+    @Test
+    public void testRoundTrip() {
+        List<Tweet> tweets = Arrays.asList(tweet1, tweet2, tweet3, tweet4);
+        TweetStore store = new TweetStore(tweets);
+        assertEquals(4, store.size());
+        assertEquals(2, store.authorCount());
+        assertEquals("first spelling is kept", "alyssa", store.author(2));
+        assertSameTweets(tweets, store.asList());
+        assertEquals(tweet3, store.get(2));
+    }
+
+    @Test
+    public void testFiltersMatchListVersions() {
+        List<Tweet> tweets = Arrays.asList(tweet1, tweet2, tweet3, tweet4);
+        TweetStore store = new TweetStore(tweets);
+
+        assertEquals(Extract.getTimespan(tweets), Extract.getTimespan(store));
+        assertSameTweets(Filter.writtenBy(tweets, "ALYSSA"), Filter.writtenBy(store, "ALYSSA"));
+        assertTrue(Filter.writtenBy(store, "nobody").isEmpty());
+
+        Timespan narrow = new Timespan(d1, d2.plusNanos(4));
+        assertSameTweets(Filter.inTimespan(tweets, narrow), Filter.inTimespan(store, narrow));
+        Timespan none = new Timespan(d1.plusNanos(1), d2.minusNanos(1));
+        assertTrue(Filter.inTimespan(store, none).isEmpty());
+
+        for (List<String> words : List.of(List.of("talk"), List.of("NAÏVE"), List.of("café", "hype"),
+                                          List.of(""), List.<String>of(), List.of("zzz"))) {
+            assertSameTweets(Filter.containing(tweets, words), Filter.containing(store, words));
+        }
+    }
+
+    @Test
+    public void testManyPages() {
+        Random random = new Random(6005);
+        List<Tweet> tweets = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            text.setLength(0);
+            for (int c = 0; c < 140; c++) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+            if (i % 7 == 0) {
+                text.setCharAt(random.nextInt(140), 'É');
+            }
+            tweets.add(new Tweet(i, "user" + random.nextInt(100), text.toString(),
+                                 d1.plusSeconds(random.nextInt(100_000))));
+        }
+        TweetStore store = new TweetStore(tweets);
+        assertSameTweets(tweets, store.asList());
+        assertEquals(Extract.getTimespan(tweets), Extract.getTimespan(store));
+        assertSameTweets(Filter.writtenBy(tweets, "user7"), Filter.writtenBy(store, "USER7"));
+        assertSameTweets(Filter.containing(tweets, List.of("abc", "é")), Filter.containing(store, List.of("abc", "é")));
+    }
+}
@@ -0,0 +1,92 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TwitterDateTest {
+
+    /*
+     * Testing strategy
+     *
+     * parse(), parseEpochSecond():
+     *  offset +0000, positive, negative, maximal
+     *  date in leap year (Feb 29), before 1970, at year boundaries
+     *  random instants compared against ZonedDateTime.parse
+     *  not in the fixed layout but accepted by the formatter (5-digit year, hour 24)
+     *  rejected: wrong day of week, Feb 30, minute 60, bad month name, garbage
+     */
+
+    private static Instant reference(String text) {
+        return ZonedDateTime.parse(text, TwitterDate.FORMAT).toInstant();
+    }
+
+    private static void assertParses(String text) {
+        assertEquals(text, reference(text), TwitterDate.parse(text));
+        assertEquals(text, reference(text).getEpochSecond(), TwitterDate.parseEpochSecond(text));
+    }
+
+    private static void assertRejected(String text) {
+        try {
+            TwitterDate.parse(text);
+            fail("expected " + text + " to be rejected");
+        } catch (DateTimeParseException expected) {
+        }
+    }
+
+    @Test
+    public void testUtc() {
+        assertEquals(Instant.parse("2016-02-17T10:00:00Z"), TwitterDate.parse("Wed Feb 17 10:00:00 +0000 2016"));
+    }
+
+    @Test
+    public void testOffsets() {
+        assertParses("Wed Feb 17 10:00:00 +0530 2016");
+        assertParses("Wed Feb 17 01:00:00 -0800 2016");
+        assertParses("Wed Feb 17 01:00:00 +1800 2016");
+        assertParses("Wed Feb 17 01:00:00 -1800 2016");
+    }
+
+    @Test
+    public void testCalendarEdges() {
+        assertParses("Mon Feb 29 23:59:59 +0000 2016");
+        assertParses("Thu Jan 01 00:00:00 +0000 1970");
+        assertParses("Wed Dec 31 23:59:59 +0000 1969");
+        assertParses("Sat Jan 01 00:00:00 +0000 2000");
+        assertParses("Wed Mar 01 00:00:00 -0100 1600");
+    }
+
+    @Test
+    public void testRandomInstants() {
+        Random random = new Random(6005);
+        for (int i = 0; i < 10_000; i++) {
+            long seconds = random.nextInt(Integer.MAX_VALUE) * 2L - Integer.MAX_VALUE;
+            ZoneOffset offset = ZoneOffset.ofTotalSeconds((random.nextInt(37) - 18) * 3600);
+            String text = TwitterDate.FORMAT.format(Instant.ofEpochSecond(seconds).atOffset(offset));
+            assertParses(text);
+        }
+    }
+
+    @Test
+    public void testFallbackLayout() {
+        String text = TwitterDate.FORMAT.format(ZonedDateTime.parse("+10000-01-01T00:00:00Z"));
+        assertParses(text);
+        assertParses("Wed Feb 17 24:00:00 +0000 2016");
+    }
+
+    @Test
+    public void testRejected() {
+        assertRejected("Thu Feb 17 10:00:00 +0000 2016");
+        assertRejected("Tue Feb 30 10:00:00 +0000 2016");
+        assertRejected("Wed Feb 17 10:60:00 +0000 2016");
+        assertRejected("Wed FEB 17 10:00:00 +0000 2016");
+        assertRejected("Wed Feb 17 10:00:00 +1900 2016");
+        assertRejected("not a date at all, not at all!");
+    }
+}
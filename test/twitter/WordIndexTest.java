@@ -0,0 +1,127 @@
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class WordIndexTest {
+
+    /*
+     * Testing strategy
+     *
+     * tokens: words separated by spaces and punctuation, hashtags, mentions,
+     *  underscores and digits, case differences, a word repeated in a tweet,
+     *  substrings of words (not matched)
+     * queries: OR, AND, AND with exclusions; no words, unknown words, one
+     *  word, several words; against a brute-force scan of random tweets,
+     *  with posting lists longer than several skip intervals
+     * growth: adding tweets after queries
+     * bad input: a query word that is empty or has a non-word character
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    private static Tweet tweet(long id, String text) {
+        return new Tweet(id, "alyssa", text, d1);
+    }
+
+    @Test
+    public void testTokens() {
+        List<Tweet> tweets = Arrays.asList(
+                tweet(1, "is it reasonable to talk about Rivest so much?"),
+                tweet(2, "rivest talk in 30 minutes #hype"),
+                tweet(3, "@bbitdiddle rivest's talk, talk, TALK!"),
+                tweet(4, "snake_case and 6.005"));
+        WordIndex index = new WordIndex(tweets);
+        assertEquals(tweets, index.containingAny(Arrays.asList("talk", "snake_case")));
+        assertEquals(Arrays.asList(tweets.get(1)), index.containingAny(Arrays.asList("HYPE")));
+        assertEquals(Arrays.asList(tweets.get(2)), index.containingAny(Arrays.asList("bbitdiddle", "s")));
+        assertEquals(Arrays.asList(tweets.get(3)), index.containingAll(Arrays.asList("6", "005")));
+        assertEquals("substrings are not words", 0, index.count("rives"));
+        assertEquals(3, index.count("Rivest"));
+        assertEquals(Collections.emptyList(), index.containingAny(Collections.emptyList()));
+        assertEquals(tweets, index.containingAll(Collections.emptyList()));
+        assertEquals(Arrays.asList(tweets.get(0), tweets.get(3)),
+                index.containingAll(Collections.emptyList(), Arrays.asList("30", "bbitdiddle")));
+        assertEquals(Arrays.asList(tweets.get(1)),
+                index.containingAll(Arrays.asList("rivest", "talk"), Arrays.asList("about", "bbitdiddle")));
+        assertEquals(Collections.emptyList(), index.containingAll(Arrays.asList("rivest", "nobody")));
+        assertTrue(index.postingBytes() > 0);
+
+        index.add(tweet(5, "one more TALK"));
+        assertEquals(4, index.containingAll(Arrays.asList("talk")).size());
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    public void testRandomQueriesMatchScan() {
+        Random random = new Random(6005);
+        String[] vocabulary = { "rivest", "talk", "Java", "mit", "hype", "6", "005", "a", "the", "rare" };
+        List<Tweet> tweets = new ArrayList<>();
+        WordIndex index = new WordIndex();
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < 1000; i++) {
+                StringBuilder text = new StringBuilder();
+                for (int w = random.nextInt(6); w >= 0; w--) {
+                    // "rare" is rare, "a" and "the" are in most tweets
+                    String word = vocabulary[Math.min(random.nextInt(12), vocabulary.length - 1)];
+                    if (word.equals("rare") && random.nextInt(20) != 0) {
+                        word = random.nextBoolean() ? "a" : "the";
+                    }
+                    text.append(random.nextBoolean() ? word.toUpperCase(Locale.ROOT) : word)
+                        .append(random.nextBoolean() ? " " : ", #");
+                }
+                Tweet tweet = tweet(tweets.size(), text.toString());
+                tweets.add(tweet);
+                index.add(tweet);
+            }
+            for (int q = 0; q < 50; q++) {
+                List<String> words = randomWords(random, vocabulary);
+                List<String> excluded = randomWords(random, vocabulary).subList(0, random.nextInt(2));
+                List<Tweet> any = new ArrayList<>();
+                List<Tweet> all = new ArrayList<>();
+                for (Tweet tweet : tweets) {
+                    Set<String> tokens = new HashSet<>(Arrays.asList(
+                            tweet.getText().toLowerCase(Locale.ROOT).split("[^a-z0-9_]+")));
+                    if (words.stream().anyMatch(w -> tokens.contains(w.toLowerCase(Locale.ROOT)))) {
+                        any.add(tweet);
+                    }
+                    if (words.stream().allMatch(w -> tokens.contains(w.toLowerCase(Locale.ROOT)))
+                            && excluded.stream().noneMatch(w -> tokens.contains(w.toLowerCase(Locale.ROOT)))) {
+                        all.add(tweet);
+                    }
+                }
+                assertEquals(words.toString(), any, index.containingAny(words));
+                assertEquals(words + " - " + excluded, all, index.containingAll(words, excluded));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyQueryWord() {
+        new WordIndex().containingAny(Arrays.asList(""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testQueryPhrase() {
+        new WordIndex(Arrays.asList(tweet(1, "rivest talk"))).containingAll(Arrays.asList("rivest talk"));
+    }
+
+    private static List<String> randomWords(Random random, String[] vocabulary) {
+        List<String> words = new ArrayList<>();
+        for (int i = random.nextInt(3); i >= 0; i--) {
+            words.add(random.nextInt(10) == 0 ? "unknown" : vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return words;
+    }
+}